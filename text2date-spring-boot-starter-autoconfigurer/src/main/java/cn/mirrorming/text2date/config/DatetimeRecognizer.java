@@ -1,24 +1,318 @@
 package cn.mirrorming.text2date.config;
 
+import cn.mirrorming.text2date.engine.RegexEngineFactory;
+import cn.mirrorming.text2date.engine.RegexEngineType;
 import cn.mirrorming.text2date.time.TimeEntity;
+import cn.mirrorming.text2date.time.NegativeTextFilter;
+import cn.mirrorming.text2date.time.TimeEntityCache;
 import cn.mirrorming.text2date.time.TimeEntityRecognizer;
+import cn.mirrorming.text2date.time.WorkdayCalendar;
 import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
  * todo  springboot 配置直接加入正则搜索
+ * <p>
+ * 延迟初始化时，容器启动({@link #start()})后在后台线程编译规则，{@link #isReady()} 表示是否可用；
+ * 可用之前的调用最多等待 initTimeout，还没有开始编译时由调用线程直接编译
  *
  * @author Mireal
  */
-public class DatetimeRecognizer {
+@Slf4j
+public class DatetimeRecognizer implements SmartLifecycle {
+    private static final ZoneId CHINA_ZONE = ZoneId.of("Asia/Shanghai");
     @Setter
     Text2DateProperties text2DateProperties;
 
-    private TimeEntityRecognizer timeEntityRecognizer = new TimeEntityRecognizer();
+    private final RegexEngineFactory engineFactory;
+    private final CompletableFuture<TimeEntityRecognizer> timeEntityRecognizer = new CompletableFuture<>();
+    private final AtomicBoolean initializing = new AtomicBoolean();
+    private volatile boolean transducer;
+    private volatile TimeEntityCache entityCache;
+    private volatile DocumentCache documentCache;
+    private volatile NegativeTextFilter negativeFilter;
+    private volatile WorkdayCalendar workdayCalendar = WorkdayCalendar.defaults();
+    /**
+     * {@link #parseAll(List, ZoneId, Instant)} 使用的线程池，为 null 时按 batchParallelism 在第一次用到时创建
+     */
+    private volatile ForkJoinPool batchPool;
+    private int batchParallelism;
+    /**
+     * batchPool 是否由这里创建，是时在 {@link #stop()} 中关闭
+     */
+    private boolean ownsBatchPool;
+    private volatile boolean running;
+    /**
+     * 等待后台初始化的最长时间
+     */
+    @Setter
+    private Duration initTimeout = Duration.ofSeconds(30);
+
+    public DatetimeRecognizer() {
+        this(RegexEngineType.JDK);
+    }
+
+    /**
+     * @param engineFactory 匹配引擎
+     */
+    public DatetimeRecognizer(RegexEngineFactory engineFactory) {
+        this(engineFactory, false);
+    }
+
+    /**
+     * @param engineFactory 匹配引擎
+     * @param lazy          是否延迟到 {@link #start()} 或第一次调用时再编译规则
+     */
+    public DatetimeRecognizer(RegexEngineFactory engineFactory, boolean lazy) {
+        this.engineFactory = engineFactory;
+        if (!lazy) {
+            initialize();
+        }
+    }
+
+    /**
+     * @param transducer 是否用单遍转换器提取时间字段
+     */
+    public void setTransducer(boolean transducer) {
+        this.transducer = transducer;
+        timeEntityRecognizer.thenAccept(recognizer -> recognizer.setTransducer(transducer));
+    }
+
+    /**
+     * @param size 实体解析结果缓存的最大条数，0 不缓存
+     */
+    public void setEntityCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("entity cache size must not be negative: " + size);
+        }
+        TimeEntityCache cache = size == 0 ? null : new TimeEntityCache(size);
+        this.entityCache = cache;
+        timeEntityRecognizer.thenAccept(recognizer -> recognizer.setCache(cache));
+    }
+
+    /**
+     * @return 实体解析结果缓存，包括命中率等统计，没有开启时为 null
+     */
+    public TimeEntityCache getEntityCache() {
+        return entityCache;
+    }
+
+    /**
+     * @param size        整段文本解析结果缓存的最大条数，0 不缓存
+     * @param granularity 相对时间的粒度，见 {@link DocumentCache}
+     */
+    public void setDocumentCache(int size, Duration granularity) {
+        if (size < 0) {
+            throw new IllegalArgumentException("document cache size must not be negative: " + size);
+        }
+        this.documentCache = size == 0 ? null : new DocumentCache(size, granularity);
+    }
+
+    /**
+     * @return 整段文本解析结果缓存，包括命中率、内存等统计，没有开启时为 null
+     */
+    public DocumentCache getDocumentCache() {
+        return documentCache;
+    }
+
+    /**
+     * @param capacity 记录没有时间表达的文本数，0 不记录
+     * @param rotation 轮换周期，见 {@link NegativeTextFilter}
+     */
+    public void setNegativeFilter(int capacity, Duration rotation) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("negative filter capacity must not be negative: " + capacity);
+        }
+        NegativeTextFilter filter = capacity == 0 ? null : new NegativeTextFilter(capacity, rotation);
+        this.negativeFilter = filter;
+        timeEntityRecognizer.thenAccept(recognizer -> recognizer.setNegativeFilter(filter));
+    }
+
+    /**
+     * @return 没有时间表达的文本记录，包括命中次数、内存等统计，没有开启时为 null
+     */
+    public NegativeTextFilter getNegativeFilter() {
+        return negativeFilter;
+    }
+
+    /**
+     * @param workdayCalendar 解析“三个工作日后”“下个工作日”用到的工作日日历
+     */
+    public void setWorkdayCalendar(WorkdayCalendar workdayCalendar) {
+        this.workdayCalendar = workdayCalendar;
+        timeEntityRecognizer.thenAccept(recognizer -> recognizer.setWorkdayCalendar(workdayCalendar));
+    }
+
+    /**
+     * @return 工作日日历，可以直接判断工作日、计算工作日数
+     */
+    public WorkdayCalendar getWorkdayCalendar() {
+        return workdayCalendar;
+    }
+
+    /**
+     * @param parallelism {@link #parseAll(List, ZoneId, Instant)} 的并行度，0 使用 ForkJoinPool.commonPool()
+     */
+    public synchronized void setBatchParallelism(int parallelism) {
+        if (parallelism < 0) {
+            throw new IllegalArgumentException("batch parallelism must not be negative: " + parallelism);
+        }
+        shutdownBatchPool();
+        batchParallelism = parallelism;
+        batchPool = null;
+    }
+
+    /**
+     * @param pool {@link #parseAll(List, ZoneId, Instant)} 使用的线程池，由调用方管理，{@link #stop()} 时不关闭
+     */
+    public synchronized void setBatchPool(ForkJoinPool pool) {
+        shutdownBatchPool();
+        batchPool = pool;
+    }
+
+    private ForkJoinPool batchPool() {
+        ForkJoinPool pool = batchPool;
+        if (pool != null) {
+            return pool;
+        }
+        synchronized (this) {
+            if (batchPool == null) {
+                if (batchParallelism == 0) {
+                    batchPool = ForkJoinPool.commonPool();
+                } else {
+                    batchPool = new ForkJoinPool(batchParallelism, factoryPool -> {
+                        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(factoryPool);
+                        thread.setName("text2date-batch-" + thread.getPoolIndex());
+                        return thread;
+                    }, null, false);
+                    ownsBatchPool = true;
+                }
+            }
+            return batchPool;
+        }
+    }
+
+    /**
+     * 关闭由这里创建的线程池，下次用到时重新创建；调用方传入的线程池不动
+     */
+    private synchronized void shutdownBatchPool() {
+        if (ownsBatchPool) {
+            batchPool.shutdown();
+            batchPool = null;
+            ownsBatchPool = false;
+        }
+    }
+
+    /**
+     * @return 规则是否已编译完成
+     */
+    public boolean isReady() {
+        return timeEntityRecognizer.isDone() && !timeEntityRecognizer.isCompletedExceptionally();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!initializing.get()) {
+            Thread thread = new Thread(() -> {
+                try {
+                    initialize();
+                } catch (RuntimeException | Error e) {
+                    log.error("time entity recognizer initialization failed", e);
+                }
+            }, "text2date-init");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        shutdownBatchPool();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 尽早开始编译，和其它组件的启动并行
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * 只编译一次，失败时抛出异常，等待中的调用一起失败
+     */
+    private void initialize() {
+        if (!initializing.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            TimeEntityRecognizer recognizer = new TimeEntityRecognizer(engineFactory);
+            recognizer.setTransducer(transducer);
+            recognizer.setCache(entityCache);
+            recognizer.setNegativeFilter(negativeFilter);
+            recognizer.setWorkdayCalendar(workdayCalendar);
+            timeEntityRecognizer.complete(recognizer);
+            log.info("time entity recognizer initialized, time used(ms):{}", System.currentTimeMillis() - start);
+        } catch (RuntimeException | Error e) {
+            timeEntityRecognizer.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private TimeEntityRecognizer recognizer() {
+        TimeEntityRecognizer recognizer = timeEntityRecognizer.getNow(null);
+        if (recognizer != null) {
+            return recognizer;
+        }
+        initialize();
+        try {
+            return timeEntityRecognizer.get(initTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("time entity recognizer is not ready after " + initTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for time entity recognizer", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("time entity recognizer initialization failed", e.getCause());
+        }
+    }
+
+    /**
+     * 文本中是否包含时间表达
+     *
+     * @param text 需要判断的文本
+     * @return boolean
+     */
+    public boolean containsTime(CharSequence text) {
+        return recognizer().containsTime(text);
+    }
 
     /**
      * 文本转 {@link TimeEntity}
@@ -28,7 +322,91 @@ public class DatetimeRecognizer {
      * @throws IOException IO异常
      */
     public List<TimeEntity> parse(String text) {
-        return timeEntityRecognizer.parse(text);
+        return parse(text, CHINA_ZONE, Instant.now());
+    }
+
+    /**
+     * 文本转 {@link TimeEntity}，时间见 {@link TimeEntity#getDateTime()}
+     *
+     * @param text     需要解析的文本
+     * @param zone     时区
+     * @param relative 相对时间
+     * @return {@link TimeEntity}
+     */
+    public List<TimeEntity> parse(CharSequence text, ZoneId zone, Instant relative) {
+        DocumentCache cache = documentCache;
+        if (cache == null) {
+            return recognizer().parse(text, zone, relative);
+        }
+        return cache.get(text, zone, relative, start -> recognizer().parse(text, zone, start));
+    }
+
+    /**
+     * 批量解析，所有文本使用同一个相对时间；文本分段交给 batchPool 并行解析，每个工作线程复用自己的解析上下文，
+     * 文本较少时直接在调用线程解析
+     *
+     * @param texts    需要解析的文本
+     * @param zone     时区
+     * @param relative 相对时间
+     * @return 与 texts 顺序一致的解析结果
+     */
+    public List<List<TimeEntity>> parseAll(List<? extends CharSequence> texts, ZoneId zone, Instant relative) {
+        CharSequence[] items = texts.toArray(new CharSequence[0]);
+        @SuppressWarnings("unchecked")
+        List<TimeEntity>[] results = new List[items.length];
+        //在调用线程等待初始化，不占用工作线程
+        recognizer();
+        ForkJoinPool pool = batchPool();
+        //每个工作线程大约分到 8 段，段太小时调度开销超过解析本身
+        int grain = Math.max(BATCH_MIN_GRAIN, items.length / (pool.getParallelism() * 8));
+        BatchParse task = new BatchParse(items, results, 0, items.length, grain, zone, relative);
+        if (items.length <= grain) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    /**
+     * 每段最少的文本数
+     */
+    private static final int BATCH_MIN_GRAIN = 16;
+
+    /**
+     * 解析 [from, to) 的文本，超过 grain 时对半拆分
+     */
+    private final class BatchParse extends RecursiveAction {
+        private final CharSequence[] texts;
+        private final List<TimeEntity>[] results;
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final ZoneId zone;
+        private final Instant relative;
+
+        BatchParse(CharSequence[] texts, List<TimeEntity>[] results, int from, int to, int grain, ZoneId zone, Instant relative) {
+            this.texts = texts;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.zone = zone;
+            this.relative = relative;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > grain) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BatchParse(texts, results, from, mid, grain, zone, relative),
+                        new BatchParse(texts, results, mid, to, grain, zone, relative));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                results[i] = parse(texts[i], zone, relative);
+            }
+        }
     }
 
     /**
@@ -39,7 +417,7 @@ public class DatetimeRecognizer {
      * @throws IOException IO异常
      */
     public List<Date> dateParse(String text) {
-        return timeEntityRecognizer.parse(text)
+        return parse(text)
                 .stream()
                 .map(TimeEntity::getValue)
                 .collect(Collectors.toList());
@@ -1,10 +1,17 @@
 package cn.mirrorming.text2date.config;
 
+import cn.mirrorming.text2date.engine.RegexEngineFactory;
+import cn.mirrorming.text2date.time.WorkdayCalendar;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
 /**
  * @author Mireal
  */
@@ -19,12 +26,26 @@ public class DatetimeRecognizerAutoConfiguration {
     /**
      * datetimeRecognizer
      *
+     * @param engineFactory 自定义的匹配引擎，没有时使用 spring.text2date.engine
      * @return DatetimeRecognizer
+     * @throws IOException 读取 spring.text2date.workday-file 失败
      */
     @Bean
-    public DatetimeRecognizer datetimeRecognizer() {
-        DatetimeRecognizer recognizer = new DatetimeRecognizer();
+    public DatetimeRecognizer datetimeRecognizer(ObjectProvider<RegexEngineFactory> engineFactory) throws IOException {
+        DatetimeRecognizer recognizer = new DatetimeRecognizer(engineFactory.getIfAvailable(text2DateProperties::getEngine),
+                text2DateProperties.isLazyInit());
         recognizer.setText2DateProperties(text2DateProperties);
+        recognizer.setTransducer(text2DateProperties.isTransducer());
+        recognizer.setInitTimeout(text2DateProperties.getInitTimeout());
+        recognizer.setEntityCacheSize(text2DateProperties.getEntityCacheSize());
+        recognizer.setDocumentCache(text2DateProperties.getDocumentCacheSize(), text2DateProperties.getDocumentCacheGranularity());
+        recognizer.setNegativeFilter(text2DateProperties.getNegativeFilterSize(), text2DateProperties.getNegativeFilterRotation());
+        recognizer.setBatchParallelism(text2DateProperties.getBatchParallelism());
+        if (text2DateProperties.getWorkdayFile() != null) {
+            try (InputStream in = new FileInputStream(text2DateProperties.getWorkdayFile())) {
+                recognizer.setWorkdayCalendar(WorkdayCalendar.load(in));
+            }
+        }
         return recognizer;
     }
 }
@@ -0,0 +1,340 @@
+package cn.mirrorming.text2date.config;
+
+import cn.mirrorming.text2date.time.Cycle;
+import cn.mirrorming.text2date.time.TimeEntity;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 整段文本的解析结果缓存：文本 + 时区 + 相对时间所在的时间段 -> List&lt;TimeEntity&gt;
+ * <p>
+ * 相对时间按时区的本地时间截断到 granularity 的整数倍，缓存未命中时用时间段的起点解析，
+ * 同一时间段内的调用得到相同的结果。因此结果是按截断后的相对时间算出的，“现在”“半小时后”之类的相对表达
+ * 比不缓存时最多早一个粒度(默认 1 分钟)
+ * <p>
+ * 缓存项在当前时钟离开它创建时所在的时间段后过期，最晚在时钟进入下一个小时时过期：
+ * 没有日期的过去钟点按当前时钟的小时顺延(如“八点”)，粒度大于 1 小时时结果也会随时钟的小时变化；
+ * 按 key 的哈希分段加锁，各段按访问顺序淘汰；
+ * 返回的是缓存内容的副本，调用方可以修改
+ */
+public final class DocumentCache {
+    private static final int MAX_SEGMENTS = 16;
+    /**
+     * 估算内存用：每个缓存项、每个实体的大致字节数，不含字符串内容
+     */
+    private static final int ENTRY_BYTES = 160;
+    private static final int ENTITY_BYTES = 240;
+
+    private final int maximumSize;
+    private final long granularity;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    /**
+     * 所有缓存项中最早的过期时刻，到了之后清理各段
+     */
+    private final AtomicLong nextExpiry = new AtomicLong(Long.MAX_VALUE);
+
+    /**
+     * @param maximumSize 最大条数
+     * @param granularity 相对时间的粒度，至少 1 秒
+     */
+    public DocumentCache(int maximumSize, Duration granularity) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        if (granularity.getSeconds() <= 0) {
+            throw new IllegalArgumentException("granularity must be at least 1 second: " + granularity);
+        }
+        this.maximumSize = maximumSize;
+        this.granularity = granularity.getSeconds();
+        int count = Integer.highestOneBit(Math.min(MAX_SEGMENTS, maximumSize));
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(maximumSize / count + (i < maximumSize % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * @param text     文本
+     * @param zone     时区
+     * @param relative 相对时间
+     * @param parser   未命中时以时间段的起点(截断后的相对时间)解析
+     * @return 解析结果的副本
+     */
+    List<TimeEntity> get(CharSequence text, ZoneId zone, Instant relative, Function<Instant, List<TimeEntity>> parser) {
+        long offset = zone.getRules().getOffset(relative).getTotalSeconds();
+        long bucket = Math.floorDiv(relative.getEpochSecond() + offset, granularity);
+        Key key = new Key(text.toString(), zone, bucket);
+        Segment segment = segmentOf(key);
+        long now = System.currentTimeMillis();
+        if (now >= nextExpiry.get()) {
+            expire(now);
+        }
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+        }
+        if (entry != null) {
+            hits.increment();
+            return copyOf(entry.entities);
+        }
+        misses.increment();
+        List<TimeEntity> entities = parser.apply(Instant.ofEpochSecond(bucket * granularity - offset));
+        entry = new Entry(copyOf(entities), expiresAt(zone, now), estimateBytes(key.text, entities));
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+        lowerNextExpiry(entry.expiresAt);
+        return entities;
+    }
+
+    /**
+     * 先重置 nextExpiry 再逐段清理：重置之前放入的缓存项都会被扫描到，之后放入的自己会更新 nextExpiry
+     */
+    private void expire(long now) {
+        nextExpiry.set(Long.MAX_VALUE);
+        long next = Long.MAX_VALUE;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                next = Math.min(next, segment.expire(now));
+            }
+        }
+        lowerNextExpiry(next);
+    }
+
+    /**
+     * nextExpiry 只取更早的时刻，并发放入时不会被较晚的时刻覆盖
+     */
+    private void lowerNextExpiry(long expiresAt) {
+        long current = nextExpiry.get();
+        while (expiresAt < current && !nextExpiry.compareAndSet(current, expiresAt)) {
+            current = nextExpiry.get();
+        }
+    }
+
+    /**
+     * @return 当前时钟所在时间段的结束时刻和下一个整点(本地时间)中较早的一个(毫秒)
+     */
+    long expiresAt(ZoneId zone, long now) {
+        Instant instant = Instant.ofEpochMilli(now);
+        long offset = zone.getRules().getOffset(instant).getTotalSeconds();
+        long local = instant.getEpochSecond() + offset;
+        long bucketEnd = (Math.floorDiv(local, granularity) + 1) * granularity;
+        long hourEnd = (Math.floorDiv(local, 3600) + 1) * 3600;
+        return (Math.min(bucketEnd, hourEnd) - offset) * 1000;
+    }
+
+    private static long estimateBytes(String text, List<TimeEntity> entities) {
+        long bytes = ENTRY_BYTES + 2L * text.length();
+        for (TimeEntity entity : entities) {
+            bytes += ENTITY_BYTES + 2L * entity.getOriginal().length();
+        }
+        return bytes;
+    }
+
+    private static List<TimeEntity> copyOf(List<TimeEntity> entities) {
+        List<TimeEntity> copy = new ArrayList<>(entities.size());
+        for (TimeEntity entity : entities) {
+            TimeEntity timeEntity = new TimeEntity(entity.getOriginal(), entity.getOffset());
+            timeEntity.setValue(entity.getValue() == null ? null : new Date(entity.getValue().getTime()));
+            timeEntity.setDateTime(entity.getDateTime());
+            timeEntity.setCycle(entity.getCycle() == null ? null : new Cycle(entity.getCycle().getType()));
+            timeEntity.setDateOnly(entity.isDateOnly());
+            timeEntity.setStart(entity.isStart());
+            timeEntity.setEnd(entity.isEnd());
+            copy.add(timeEntity);
+        }
+        return copy;
+    }
+
+    private Segment segmentOf(Key key) {
+        int h = key.hash;
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public Duration getGranularity() {
+        return Duration.ofSeconds(granularity);
+    }
+
+    /**
+     * @return 当前条数，包括已过期还没有清理的
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return 缓存内容大致占用的字节数
+     */
+    public long getEstimatedBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += segment.bytes;
+            }
+        }
+        return bytes;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+                segment.bytes = 0;
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return 过期清理的条数
+     */
+    public long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    /**
+     * @return 因超出最大条数被淘汰的条数
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return 命中率，没有查询时为 0
+     */
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    @Override
+    public String toString() {
+        return "DocumentCache[size=" + size() + ", maximumSize=" + maximumSize + ", granularity=" + getGranularity()
+                + ", estimatedBytes=" + getEstimatedBytes() + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", expirations=" + getExpirationCount() + ", evictions=" + getEvictionCount() + "]";
+    }
+
+    private final class Segment extends LinkedHashMap<Key, Entry> {
+        private final int capacity;
+        private long bytes;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        /**
+         * @return 剩下的缓存项中最早的过期时刻
+         */
+        long expire(long now) {
+            long nextExpiry = Long.MAX_VALUE;
+            for (Iterator<Entry> it = values().iterator(); it.hasNext(); ) {
+                Entry entry = it.next();
+                if (entry.expiresAt <= now) {
+                    it.remove();
+                    bytes -= entry.bytes;
+                    expirations.increment();
+                } else {
+                    nextExpiry = Math.min(nextExpiry, entry.expiresAt);
+                }
+            }
+            return nextExpiry;
+        }
+
+        @Override
+        public Entry put(Key key, Entry entry) {
+            Entry previous = super.put(key, entry);
+            if (previous != null) {
+                bytes -= previous.bytes;
+            }
+            bytes += entry.bytes;
+            return previous;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > capacity) {
+                bytes -= eldest.getValue().bytes;
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Key {
+        private final String text;
+        private final ZoneId zone;
+        private final long bucket;
+        private final int hash;
+
+        Key(String text, ZoneId zone, long bucket) {
+            this.text = text;
+            this.zone = zone;
+            this.bucket = bucket;
+            this.hash = (text.hashCode() * 31 + zone.hashCode()) * 31 + Long.hashCode(bucket);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hash == key.hash && bucket == key.bucket && text.equals(key.text) && zone.equals(key.zone);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        private final List<TimeEntity> entities;
+        private final long expiresAt;
+        private final long bytes;
+
+        Entry(List<TimeEntity> entities, long expiresAt, long bytes) {
+            this.entities = entities;
+            this.expiresAt = expiresAt;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package cn.mirrorming.text2date.config;
 
+import cn.mirrorming.text2date.engine.RegexEngineType;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 /**
  * Text2DateProperties
  *
@@ -13,4 +16,49 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public class Text2DateProperties {
     private String regx;
     private String result;
+    /**
+     * 规则匹配引擎，默认 JDK；其它引擎与 JDK 一样最左优先，解析结果相同
+     */
+    private RegexEngineType engine = RegexEngineType.JDK;
+    /**
+     * 是否用单遍转换器提取时间字段，默认 false
+     */
+    private boolean transducer;
+    /**
+     * 是否在容器启动后于后台线程编译规则，默认 true
+     */
+    private boolean lazyInit = true;
+    /**
+     * 后台编译完成前，调用最多等待的时间，默认 30 秒
+     */
+    private Duration initTimeout = Duration.ofSeconds(30);
+    /**
+     * 实体解析结果缓存的最大条数，默认 0 不缓存
+     */
+    private int entityCacheSize;
+    /**
+     * 整段文本解析结果缓存的最大条数，默认 0 不缓存
+     */
+    private int documentCacheSize;
+    /**
+     * 整段文本缓存中相对时间的粒度，默认 1 分钟；结果按截断到粒度的相对时间计算，“半小时后”之类最多早一个粒度；
+     * 缓存项最晚在时钟进入下一个小时时过期
+     */
+    private Duration documentCacheGranularity = Duration.ofMinutes(1);
+    /**
+     * 记录没有时间表达的文本数，默认 0 不记录
+     */
+    private int negativeFilterSize;
+    /**
+     * 没有时间表达的文本记录的轮换周期，默认 1 小时
+     */
+    private Duration negativeFilterRotation = Duration.ofHours(1);
+    /**
+     * 法定节假日和调休安排文件，格式同 classpath 下的 workday.txt，默认使用 workday.txt
+     */
+    private String workdayFile;
+    /**
+     * 批量解析(parseAll)的并行度，默认 0 使用 ForkJoinPool.commonPool()
+     */
+    private int batchParallelism;
 }
@@ -0,0 +1,423 @@
+package cn.mirrorming.text2date.engine;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 把 java.util.regex 语法的规则翻译为 dk.brics.automaton 的正则语法，顺带计算匹配的首字符集合
+ * <p>
+ * 自动机只描述语言，不区分贪婪/懒惰/占有量词，分组一律视为普通分组；
+ * 同时给出保留分支先后和贪婪/懒惰的语法树，供 {@link RuleProgram} 使用，其中占有量词和原子分组按贪婪处理；
+ * 反向引用、边界、零宽断言等无法用有限自动机表达的语法抛出 {@link IllegalArgumentException}
+ */
+final class AutomatonRegexTranslator {
+    private static final int CHAR_COUNT = Character.MAX_VALUE + 1;
+    private static final String PREDEFINED_CLASSES = "dDsSwW";
+
+    private final String regex;
+    /**
+     * 规则中出现过的所有字符
+     */
+    private final BitSet alphabet = new BitSet(CHAR_COUNT);
+    private int pos;
+
+    private AutomatonRegexTranslator(String regex) {
+        this.regex = regex;
+    }
+
+    /**
+     * 翻译规则
+     *
+     * @param regex java 正则
+     * @return brics 正则
+     */
+    static String translate(String regex) {
+        return new AutomatonRegexTranslator(regex).parse().regex;
+    }
+
+    /**
+     * 语法树
+     *
+     * @param regex java 正则
+     * @return 语法树
+     */
+    static RuleProgram.Node tree(String regex) {
+        return new AutomatonRegexTranslator(regex).parse().node;
+    }
+
+    /**
+     * 匹配的第一个字符可能是哪些
+     *
+     * @param regex java 正则
+     * @return 首字符集合，规则能匹配空串时返回 null
+     */
+    static BitSet firstChars(String regex) {
+        Fragment fragment = new AutomatonRegexTranslator(regex).parse();
+        return fragment.nullable ? null : fragment.first;
+    }
+
+    /**
+     * 匹配到的文本中可能出现哪些字符
+     *
+     * @param regex java 正则
+     * @return 字符集合
+     */
+    static BitSet alphabet(String regex) {
+        AutomatonRegexTranslator translator = new AutomatonRegexTranslator(regex);
+        translator.parse();
+        return translator.alphabet;
+    }
+
+    private Fragment parse() {
+        Fragment result = alternation();
+        if (pos < regex.length()) {
+            throw unsupported();
+        }
+        return result;
+    }
+
+    /**
+     * 规则开头的后行断言 (?&lt;!...) / (?&lt;=...) 的结束位置
+     *
+     * @param regex java 正则
+     * @return 断言之后的下标，没有断言时返回 0
+     */
+    static int leadingLookbehindEnd(String regex) {
+        if (!regex.startsWith("(?<!") && !regex.startsWith("(?<=")) {
+            return 0;
+        }
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inClass) {
+                inClass = c != ']';
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private Fragment alternation() {
+        Fragment first = sequence();
+        StringBuilder sb = new StringBuilder(first.regex);
+        BitSet chars = first.first;
+        boolean nullable = first.nullable;
+        List<RuleProgram.Node> nodes = new ArrayList<>();
+        nodes.add(first.node);
+        while (pos < regex.length() && regex.charAt(pos) == '|') {
+            pos++;
+            Fragment next = sequence();
+            sb.append('|').append(next.regex);
+            chars.or(next.first);
+            nullable |= next.nullable;
+            nodes.add(next.node);
+        }
+        return new Fragment(sb.toString(), chars, nullable, RuleProgram.Node.alternate(nodes));
+    }
+
+    private Fragment sequence() {
+        StringBuilder sb = new StringBuilder();
+        BitSet chars = new BitSet(CHAR_COUNT);
+        boolean nullable = true;
+        List<RuleProgram.Node> nodes = new ArrayList<>();
+        while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+            Fragment next = quantifier(atom());
+            sb.append(next.regex);
+            if (nullable) {
+                chars.or(next.first);
+                nullable = next.nullable;
+            }
+            nodes.add(next.node);
+        }
+        return new Fragment(sb.length() == 0 ? "()" : sb.toString(), chars, nullable, RuleProgram.Node.concat(nodes));
+    }
+
+    private Fragment atom() {
+        char c = regex.charAt(pos);
+        switch (c) {
+            case '(':
+                pos++;
+                if (regex.startsWith("?:", pos) || regex.startsWith("?>", pos)) {
+                    pos += 2;
+                } else if (regex.startsWith("?<", pos) && pos + 2 < regex.length()
+                        && Character.isLetter(regex.charAt(pos + 2))) {
+                    pos = regex.indexOf('>', pos) + 1;
+                } else if (regex.startsWith("?", pos)) {
+                    throw unsupported();
+                }
+                Fragment group = alternation();
+                if (pos >= regex.length() || regex.charAt(pos) != ')') {
+                    throw unsupported();
+                }
+                pos++;
+                return new Fragment("(" + group.regex + ")", group.first, group.nullable, group.node);
+            case '[':
+                return chars(charClass());
+            case '.':
+                pos++;
+                BitSet dot = new BitSet(CHAR_COUNT);
+                dot.set(0, CHAR_COUNT);
+                dot.clear('\n');
+                dot.clear('\r');
+                dot.clear('\u0085');
+                dot.clear('\u2028');
+                dot.clear('\u2029');
+                return chars(dot);
+            case '\\':
+                return chars(escape());
+            case '^':
+            case '$':
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+                throw unsupported();
+            default:
+                pos++;
+                BitSet set = new BitSet(CHAR_COUNT);
+                set.set(c);
+                return chars(set);
+        }
+    }
+
+    private Fragment quantifier(Fragment atom) {
+        if (pos >= regex.length()) {
+            return atom;
+        }
+        char c = regex.charAt(pos);
+        String quantifier;
+        int min;
+        int max;
+        if (c == '?' || c == '*' || c == '+') {
+            pos++;
+            quantifier = String.valueOf(c);
+            min = c == '+' ? 1 : 0;
+            max = c == '?' ? 1 : -1;
+        } else if (c == '{') {
+            int close = regex.indexOf('}', pos);
+            if (close < 0 || !regex.substring(pos + 1, close).matches("\\d+(,\\d*)?")) {
+                throw unsupported();
+            }
+            quantifier = regex.substring(pos, close + 1);
+            String[] bounds = regex.substring(pos + 1, close).split(",", -1);
+            min = Integer.parseInt(bounds[0]);
+            max = bounds.length == 1 ? min : bounds[1].isEmpty() ? -1 : Integer.parseInt(bounds[1]);
+            if (max >= 0 && max < min) {
+                throw unsupported();
+            }
+            pos = close + 1;
+        } else {
+            return atom;
+        }
+        // 懒惰、占有量词与贪婪量词描述的是同一个语言，语法树中只区分懒惰
+        boolean greedy = true;
+        if (pos < regex.length() && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+')) {
+            greedy = regex.charAt(pos) == '+';
+            pos++;
+        }
+        boolean nullable = atom.nullable || c == '?' || c == '*' || quantifier.startsWith("{0");
+        return new Fragment("(" + atom.regex + ")" + quantifier, atom.first, nullable,
+                RuleProgram.Node.repeat(atom.node, min, max, greedy));
+    }
+
+    private BitSet charClass() {
+        pos++;
+        boolean negate = false;
+        if (pos < regex.length() && regex.charAt(pos) == '^') {
+            negate = true;
+            pos++;
+        }
+        BitSet set = new BitSet(CHAR_COUNT);
+        while (pos < regex.length() && regex.charAt(pos) != ']') {
+            char c = regex.charAt(pos);
+            if (c == '[') {
+                set.or(charClass());
+            } else if (regex.startsWith("&&", pos)) {
+                pos += 2;
+                BitSet right = new BitSet(CHAR_COUNT);
+                while (pos < regex.length() && regex.charAt(pos) != ']') {
+                    right.or(regex.charAt(pos) == '[' ? charClass() : classRange());
+                }
+                set.and(right);
+            } else {
+                set.or(classRange());
+            }
+        }
+        if (pos >= regex.length()) {
+            throw unsupported();
+        }
+        pos++;
+        if (negate) {
+            set.flip(0, CHAR_COUNT);
+        }
+        return set;
+    }
+
+    private BitSet classRange() {
+        if (regex.charAt(pos) == '\\' && pos + 1 < regex.length()
+                && PREDEFINED_CLASSES.indexOf(regex.charAt(pos + 1)) >= 0) {
+            return escape();
+        }
+        char low = classChar();
+        BitSet set = new BitSet(CHAR_COUNT);
+        if (pos + 1 < regex.length() && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']') {
+            pos++;
+            char high = classChar();
+            if (high < low) {
+                throw unsupported();
+            }
+            set.set(low, high + 1);
+        } else {
+            set.set(low);
+        }
+        return set;
+    }
+
+    private char classChar() {
+        if (regex.charAt(pos) == '\\') {
+            pos++;
+            return escapedChar();
+        }
+        return regex.charAt(pos++);
+    }
+
+    private BitSet escape() {
+        pos++;
+        if (pos >= regex.length()) {
+            throw unsupported();
+        }
+        BitSet set = new BitSet(CHAR_COUNT);
+        char c = regex.charAt(pos);
+        switch (c) {
+            case 'd':
+            case 'D':
+                set.set('0', '9' + 1);
+                break;
+            case 's':
+            case 'S':
+                set.set(' ');
+                set.set('\t', '\r' + 1);
+                break;
+            case 'w':
+            case 'W':
+                set.set('a', 'z' + 1);
+                set.set('A', 'Z' + 1);
+                set.set('0', '9' + 1);
+                set.set('_');
+                break;
+            default:
+                set.set(escapedChar());
+                return set;
+        }
+        pos++;
+        if (Character.isUpperCase(c)) {
+            set.flip(0, CHAR_COUNT);
+        }
+        return set;
+    }
+
+    /**
+     * 转义字符，pos 指向反斜杠之后
+     */
+    private char escapedChar() {
+        char c = regex.charAt(pos++);
+        switch (c) {
+            case 't':
+                return '\t';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 'f':
+                return '\f';
+            case 'a':
+                return '\u0007';
+            case 'e':
+                return '\u001B';
+            case 'x':
+                return hex(2);
+            case 'u':
+                return hex(4);
+            default:
+                if (Character.isLetterOrDigit(c)) {
+                    throw unsupported();
+                }
+                return c;
+        }
+    }
+
+    private char hex(int length) {
+        if (pos + length > regex.length()) {
+            throw unsupported();
+        }
+        try {
+            char c = (char) Integer.parseInt(regex.substring(pos, pos + length), 16);
+            pos += length;
+            return c;
+        } catch (NumberFormatException e) {
+            throw unsupported();
+        }
+    }
+
+    private Fragment chars(BitSet set) {
+        alphabet.or(set);
+        return new Fragment(render(set), set, false, RuleProgram.Node.chars(set));
+    }
+
+    private static String render(BitSet set) {
+        if (set.isEmpty()) {
+            return "#";
+        }
+        int first = set.nextSetBit(0);
+        if (set.nextSetBit(first + 1) < 0) {
+            return literal((char) first);
+        }
+        StringBuilder sb = new StringBuilder("[");
+        for (int low = first; low >= 0; low = set.nextSetBit(low)) {
+            int high = set.nextClearBit(low) - 1;
+            sb.append(literal((char) low));
+            if (high > low) {
+                sb.append('-').append(literal((char) high));
+            }
+            low = high + 1;
+            if (low >= CHAR_COUNT) {
+                break;
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String literal(char c) {
+        return "\\" + c;
+    }
+
+    private IllegalArgumentException unsupported() {
+        return new IllegalArgumentException("unsupported regex at " + pos + ": " + regex);
+    }
+
+    /**
+     * 翻译结果：brics 正则、首字符集合、能否匹配空串、语法树
+     */
+    private static final class Fragment {
+        final String regex;
+        final BitSet first;
+        final boolean nullable;
+        final RuleProgram.Node node;
+
+        Fragment(String regex, BitSet first, boolean nullable, RuleProgram.Node node) {
+            this.regex = regex;
+            this.first = first;
+            this.nullable = nullable;
+            this.node = node;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package cn.mirrorming.text2date.engine;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * DFA 引擎：所有规则编译为一个确定性自动机，与 {@link JdkRegexEngine} 一样最左优先(leftmost-first)：
+ * 自动机找出最左的开始位置和在此命中的规则，取规则文件中最靠前的一条，
+ * 结束位置由这条规则自己的 java.util.regex 在开始位置上确定，与 JDK 引擎的结果相同
+ * (自动机不区分分支先后和贪婪/懒惰量词，比如 国庆|国庆节 在“国庆节”上只匹配“国庆”)
+ * <p>
+ * 规则开头的后行断言作为前置条件单独用 java.util.regex 校验，
+ * 其它无法翻译为自动机的规则整条回退到 {@link JdkRegexEngine}
+ */
+@Slf4j
+public class DfaRegexEngine implements RegexEngine {
+    private final RuleSet ruleSet;
+    private final RuleDfa automaton;
+    /**
+     * 能作为匹配开头的字符
+     */
+    private final BitSet startChars = new BitSet(Character.MAX_VALUE + 1);
+    private final JdkRegexEngine fallback;
+    private final List<String> rules;
+    /**
+     * 规则下标 -> 单独编译的规则，用到时才编译
+     */
+    private final AtomicReferenceArray<Pattern> patterns;
+
+    /**
+     * 优先使用构建时写出的快照，没有或已过期时由规则构造
+     *
+     * @param rules 规则
+     */
+    public DfaRegexEngine(List<String> rules) {
+        this(rules, RuleSnapshot.load(rules));
+    }
+
+    private DfaRegexEngine(List<String> rules, RuleSnapshot snapshot) {
+        this(rules, snapshot == null ? new RuleSet(rules) : snapshot.ruleSet, snapshot == null ? null : snapshot.automaton);
+    }
+
+    /**
+     * @param rules     规则
+     * @param ruleSet   翻译后的规则
+     * @param automaton 构建时生成的自动机，null 时由 ruleSet 构造
+     */
+    DfaRegexEngine(List<String> rules, RuleSet ruleSet, RuleDfa automaton) {
+        long start = System.currentTimeMillis();
+        this.rules = rules;
+        this.patterns = new AtomicReferenceArray<>(rules.size());
+        this.ruleSet = ruleSet;
+        this.fallback = ruleSet.fallbackPatterns.isEmpty() ? null : new JdkRegexEngine(ruleSet.fallbackPatterns);
+        if (automaton == null && !ruleSet.automata.isEmpty()) {
+            automaton = RuleAutomaton.build(new RuleNfa(ruleSet.automata));
+        }
+        this.automaton = automaton;
+        if (automaton != null) {
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                if (automaton.step(0, (char) c) != -1) {
+                    startChars.set(c);
+                }
+            }
+        }
+        long end = System.currentTimeMillis();
+        log.info("dfa initialized for {} patterns, {} states, {} fallback, time used(ms):{}",
+                ruleSet.rules.length, automaton == null ? 0 : automaton.size(), ruleSet.fallbackPatterns.size(), (end - start));
+    }
+
+    @Override
+    public RuleMatcher matcher(CharSequence text) {
+        return new DfaRuleMatcher(text);
+    }
+
+    private Pattern pattern(int rule) {
+        Pattern pattern = patterns.get(rule);
+        if (pattern == null) {
+            pattern = Pattern.compile(rules.get(rule));
+            patterns.set(rule, pattern);
+        }
+        return pattern;
+    }
+
+    @Override
+    public int ruleCount() {
+        return ruleSet.ruleCount;
+    }
+
+    class DfaRuleMatcher implements RuleMatcher {
+        private CharSequence text;
+        private final RuleSet.Guards guards;
+        private final JdkRegexEngine.JdkRuleMatcher fallbackMatcher;
+        private boolean fallbackExhausted;
+        private int fallbackStart = -1;
+        private int fallbackEnd;
+        private int fallbackRule;
+        private int next;
+        private int start = -1;
+        private int end = -1;
+        private int rule = -1;
+        /**
+         * 从当前开始位置起自动机命中过的模式
+         */
+        private final BitSet candidates = new BitSet();
+        /**
+         * 规则下标 -> 单独的匹配器，用到时才创建
+         */
+        private final Matcher[] ruleMatchers = new Matcher[rules.size()];
+
+        DfaRuleMatcher(CharSequence text) {
+            this.text = text;
+            this.guards = ruleSet.new Guards(text);
+            this.fallbackMatcher = fallback == null ? null : fallback.matcher(text);
+        }
+
+        @Override
+        public boolean reset(CharSequence text) {
+            this.text = text;
+            guards.reset(text);
+            for (Matcher matcher : ruleMatchers) {
+                if (matcher != null) {
+                    matcher.reset(text);
+                }
+            }
+            if (fallbackMatcher != null) {
+                fallbackMatcher.reset(text);
+            }
+            fallbackExhausted = false;
+            fallbackStart = -1;
+            fallbackEnd = 0;
+            fallbackRule = 0;
+            next = 0;
+            start = -1;
+            end = -1;
+            rule = -1;
+            return true;
+        }
+
+        @Override
+        public boolean find() {
+            int length = text.length();
+            if (next > length) {
+                return false;
+            }
+            findFallback(length);
+            int limit = fallbackStart >= 0 ? fallbackStart : length - 1;
+            start = -1;
+            if (automaton != null) {
+                for (int s = next; s <= limit && s < length; s++) {
+                    if (startChars.get(text.charAt(s)) && first(s, length)) {
+                        start = s;
+                        break;
+                    }
+                }
+            }
+            if (fallbackStart >= 0 && (start < 0 || fallbackStart < start
+                    || (fallbackStart == start && fallbackRule < rule))) {
+                start = fallbackStart;
+                end = fallbackEnd;
+                rule = fallbackRule;
+            }
+            if (start < 0) {
+                next = length + 1;
+                return false;
+            }
+            next = end;
+            return true;
+        }
+
+        /**
+         * 从 s 开始运行自动机直到死状态，记下命中的模式，再按规则顺序用各自的正则确定第一个能匹配的
+         */
+        private boolean first(int s, int length) {
+            candidates.clear();
+            int state = 0;
+            for (int i = s; i < length; i++) {
+                state = automaton.step(state, text.charAt(i));
+                if (state == -1) {
+                    break;
+                }
+                for (int pattern : automaton.accept(state)) {
+                    candidates.set(pattern);
+                }
+            }
+            for (int pattern = candidates.nextSetBit(0); pattern >= 0; pattern = candidates.nextSetBit(pattern + 1)) {
+                if (!guards.passes(pattern, s)) {
+                    continue;
+                }
+                int candidate = ruleSet.rules[pattern];
+                Matcher matcher = ruleMatchers[candidate];
+                if (matcher == null) {
+                    matcher = pattern(candidate).matcher(text).useTransparentBounds(true).useAnchoringBounds(false);
+                    ruleMatchers[candidate] = matcher;
+                }
+                //占有量词、原子分组可能让自动机接受的文本在 JDK 中匹配不上
+                if (matcher.region(s, length).lookingAt() && matcher.end() > s) {
+                    end = matcher.end();
+                    rule = candidate;
+                    return true;
+                }
+            }
+            end = -1;
+            rule = -1;
+            return false;
+        }
+
+        /**
+         * 回退规则的下一个非空匹配，已经落在 next 之后的结果继续沿用
+         */
+        private void findFallback(int length) {
+            if (fallbackMatcher == null || fallbackExhausted || fallbackStart >= next) {
+                return;
+            }
+            fallbackStart = -1;
+            int from = next;
+            while (from <= length && fallbackMatcher.find(from)) {
+                if (fallbackMatcher.end() > fallbackMatcher.start()) {
+                    fallbackStart = fallbackMatcher.start();
+                    fallbackEnd = fallbackMatcher.end();
+                    fallbackRule = ruleSet.fallbackRules[fallbackMatcher.rule()];
+                    return;
+                }
+                from = fallbackMatcher.end() + 1;
+            }
+            fallbackExhausted = true;
+        }
+
+        @Override
+        public int start() {
+            return start;
+        }
+
+        @Override
+        public int end() {
+            return end;
+        }
+
+        @Override
+        public String group() {
+            return text.subSequence(start, end).toString();
+        }
+
+        @Override
+        public int rule() {
+            return rule;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package cn.mirrorming.text2date.engine;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * 构建时由 {@link RuleDfaProcessor} 根据规则文件生成的自动机，状态转移写成 switch，
+ * 启动时不用再翻译规则和做子集构造
+ * <p>
+ * 子类由生成的 GeneratedRuleDfas 按规则查找，规则与构建时不一致(比如自定义了规则文件)时退回运行时构造
+ */
+@Slf4j
+abstract class GeneratedRuleDfa implements RuleDfa {
+    /**
+     * 生成的索引类，没有经过注解处理(比如在 IDE 中直接编译)时不存在
+     */
+    private static final String INDEX = "cn.mirrorming.text2date.engine.GeneratedRuleDfas";
+
+    private final RuleSet ruleSet;
+    /**
+     * 状态 -> 接受的模式下标(升序)
+     */
+    private final int[][] accept;
+
+    /**
+     * @param accept 各状态接受的模式下标，状态之间用 ; 分隔，下标之间用 , 分隔，过长时拆成多段
+     */
+    GeneratedRuleDfa(int ruleCount, int[] rules, int[] guardOf, String[] guards,
+                     String[] fallbackPatterns, int[] fallbackRules, String[] accept) {
+        this.ruleSet = new RuleSet(ruleCount, rules, guardOf, guards, fallbackPatterns, fallbackRules);
+        String[] states = String.join("", accept).split(";", -1);
+        this.accept = new int[states.length][];
+        for (int i = 0; i < states.length; i++) {
+            if (states[i].isEmpty()) {
+                this.accept[i] = new int[0];
+                continue;
+            }
+            String[] patterns = states[i].split(",");
+            this.accept[i] = new int[patterns.length];
+            for (int j = 0; j < patterns.length; j++) {
+                this.accept[i][j] = Integer.parseInt(patterns[j]);
+            }
+        }
+    }
+
+    @Override
+    public int[] accept(int state) {
+        return accept[state];
+    }
+
+    @Override
+    public int size() {
+        return accept.length;
+    }
+
+    /**
+     * 使用构建时生成的自动机，没有与规则一致的生成结果时在运行时构造
+     *
+     * @param rules 规则
+     * @return DfaRegexEngine
+     */
+    static RegexEngine engine(List<String> rules) {
+        GeneratedRuleDfa dfa = find(rules);
+        if (dfa == null) {
+            log.info("no generated automaton for {} rules, compiling at runtime", rules.size());
+            return new DfaRegexEngine(rules);
+        }
+        return new DfaRegexEngine(rules, dfa.ruleSet, dfa);
+    }
+
+    private static GeneratedRuleDfa find(List<String> rules) {
+        try {
+            Method find = Class.forName(INDEX).getDeclaredMethod("find", List.class);
+            return (GeneratedRuleDfa) find.invoke(null, rules);
+        } catch (ReflectiveOperationException e) {
+            log.debug("generated automata not available: {}", e.toString());
+            return null;
+        }
+    }
+}
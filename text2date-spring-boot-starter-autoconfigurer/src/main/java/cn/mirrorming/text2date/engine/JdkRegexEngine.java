@@ -0,0 +1,180 @@
+package cn.mirrorming.text2date.engine;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * java.util.regex 引擎：所有规则拼接为 (a)|(b)|... 的一个大正则
+ * <p>
+ * 规则内部的捕获分组在加载时改写为非捕获分组，每条规则只保留外层一个分组用于识别命中的规则，
+ * 减少 Matcher 每次查找时需要重置的分组状态
+ * <p>
+ * 匹配只可能从触发字符开始，查找时先定位触发字符，只在这些位置上尝试匹配，
+ * 结果与 {@link Matcher#find()} 完全一致，长文本的耗时取决于触发字符的数量而不是文本长度
+ */
+public class JdkRegexEngine implements RegexEngine {
+    private final Pattern pattern;
+    /**
+     * 每条规则外层分组的组号
+     */
+    private final int[] ruleGroups;
+    private final Prefilter prefilter;
+
+    public JdkRegexEngine(List<String> rules) {
+        List<String> rewritten = rules.stream().map(JdkRegexEngine::nonCapturing).collect(Collectors.toList());
+        this.ruleGroups = new int[rules.size()];
+        int group = 1;
+        for (int i = 0; i < rewritten.size(); i++) {
+            ruleGroups[i] = group;
+            group += Pattern.compile(rewritten.get(i)).matcher("").groupCount() + 1;
+        }
+        this.pattern = Pattern.compile(rewritten.stream()
+                .map(item -> "(" + item + ")")
+                .collect(Collectors.joining("|")));
+        this.prefilter = Prefilter.of(rules);
+    }
+
+    /**
+     * 捕获分组 (...) / (?&lt;name&gt;...) 改写为 (?:...)，含反向引用的规则保持不变
+     *
+     * @param rule 规则
+     * @return 不含捕获分组的规则
+     */
+    static String nonCapturing(String rule) {
+        StringBuilder sb = new StringBuilder(rule.length() + 16);
+        int classDepth = 0;
+        for (int i = 0; i < rule.length(); i++) {
+            char c = rule.charAt(i);
+            if (c == '\\' && i + 1 < rule.length()) {
+                char next = rule.charAt(i + 1);
+                if (Character.isDigit(next) || next == 'k') {
+                    return rule;
+                }
+                if (next == 'Q') {
+                    int end = rule.indexOf("\\E", i + 2);
+                    end = end < 0 ? rule.length() : end + 2;
+                    sb.append(rule, i, end);
+                    i = end - 1;
+                } else {
+                    sb.append(c).append(next);
+                    i++;
+                }
+            } else if (c == '[') {
+                classDepth++;
+                sb.append(c);
+            } else if (c == ']' && classDepth > 0) {
+                classDepth--;
+                sb.append(c);
+            } else if (c == '(' && classDepth == 0) {
+                if (i + 1 < rule.length() && rule.charAt(i + 1) != '?') {
+                    sb.append("(?:");
+                } else if (rule.startsWith("?<", i + 1) && i + 3 < rule.length()
+                        && Character.isLetter(rule.charAt(i + 3))) {
+                    sb.append("(?:");
+                    i = rule.indexOf('>', i);
+                } else {
+                    sb.append(c);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public JdkRuleMatcher matcher(CharSequence text) {
+        return new JdkRuleMatcher(text);
+    }
+
+    @Override
+    public int ruleCount() {
+        return ruleGroups.length;
+    }
+
+    /**
+     * 对 {@link Matcher} 的包装
+     */
+    class JdkRuleMatcher implements RuleMatcher {
+        private CharSequence text;
+        private final Matcher matcher;
+        private int next;
+
+        JdkRuleMatcher(CharSequence text) {
+            this.text = text;
+            this.matcher = pattern.matcher(text);
+            if (prefilter.isEnabled()) {
+                // 后行断言需要看到窗口之前的文本
+                matcher.useTransparentBounds(true).useAnchoringBounds(false);
+            }
+        }
+
+        @Override
+        public boolean reset(CharSequence text) {
+            this.text = text;
+            // 边界的设置不受 reset 影响
+            matcher.reset(text);
+            next = 0;
+            return true;
+        }
+
+        @Override
+        public boolean find() {
+            if (!prefilter.isEnabled()) {
+                return matcher.find();
+            }
+            if (next > text.length()) {
+                return false;
+            }
+            for (int s = prefilter.nextCandidate(text, next); s >= 0; s = prefilter.nextCandidate(text, s + 1)) {
+                if (matcher.region(s, text.length()).lookingAt()) {
+                    next = matcher.end();
+                    return true;
+                }
+            }
+            next = text.length() + 1;
+            return false;
+        }
+
+        /**
+         * 从指定位置开始查找，会重置匹配器
+         *
+         * @param from 开始位置
+         * @return 是否找到
+         */
+        boolean find(int from) {
+            if (!prefilter.isEnabled()) {
+                return matcher.find(from);
+            }
+            next = from;
+            return find();
+        }
+
+        @Override
+        public int start() {
+            return matcher.start();
+        }
+
+        @Override
+        public int end() {
+            return matcher.end();
+        }
+
+        @Override
+        public String group() {
+            return matcher.group();
+        }
+
+        @Override
+        public int rule() {
+            for (int i = 0; i < ruleGroups.length; i++) {
+                if (matcher.start(ruleGroups[i]) != -1) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package cn.mirrorming.text2date.engine;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 线性时间引擎：RE2 式的非确定性自动机模拟(Pike VM)，与 {@link JdkRegexEngine} 一样最左优先(leftmost-first)，
+ * 从最左的开始位置起，规则文件中靠前的规则优先，规则内部按分支先后和贪婪/懒惰量词取 java.util.regex 会给出的匹配
+ * <p>
+ * 线程按优先级排列，所有开始位置的线程同时推进，同一条指令只保留优先级最高的线程；
+ * 某个线程匹配后，优先级比它低的线程全部丢弃，
+ * 匹配耗时与 文本长度 * 指令数 成正比，不会回溯，也不需要构造完整的 DFA，适合处理不可信的输入
+ * <p>
+ * 规则开头的后行断言按固定长度校验；占有量词和原子分组按贪婪处理，只有在放弃已匹配的字符才能继续时与 JDK 不同；
+ * 其它无法翻译为自动机的规则会破坏线性保证，构造时直接拒绝
+ */
+@Slf4j
+public class LinearRegexEngine implements RegexEngine {
+    private final RuleSet ruleSet;
+    private final RuleProgram program;
+    /**
+     * 能作为匹配开头的字符
+     */
+    private final BitSet startChars = new BitSet(Character.MAX_VALUE + 1);
+    /**
+     * 字符 -> 开头的等价类
+     */
+    private final char[] seedClasses = new char[Character.MAX_VALUE + 1];
+    /**
+     * 等价类 -> 可能从这类字符开始的模式下标(升序)
+     */
+    private final int[][] seeds;
+
+    public LinearRegexEngine(List<String> rules) {
+        long start = System.currentTimeMillis();
+        this.ruleSet = new RuleSet(rules);
+        if (!ruleSet.fallbackPatterns.isEmpty()) {
+            throw new IllegalArgumentException("rule is not supported by linear engine: " + ruleSet.fallbackPatterns.get(0));
+        }
+        List<RuleProgram.Node> trees = new ArrayList<>();
+        for (int rule : ruleSet.rules) {
+            String regex = rules.get(rule);
+            trees.add(AutomatonRegexTranslator.tree(regex.substring(AutomatonRegexTranslator.leadingLookbehindEnd(regex))));
+        }
+        this.program = RuleProgram.compile(trees);
+
+        BitSet[] firsts = new BitSet[trees.size()];
+        BitSet points = new BitSet(Character.MAX_VALUE + 2);
+        for (int pattern = 0; pattern < firsts.length; pattern++) {
+            firsts[pattern] = program.firstChars(pattern);
+            startChars.or(firsts[pattern]);
+            for (int c = firsts[pattern].nextSetBit(0); c >= 0; c = firsts[pattern].nextSetBit(c + 1)) {
+                int end = firsts[pattern].nextClearBit(c);
+                points.set(c);
+                points.set(end);
+                c = end;
+            }
+        }
+        int classCount = 0;
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (points.get(c) && c > 0) {
+                classCount++;
+            }
+            seedClasses[c] = (char) classCount;
+        }
+        List<List<Integer>> seedList = new ArrayList<>();
+        for (int i = 0; i <= classCount; i++) {
+            seedList.add(new ArrayList<>());
+        }
+        int[] representatives = new int[classCount + 1];
+        for (int c = Character.MAX_VALUE; c >= 0; c--) {
+            representatives[seedClasses[c]] = c;
+        }
+        for (int cls = 0; cls <= classCount; cls++) {
+            for (int pattern = 0; pattern < firsts.length; pattern++) {
+                if (firsts[pattern].get(representatives[cls])) {
+                    seedList.get(cls).add(pattern);
+                }
+            }
+        }
+        this.seeds = new int[seedList.size()][];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = seedList.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        long end = System.currentTimeMillis();
+        log.info("linear engine initialized for {} patterns, {} instructions, time used(ms):{}",
+                trees.size(), program.size(), (end - start));
+    }
+
+    @Override
+    public RuleMatcher matcher(CharSequence text) {
+        return new LinearRuleMatcher(text);
+    }
+
+    @Override
+    public int ruleCount() {
+        return ruleSet.ruleCount;
+    }
+
+    class LinearRuleMatcher implements RuleMatcher {
+        private CharSequence text;
+        private final RuleSet.Guards guards;
+        /**
+         * 当前/下一步的线程，按优先级排列：指令与开始位置
+         */
+        private int[] pcs = new int[program.size()];
+        private int[] starts = new int[program.size()];
+        private int[] nextPcs = new int[program.size()];
+        private int[] nextStarts = new int[program.size()];
+        /**
+         * 指令 -> 最近一次加入线程列表的步数，用于去重
+         */
+        private final int[] marks = new int[program.size()];
+        /**
+         * 展开 SPLIT/JUMP 用的栈，每条 SPLIT 最多压入两次
+         */
+        private final int[] stack = new int[program.size() * 2 + 1];
+        private int generation;
+        private int next;
+        private int start = -1;
+        private int end = -1;
+        private int rule = -1;
+
+        LinearRuleMatcher(CharSequence text) {
+            this.text = text;
+            this.guards = ruleSet.new Guards(text);
+        }
+
+        @Override
+        public boolean reset(CharSequence text) {
+            this.text = text;
+            guards.reset(text);
+            next = 0;
+            start = -1;
+            end = -1;
+            rule = -1;
+            return true;
+        }
+
+        @Override
+        public boolean find() {
+            int length = text.length();
+            start = -1;
+            end = -1;
+            rule = -1;
+            if (next > length) {
+                return false;
+            }
+            generation++;
+            int count = 0;
+            for (int i = next; ; i++) {
+                if (count == 0) {
+                    if (start >= 0) {
+                        break;
+                    }
+                    while (i < length && !startChars.get(text.charAt(i))) {
+                        i++;
+                    }
+                }
+                if (i >= length) {
+                    matchAt(count, i);
+                    break;
+                }
+                char c = text.charAt(i);
+                //新的开始位置优先级最低，已经有匹配时不再需要
+                if (start < 0) {
+                    for (int pattern : seeds[seedClasses[c]]) {
+                        if (guards.passes(pattern, i)) {
+                            count = add(pcs, starts, program.entries[pattern], i, count);
+                        }
+                    }
+                }
+                generation++;
+                int nextCount = 0;
+                for (int t = 0; t < count; t++) {
+                    int pc = pcs[t];
+                    if (program.ops[pc] == RuleProgram.MATCH) {
+                        if (i > starts[t]) {
+                            //优先级更低的线程不可能胜出
+                            record(t, i);
+                            break;
+                        }
+                    } else if (program.accepts(pc, c)) {
+                        nextCount = add(nextPcs, nextStarts, pc + 1, starts[t], nextCount);
+                    }
+                }
+                int[] swap = pcs;
+                pcs = nextPcs;
+                nextPcs = swap;
+                swap = starts;
+                starts = nextStarts;
+                nextStarts = swap;
+                count = nextCount;
+            }
+            if (start < 0) {
+                next = length + 1;
+                return false;
+            }
+            next = end;
+            return true;
+        }
+
+        /**
+         * 文本结束时检查剩下的线程
+         */
+        private void matchAt(int count, int i) {
+            for (int t = 0; t < count; t++) {
+                if (program.ops[pcs[t]] == RuleProgram.MATCH && i > starts[t]) {
+                    record(t, i);
+                    return;
+                }
+            }
+        }
+
+        private void record(int t, int i) {
+            start = starts[t];
+            end = i;
+            rule = ruleSet.rules[program.args[pcs[t]]];
+        }
+
+        /**
+         * 展开 SPLIT/JUMP，按优先级把线程加入列表，同一条指令只保留先到的
+         */
+        private int add(int[] targetPcs, int[] targetStarts, int pc, int from, int count) {
+            int top = 0;
+            stack[top++] = pc;
+            while (top > 0) {
+                pc = stack[--top];
+                if (marks[pc] == generation) {
+                    continue;
+                }
+                marks[pc] = generation;
+                switch (program.ops[pc]) {
+                    case RuleProgram.JUMP:
+                        stack[top++] = program.args[pc];
+                        break;
+                    case RuleProgram.SPLIT:
+                        //后进先出，优先的分支后压栈
+                        stack[top++] = program.others[pc];
+                        stack[top++] = program.args[pc];
+                        break;
+                    default:
+                        targetPcs[count] = pc;
+                        targetStarts[count] = from;
+                        count++;
+                        break;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public int start() {
+            return start;
+        }
+
+        @Override
+        public int end() {
+            return end;
+        }
+
+        @Override
+        public String group() {
+            return text.subSequence(start, end).toString();
+        }
+
+        @Override
+        public int rule() {
+            return rule;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package cn.mirrorming.text2date.engine;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 触发字符预过滤：所有规则可能的首字符组成的位图
+ * <p>
+ * 文本中没有任何触发字符时一定不会有匹配，只需一次线性扫描，不用创建匹配器
+ */
+@Slf4j
+public final class Prefilter {
+    /**
+     * 不做过滤
+     */
+    private static final Prefilter NONE = new Prefilter(null);
+
+    /**
+     * 字符位图，null 表示任何文本都可能匹配
+     */
+    private final long[] bitmap;
+
+    private Prefilter(long[] bitmap) {
+        this.bitmap = bitmap;
+    }
+
+    /**
+     * 由规则计算触发字符，规则能匹配空串或者无法分析时不做过滤
+     *
+     * @param rules 规则
+     * @return Prefilter
+     */
+    public static Prefilter of(List<String> rules) {
+        BitSet chars = new BitSet(Character.MAX_VALUE + 1);
+        for (String rule : rules) {
+            BitSet first;
+            try {
+                first = AutomatonRegexTranslator.firstChars(rule.substring(AutomatonRegexTranslator.leadingLookbehindEnd(rule)));
+            } catch (IllegalArgumentException e) {
+                first = null;
+            }
+            if (first == null) {
+                log.debug("prefilter disabled by rule: {}", rule);
+                return NONE;
+            }
+            chars.or(first);
+        }
+        long[] words = chars.toLongArray();
+        long[] bitmap = new long[(Character.MAX_VALUE + 1) / Long.SIZE];
+        System.arraycopy(words, 0, bitmap, 0, words.length);
+        return new Prefilter(bitmap);
+    }
+
+    /**
+     * @param text 文本
+     * @return 文本是否可能包含匹配
+     */
+    public boolean mayMatch(CharSequence text) {
+        if (bitmap == null) {
+            return true;
+        }
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if ((bitmap[c >>> 6] & (1L << c)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 下一个可能作为匹配开头的位置
+     *
+     * @param text 文本
+     * @param from 开始位置
+     * @return 位置，没有时返回 -1
+     */
+    public int nextCandidate(CharSequence text, int from) {
+        int length = text.length();
+        if (bitmap == null) {
+            return from <= length ? from : -1;
+        }
+        for (int i = from; i < length; i++) {
+            char c = text.charAt(i);
+            if ((bitmap[c >>> 6] & (1L << c)) != 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return 是否会过滤，规则能匹配空串时为 false
+     */
+    public boolean isEnabled() {
+        return bitmap != null;
+    }
+
+    /**
+     * @return 触发字符数量，不做过滤时返回 -1
+     */
+    public int triggerCount() {
+        if (bitmap == null) {
+            return -1;
+        }
+        int count = 0;
+        for (long word : bitmap) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
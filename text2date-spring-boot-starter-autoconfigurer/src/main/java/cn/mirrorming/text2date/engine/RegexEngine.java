@@ -0,0 +1,20 @@
+package cn.mirrorming.text2date.engine;
+
+/**
+ * 规则匹配引擎，由 *.regex 文件中的一组规则编译而成
+ */
+public interface RegexEngine {
+
+    /**
+     * 创建匹配器
+     *
+     * @param text 需要匹配的文本
+     * @return RuleMatcher
+     */
+    RuleMatcher matcher(CharSequence text);
+
+    /**
+     * @return 规则数量
+     */
+    int ruleCount();
+}
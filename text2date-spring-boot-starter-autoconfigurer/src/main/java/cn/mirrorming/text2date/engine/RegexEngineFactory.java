@@ -0,0 +1,18 @@
+package cn.mirrorming.text2date.engine;
+
+import java.util.List;
+
+/**
+ * 匹配引擎工厂，自定义引擎时实现此接口并注册为 Spring Bean 即可替换 {@link RegexEngineType}
+ */
+@FunctionalInterface
+public interface RegexEngineFactory {
+
+    /**
+     * 编译规则
+     *
+     * @param rules 规则文件中去重后的规则
+     * @return RegexEngine
+     */
+    RegexEngine create(List<String> rules);
+}
@@ -0,0 +1,45 @@
+package cn.mirrorming.text2date.engine;
+
+import java.util.List;
+
+/**
+ * 内置的匹配引擎，通过 spring.text2date.engine 选择
+ */
+public enum RegexEngineType implements RegexEngineFactory {
+    /**
+     * java.util.regex，最左优先，与规则文件的书写顺序一致
+     */
+    JDK {
+        @Override
+        public RegexEngine create(List<String> rules) {
+            return new JdkRegexEngine(rules);
+        }
+    },
+    /**
+     * 确定性自动机，最左优先，结果与 JDK 相同，匹配最快，初始化较慢
+     */
+    DFA {
+        @Override
+        public RegexEngine create(List<String> rules) {
+            return new DfaRegexEngine(rules);
+        }
+    },
+    /**
+     * 非确定性自动机模拟(RE2 式)，最左优先，结果与 JDK 相同，保证线性时间
+     */
+    LINEAR {
+        @Override
+        public RegexEngine create(List<String> rules) {
+            return new LinearRegexEngine(rules);
+        }
+    },
+    /**
+     * 与 DFA 相同，自动机在构建时由规则文件生成，启动时不用再编译；规则与构建时不一致时在运行时编译
+     */
+    GENERATED {
+        @Override
+        public RegexEngine create(List<String> rules) {
+            return GeneratedRuleDfa.engine(rules);
+        }
+    }
+}
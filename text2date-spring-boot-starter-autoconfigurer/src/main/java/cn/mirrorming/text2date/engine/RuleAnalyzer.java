@@ -0,0 +1,26 @@
+package cn.mirrorming.text2date.engine;
+
+import java.util.BitSet;
+
+/**
+ * 规则的静态分析，结果只依赖规则本身，可以在加载时预先计算
+ */
+public final class RuleAnalyzer {
+
+    private RuleAnalyzer() {
+    }
+
+    /**
+     * 规则匹配到的文本中可能出现的字符，开头的后行断言不属于匹配文本，不计算在内
+     *
+     * @param rule 规则
+     * @return 字符集合，无法分析时返回 null
+     */
+    public static BitSet alphabet(String rule) {
+        try {
+            return AutomatonRegexTranslator.alphabet(rule.substring(AutomatonRegexTranslator.leadingLookbehindEnd(rule)));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
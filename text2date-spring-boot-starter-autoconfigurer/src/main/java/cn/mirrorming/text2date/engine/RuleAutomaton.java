@@ -0,0 +1,246 @@
+package cn.mirrorming.text2date.engine;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * 多规则确定性自动机：每个状态记录同时到达的各条规则，接受状态带上命中的规则下标
+ * <p>
+ * 转移表按字符等价类压缩，step 只是一次数组下标运算
+ */
+final class RuleAutomaton implements RuleDfa {
+    /**
+     * 字符 -> 等价类
+     */
+    private final char[] classes;
+    private final int classCount;
+    /**
+     * state * classCount + class -> 下一个状态，-1 表示死状态
+     */
+    private final int[] transitions;
+    /**
+     * 状态 -> 接受的规则下标(升序)
+     */
+    private final int[][] accept;
+
+    private RuleAutomaton(char[] classes, int classCount, int[] transitions, int[][] accept) {
+        this.classes = classes;
+        this.classCount = classCount;
+        this.transitions = transitions;
+        this.accept = accept;
+    }
+
+    @Override
+    public int step(int state, char c) {
+        return transitions[state * classCount + classes[c]];
+    }
+
+    @Override
+    public int[] accept(int state) {
+        return accept[state];
+    }
+
+    @Override
+    public int size() {
+        return accept.length;
+    }
+
+    /**
+     * 子集构造，只展开存活的 (规则, 状态) 对
+     *
+     * @param nfa 各条规则合并后的自动机
+     * @return RuleAutomaton
+     */
+    static RuleAutomaton build(RuleNfa nfa) {
+        BitSet points = new BitSet(Character.MAX_VALUE + 2);
+        points.set(0);
+        for (int[] move : nfa.moves) {
+            for (int j = 0; j < move.length; j += 3) {
+                points.set(move[j]);
+                points.set(move[j + 1] + 1);
+            }
+        }
+
+        char[] classes = new char[Character.MAX_VALUE + 1];
+        int classCount = 0;
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (points.get(c) && c > 0) {
+                classCount++;
+            }
+            classes[c] = (char) classCount;
+        }
+        classCount++;
+
+        // 每个状态的转移：[最小等价类, 最大等价类, 目标]
+        int[][] moves = new int[nfa.size()][];
+        for (int i = 0; i < nfa.size(); i++) {
+            int[] move = nfa.moves[i].clone();
+            for (int j = 0; j < move.length; j += 3) {
+                move[j] = classes[move[j]];
+                move[j + 1] = classes[move[j + 1]];
+            }
+            moves[i] = move;
+        }
+        int[] initial = nfa.initial.clone();
+
+        Map<StateSet, Integer> index = new HashMap<>();
+        List<int[]> sets = new ArrayList<>();
+        List<int[]> rows = new ArrayList<>();
+        Queue<Integer> queue = new ArrayDeque<>();
+        Arrays.sort(initial);
+        index.put(new StateSet(initial), 0);
+        sets.add(initial);
+        queue.add(0);
+        int[][] buckets = new int[classCount][];
+        int[] sizes = new int[classCount];
+        while (!queue.isEmpty()) {
+            int current = queue.poll();
+            Arrays.fill(sizes, 0);
+            for (int member : sets.get(current)) {
+                int[] move = moves[member];
+                for (int j = 0; j < move.length; j += 3) {
+                    for (int cls = move[j]; cls <= move[j + 1]; cls++) {
+                        if (buckets[cls] == null) {
+                            buckets[cls] = new int[8];
+                        } else if (sizes[cls] == buckets[cls].length) {
+                            buckets[cls] = Arrays.copyOf(buckets[cls], sizes[cls] * 2);
+                        }
+                        buckets[cls][sizes[cls]++] = move[j + 2];
+                    }
+                }
+            }
+            int[] row = new int[classCount];
+            for (int cls = 0; cls < classCount; cls++) {
+                if (sizes[cls] == 0) {
+                    row[cls] = -1;
+                    continue;
+                }
+                int[] target = Arrays.copyOf(buckets[cls], sizes[cls]);
+                Arrays.sort(target);
+                StateSet key = new StateSet(target);
+                Integer next = index.get(key);
+                if (next == null) {
+                    next = sets.size();
+                    index.put(key, next);
+                    sets.add(target);
+                    queue.add(next);
+                }
+                row[cls] = next;
+            }
+            rows.add(row);
+        }
+
+        int[] transitions = new int[rows.size() * classCount];
+        int[][] accept = new int[rows.size()][];
+        for (int i = 0; i < rows.size(); i++) {
+            System.arraycopy(rows.get(i), 0, transitions, i * classCount, classCount);
+            accept[i] = Arrays.stream(sets.get(i))
+                    .filter(member -> nfa.accepting[member])
+                    .map(member -> nfa.owners[member])
+                    .sorted()
+                    .distinct()
+                    .toArray();
+        }
+        return new RuleAutomaton(classes, classCount, transitions, accept);
+    }
+
+    /**
+     * 写入快照：等价类按连续区间写出，转移表只写出非死状态的转移
+     *
+     * @param data 输出
+     * @throws IOException 写出失败
+     * @see RuleSnapshot
+     */
+    void write(DataOutputStream data) throws IOException {
+        data.writeInt(classCount);
+        int from = 0;
+        for (int c = 1; c <= classes.length; c++) {
+            if (c == classes.length || classes[c] != classes[from]) {
+                data.writeChar(classes[from]);
+                data.writeInt(c - from);
+                from = c;
+            }
+        }
+        data.writeInt(accept.length);
+        for (int state = 0; state < accept.length; state++) {
+            int count = 0;
+            for (int cls = 0; cls < classCount; cls++) {
+                if (transitions[state * classCount + cls] != -1) {
+                    count++;
+                }
+            }
+            data.writeInt(count);
+            for (int cls = 0; cls < classCount; cls++) {
+                int next = transitions[state * classCount + cls];
+                if (next != -1) {
+                    data.writeChar(cls);
+                    data.writeInt(next);
+                }
+            }
+            RuleSnapshot.writeInts(data, accept[state]);
+        }
+    }
+
+    /**
+     * 从快照读出，与 {@link #write(DataOutputStream)} 对应
+     *
+     * @param data 输入
+     * @return RuleAutomaton
+     * @throws IOException 读取失败
+     */
+    static RuleAutomaton read(DataInputStream data) throws IOException {
+        int classCount = data.readInt();
+        char[] classes = new char[Character.MAX_VALUE + 1];
+        for (int c = 0; c < classes.length; ) {
+            char cls = data.readChar();
+            int length = data.readInt();
+            Arrays.fill(classes, c, c + length, cls);
+            c += length;
+        }
+        int size = data.readInt();
+        int[] transitions = new int[size * classCount];
+        Arrays.fill(transitions, -1);
+        int[][] accept = new int[size][];
+        for (int state = 0; state < size; state++) {
+            int count = data.readInt();
+            for (int i = 0; i < count; i++) {
+                int cls = data.readChar();
+                transitions[state * classCount + cls] = data.readInt();
+            }
+            accept[state] = RuleSnapshot.readInts(data);
+        }
+        return new RuleAutomaton(classes, classCount, transitions, accept);
+    }
+
+    /**
+     * 子集构造中的状态集合
+     */
+    private static final class StateSet {
+        private final int[] members;
+        private final int hash;
+
+        StateSet(int[] members) {
+            this.members = members;
+            this.hash = Arrays.hashCode(members);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StateSet && Arrays.equals(members, ((StateSet) o).members);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
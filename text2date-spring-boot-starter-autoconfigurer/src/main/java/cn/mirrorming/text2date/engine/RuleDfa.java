@@ -0,0 +1,27 @@
+package cn.mirrorming.text2date.engine;
+
+/**
+ * {@link DfaRegexEngine} 使用的确定性自动机，初始状态为 0
+ * <p>
+ * 运行时构造的见 {@link RuleAutomaton}，构建时生成的见 {@link GeneratedRuleDfa}
+ */
+interface RuleDfa {
+
+    /**
+     * @param state 当前状态
+     * @param c     输入字符
+     * @return 下一个状态，-1 表示不可能再匹配
+     */
+    int step(int state, char c);
+
+    /**
+     * @param state 状态
+     * @return 接受的模式下标(升序)
+     */
+    int[] accept(int state);
+
+    /**
+     * @return 状态数
+     */
+    int size();
+}
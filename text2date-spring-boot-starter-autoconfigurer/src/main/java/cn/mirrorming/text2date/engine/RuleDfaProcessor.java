@@ -0,0 +1,303 @@
+package cn.mirrorming.text2date.engine;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 注解处理器：把 {@link RuleFiles} 指定的规则文件编译为 {@link GeneratedRuleDfa} 的子类，
+ * 每个状态一个方法，状态转移写成 switch，规则文件仍然是唯一的来源；
+ * 同时把转移表写成 {@link RuleSnapshot} 快照，供 DFA 引擎启动时直接读取
+ * <p>
+ * 规则文件从 classes 目录读取，需要先执行 process-resources；
+ * 处理器本身要先单独编译，见 pom.xml 中 maven-compiler-plugin 的配置
+ */
+@SupportedAnnotationTypes("cn.mirrorming.text2date.engine.RuleFiles")
+public class RuleDfaProcessor extends AbstractProcessor {
+    private static final String PACKAGE = "cn.mirrorming.text2date.engine";
+    /**
+     * 每个分派方法最多的状态数，避免超过方法长度限制
+     */
+    private static final int STATES_PER_METHOD = 1024;
+    /**
+     * 宽度不超过此值的字符区间展开为 case，否则用区间判断
+     */
+    private static final int MAX_CASE_RANGE = 16;
+    /**
+     * 字符串常量拆分的长度
+     */
+    private static final int LITERAL_CHUNK = 8192;
+
+    /**
+     * 生成的类名 -> 规则文件
+     */
+    private final Map<String, String> generated = new LinkedHashMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        int count = generated.size();
+        for (Element element : roundEnv.getElementsAnnotatedWith(RuleFiles.class)) {
+            for (String file : element.getAnnotation(RuleFiles.class).value()) {
+                String className = className(file);
+                if (generated.containsKey(className)) {
+                    continue;
+                }
+                try {
+                    generate(className, file, readRules(file));
+                    generated.put(className, file);
+                } catch (IOException | RuntimeException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                            "can not generate automaton for " + file + ": " + e, element);
+                }
+            }
+        }
+        //索引只能生成一次，规则文件都在同一轮中声明
+        if (count > 0 || generated.isEmpty()) {
+            return true;
+        }
+        try {
+            generateIndex();
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "can not generate automata index: " + e);
+        }
+        return true;
+    }
+
+    /**
+     * 与各识别器读取规则文件的方式一致：去掉首尾空白、空行和注释，去重
+     */
+    private List<String> readRules(String file) throws IOException {
+        FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", file);
+        try (InputStream in = resource.openInputStream()) {
+            return IOUtils.readLines(in, "UTF-8")
+                    .stream()
+                    .map(StringUtils::stripToNull)
+                    .filter(item -> StringUtils.isNotEmpty(item) && !item.startsWith("#")).distinct()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private void generate(String className, String file, List<String> rules) throws IOException {
+        RuleSet ruleSet = new RuleSet(rules);
+        RuleAutomaton dfa = ruleSet.automata.isEmpty() ? null : RuleAutomaton.build(new RuleNfa(ruleSet.automata));
+        FileObject snapshot = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", RuleSnapshot.resourceName(rules));
+        try (OutputStream out = new BufferedOutputStream(snapshot.openOutputStream())) {
+            RuleSnapshot.write(rules, ruleSet, dfa, out);
+        }
+        int size = dfa == null ? 1 : dfa.size();
+
+        StringBuilder accept = new StringBuilder();
+        for (int state = 0; state < size; state++) {
+            if (state > 0) {
+                accept.append(';');
+            }
+            if (dfa != null) {
+                accept.append(join(dfa.accept(state)));
+            }
+        }
+
+        StringBuilder src = new StringBuilder();
+        src.append("package ").append(PACKAGE).append(";\n\n");
+        src.append("/**\n * 由 RuleDfaProcessor 根据 ").append(file).append(" 生成，不要手动修改\n */\n");
+        src.append("final class ").append(className).append(" extends GeneratedRuleDfa {\n");
+        src.append("    static final String[] RULES = ").append(literals(rules)).append(";\n\n");
+        src.append("    ").append(className).append("() {\n");
+        src.append("        super(RULES.length,\n");
+        src.append("                new int[]{").append(join(ruleSet.rules)).append("},\n");
+        src.append("                new int[]{").append(join(ruleSet.guardOf)).append("},\n");
+        src.append("                ").append(literals(ruleSet.guards.stream().map(Object::toString).collect(Collectors.toList()))).append(",\n");
+        src.append("                ").append(literals(ruleSet.fallbackPatterns)).append(",\n");
+        src.append("                new int[]{").append(join(ruleSet.fallbackRules)).append("},\n");
+        src.append("                ").append(literals(chunks(accept.toString()))).append(");\n");
+        src.append("    }\n\n");
+
+        src.append("    @Override\n");
+        src.append("    public int step(int state, char c) {\n");
+        src.append("        switch (state / ").append(STATES_PER_METHOD).append(") {\n");
+        for (int part = 0; part * STATES_PER_METHOD < size; part++) {
+            src.append("            case ").append(part).append(":\n");
+            src.append("                return step").append(part).append("(state, c);\n");
+        }
+        src.append("            default:\n                return -1;\n        }\n    }\n");
+
+        for (int part = 0; part * STATES_PER_METHOD < size; part++) {
+            src.append("\n    private static int step").append(part).append("(int state, char c) {\n");
+            src.append("        switch (state) {\n");
+            for (int state = part * STATES_PER_METHOD; state < Math.min(size, (part + 1) * STATES_PER_METHOD); state++) {
+                src.append("            case ").append(state).append(":\n");
+                src.append("                return s").append(state).append("(c);\n");
+            }
+            src.append("            default:\n                return -1;\n        }\n    }\n");
+        }
+
+        for (int state = 0; state < size; state++) {
+            appendState(src, state, dfa);
+        }
+        src.append("}\n");
+
+        JavaFileObject source = processingEnv.getFiler().createSourceFile(PACKAGE + "." + className);
+        try (Writer writer = source.openWriter()) {
+            writer.write(src.toString());
+        }
+    }
+
+    /**
+     * 一个状态的转移：相同目标的连续字符合并成区间，窄区间展开为 case，宽区间用范围判断
+     */
+    private void appendState(StringBuilder src, int state, RuleDfa dfa) {
+        List<int[]> ranges = new ArrayList<>();
+        if (dfa != null) {
+            int from = 0;
+            int target = dfa.step(state, (char) 0);
+            for (int c = 1; c <= Character.MAX_VALUE + 1; c++) {
+                int next = c > Character.MAX_VALUE ? -2 : dfa.step(state, (char) c);
+                if (next != target) {
+                    if (target >= 0) {
+                        ranges.add(new int[]{from, c - 1, target});
+                    }
+                    from = c;
+                    target = next;
+                }
+            }
+        }
+        src.append("\n    private static int s").append(state).append("(char c) {\n");
+        List<int[]> wide = new ArrayList<>();
+        Map<Integer, List<int[]>> cases = new LinkedHashMap<>();
+        for (int[] range : ranges) {
+            if (range[1] - range[0] + 1 > MAX_CASE_RANGE) {
+                wide.add(range);
+            } else {
+                cases.computeIfAbsent(range[2], key -> new ArrayList<>()).add(range);
+            }
+        }
+        if (!cases.isEmpty()) {
+            src.append("        switch (c) {\n");
+            for (Map.Entry<Integer, List<int[]>> entry : cases.entrySet()) {
+                for (int[] range : entry.getValue()) {
+                    for (int c = range[0]; c <= range[1]; c++) {
+                        src.append("            case ").append(charLiteral(c)).append(":\n");
+                    }
+                }
+                src.append("                return ").append(entry.getKey()).append(";\n");
+            }
+            src.append("            default:\n                break;\n        }\n");
+        }
+        for (int[] range : wide) {
+            src.append("        if (c >= ").append(charLiteral(range[0])).append(" && c <= ").append(charLiteral(range[1])).append(") {\n");
+            src.append("            return ").append(range[2]).append(";\n        }\n");
+        }
+        src.append("        return -1;\n    }\n");
+    }
+
+    private void generateIndex() throws IOException {
+        StringBuilder src = new StringBuilder();
+        src.append("package ").append(PACKAGE).append(";\n\n");
+        src.append("import java.util.Arrays;\nimport java.util.List;\n\n");
+        src.append("/**\n * 由 RuleDfaProcessor 生成，不要手动修改\n */\n");
+        src.append("final class GeneratedRuleDfas {\n\n");
+        src.append("    private GeneratedRuleDfas() {\n    }\n\n");
+        src.append("    static GeneratedRuleDfa find(List<String> rules) {\n");
+        for (Map.Entry<String, String> entry : generated.entrySet()) {
+            src.append("        // ").append(entry.getValue()).append('\n');
+            src.append("        if (Arrays.asList(").append(entry.getKey()).append(".RULES).equals(rules)) {\n");
+            src.append("            return new ").append(entry.getKey()).append("();\n        }\n");
+        }
+        src.append("        return null;\n    }\n}\n");
+        JavaFileObject source = processingEnv.getFiler().createSourceFile(PACKAGE + ".GeneratedRuleDfas");
+        try (Writer writer = source.openWriter()) {
+            writer.write(src.toString());
+        }
+    }
+
+    /**
+     * time.regex -> TimeRuleDfa
+     */
+    private static String className(String file) {
+        String name = file.replaceAll("^.*/", "").replaceAll("\\.regex$", "").replaceAll("[^A-Za-z0-9]", "");
+        return StringUtils.capitalize(name) + "RuleDfa";
+    }
+
+    private static List<String> chunks(String text) {
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += LITERAL_CHUNK) {
+            chunks.add(text.substring(i, Math.min(text.length(), i + LITERAL_CHUNK)));
+        }
+        return chunks;
+    }
+
+    private static String join(int[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(values[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 字符串数组常量，非 ASCII 字符转义，生成的源码与编码无关
+     */
+    private static String literals(List<String> values) {
+        StringBuilder sb = new StringBuilder("new String[]{");
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                sb.append(",\n            ");
+            }
+            sb.append('"');
+            for (char c : values.get(i).toCharArray()) {
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else if (c < 0x20 || c == 0x7f) {
+                    sb.append(String.format("\\%03o", (int) c));
+                } else if (c > 0x7f) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * 控制字符、引号和反斜杠不能写成 unicode 转义，否则会在词法分析之前被替换
+     */
+    private static String charLiteral(int c) {
+        if (c < 0x20 || c == 0x7f) {
+            return String.format("'\\%03o'", c);
+        }
+        if (c == '\'' || c == '\\') {
+            return "'\\" + (char) c + "'";
+        }
+        return c < 0x7f ? "'" + (char) c + "'" : String.format("'\\u%04x'", c);
+    }
+}
@@ -0,0 +1,19 @@
+package cn.mirrorming.text2date.engine;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 构建时为这些规则文件生成自动机代码，见 {@link RuleDfaProcessor}
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target({ElementType.PACKAGE, ElementType.TYPE})
+public @interface RuleFiles {
+
+    /**
+     * @return classpath 根目录下的规则文件名，如 time.regex
+     */
+    String[] value();
+}
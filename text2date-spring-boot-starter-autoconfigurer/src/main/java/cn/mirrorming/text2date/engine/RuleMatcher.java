@@ -0,0 +1,44 @@
+package cn.mirrorming.text2date.engine;
+
+/**
+ * 规则匹配器，用法与 {@link java.util.regex.Matcher} 一致
+ */
+public interface RuleMatcher {
+
+    /**
+     * 查找下一个匹配
+     *
+     * @return 是否找到
+     */
+    boolean find();
+
+    /**
+     * @return 匹配开始位置
+     */
+    int start();
+
+    /**
+     * @return 匹配结束位置(不包含)
+     */
+    int end();
+
+    /**
+     * @return 匹配到的文本
+     */
+    String group();
+
+    /**
+     * @return 命中的规则下标，对应规则文件中去重后的行序
+     */
+    int rule();
+
+    /**
+     * 改为匹配新的文本，从头开始查找，复用匹配器内部的状态
+     *
+     * @param text 需要匹配的文本
+     * @return 是否支持重置，不支持时需要重新创建匹配器
+     */
+    default boolean reset(CharSequence text) {
+        return false;
+    }
+}
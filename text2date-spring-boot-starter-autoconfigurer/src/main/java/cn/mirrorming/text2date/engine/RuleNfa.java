@@ -0,0 +1,70 @@
+package cn.mirrorming.text2date.engine;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.State;
+import dk.brics.automaton.Transition;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多条规则的自动机合并编号后的非确定性自动机
+ * <p>
+ * 每个状态只属于一条规则，到达接受状态即表示该规则匹配
+ */
+final class RuleNfa {
+    /**
+     * 状态 -> 所属的模式下标
+     */
+    final int[] owners;
+    final boolean[] accepting;
+    /**
+     * 模式下标 -> 初始状态
+     */
+    final int[] initial;
+    /**
+     * 状态 -> 转移 [最小字符, 最大字符, 目标, ...]，按字符升序
+     */
+    final int[][] moves;
+
+    RuleNfa(List<Automaton> automata) {
+        List<State> states = new ArrayList<>();
+        List<Integer> ownerList = new ArrayList<>();
+        Map<State, Integer> ids = new IdentityHashMap<>();
+        this.initial = new int[automata.size()];
+        for (int i = 0; i < automata.size(); i++) {
+            Automaton automaton = automata.get(i);
+            for (State state : automaton.getStates()) {
+                ids.put(state, states.size());
+                states.add(state);
+                ownerList.add(i);
+            }
+            initial[i] = ids.get(automaton.getInitialState());
+        }
+        this.owners = ownerList.stream().mapToInt(Integer::intValue).toArray();
+        this.accepting = new boolean[states.size()];
+        this.moves = new int[states.size()][];
+        for (int i = 0; i < states.size(); i++) {
+            State state = states.get(i);
+            accepting[i] = state.isAccept();
+            List<Transition> transitions = state.getSortedTransitions(false);
+            int[] move = new int[transitions.size() * 3];
+            for (int j = 0; j < transitions.size(); j++) {
+                Transition t = transitions.get(j);
+                move[j * 3] = t.getMin();
+                move[j * 3 + 1] = t.getMax();
+                move[j * 3 + 2] = ids.get(t.getDest());
+            }
+            moves[i] = move;
+        }
+    }
+
+    /**
+     * @return 状态数
+     */
+    int size() {
+        return owners.length;
+    }
+}
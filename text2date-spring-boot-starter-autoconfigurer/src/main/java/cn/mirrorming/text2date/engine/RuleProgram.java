@@ -0,0 +1,275 @@
+package cn.mirrorming.text2date.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link LinearRegexEngine} 执行的指令序列：各条规则的语法树编译为带优先级的 Thompson 自动机(与 RE2 相同)，
+ * 分支指令先走的一边就是 java.util.regex 回溯时先尝试的一边
+ * <p>
+ * 指令：CHARS 消耗一个在字符区间内的字符，SPLIT 按先后两个分支，JUMP 跳转，MATCH 规则匹配结束
+ */
+final class RuleProgram {
+    static final int CHARS = 0;
+    static final int SPLIT = 1;
+    static final int JUMP = 2;
+    static final int MATCH = 3;
+
+    /**
+     * 指令 -> 操作码
+     */
+    final int[] ops;
+    /**
+     * CHARS：字符区间 [最小, 最大, ...] 在 ranges 中的下标；SPLIT：优先的分支；JUMP：目标；MATCH：模式下标
+     */
+    final int[] args;
+    /**
+     * SPLIT：另一个分支
+     */
+    final int[] others;
+    final int[][] ranges;
+    /**
+     * 模式下标 -> 入口指令
+     */
+    final int[] entries;
+
+    private RuleProgram(int[] ops, int[] args, int[] others, int[][] ranges, int[] entries) {
+        this.ops = ops;
+        this.args = args;
+        this.others = others;
+        this.ranges = ranges;
+        this.entries = entries;
+    }
+
+    /**
+     * @param trees 各模式的语法树，见 {@link AutomatonRegexTranslator#tree(String)}
+     * @return RuleProgram
+     */
+    static RuleProgram compile(List<Node> trees) {
+        Builder builder = new Builder();
+        int[] entries = new int[trees.size()];
+        for (int i = 0; i < trees.size(); i++) {
+            entries[i] = builder.size();
+            builder.emit(trees.get(i));
+            builder.add(MATCH, i, 0);
+        }
+        return new RuleProgram(builder.ops.stream().mapToInt(Integer::intValue).toArray(),
+                builder.args.stream().mapToInt(Integer::intValue).toArray(),
+                builder.others.stream().mapToInt(Integer::intValue).toArray(),
+                builder.ranges.toArray(new int[0][]), entries);
+    }
+
+    /**
+     * @return 指令数
+     */
+    int size() {
+        return ops.length;
+    }
+
+    /**
+     * @param pc CHARS 指令
+     * @param c  字符
+     * @return 是否在字符区间内
+     */
+    boolean accepts(int pc, char c) {
+        int[] range = ranges[args[pc]];
+        int low = 0;
+        int high = range.length / 2 - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (c < range[mid * 2]) {
+                high = mid - 1;
+            } else if (c > range[mid * 2 + 1]) {
+                low = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param pattern 模式下标
+     * @return 匹配的第一个字符可能是哪些
+     */
+    BitSet firstChars(int pattern) {
+        BitSet result = new BitSet(Character.MAX_VALUE + 1);
+        boolean[] visited = new boolean[ops.length];
+        List<Integer> stack = new ArrayList<>(Collections.singletonList(entries[pattern]));
+        while (!stack.isEmpty()) {
+            int pc = stack.remove(stack.size() - 1);
+            if (visited[pc]) {
+                continue;
+            }
+            visited[pc] = true;
+            switch (ops[pc]) {
+                case CHARS:
+                    int[] range = ranges[args[pc]];
+                    for (int j = 0; j < range.length; j += 2) {
+                        result.set(range[j], range[j + 1] + 1);
+                    }
+                    break;
+                case SPLIT:
+                    stack.add(args[pc]);
+                    stack.add(others[pc]);
+                    break;
+                case JUMP:
+                    stack.add(args[pc]);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 规则的语法树：字符集合、连接、分支(按先后)、重复
+     */
+    static final class Node {
+        final int kind;
+        final BitSet chars;
+        final List<Node> children;
+        final int min;
+        /**
+         * 最多重复次数，-1 表示不限
+         */
+        final int max;
+        final boolean greedy;
+
+        private static final int KIND_CHARS = 0;
+        private static final int KIND_CONCAT = 1;
+        private static final int KIND_ALTERNATE = 2;
+        private static final int KIND_REPEAT = 3;
+
+        private Node(int kind, BitSet chars, List<Node> children, int min, int max, boolean greedy) {
+            this.kind = kind;
+            this.chars = chars;
+            this.children = children;
+            this.min = min;
+            this.max = max;
+            this.greedy = greedy;
+        }
+
+        static Node chars(BitSet chars) {
+            return new Node(KIND_CHARS, (BitSet) chars.clone(), Collections.emptyList(), 1, 1, true);
+        }
+
+        static Node concat(List<Node> children) {
+            return children.size() == 1 ? children.get(0) : new Node(KIND_CONCAT, null, children, 1, 1, true);
+        }
+
+        static Node alternate(List<Node> children) {
+            return children.size() == 1 ? children.get(0) : new Node(KIND_ALTERNATE, null, children, 1, 1, true);
+        }
+
+        static Node repeat(Node child, int min, int max, boolean greedy) {
+            return new Node(KIND_REPEAT, null, Collections.singletonList(child), min, max, greedy);
+        }
+    }
+
+    private static final class Builder {
+        final List<Integer> ops = new ArrayList<>();
+        final List<Integer> args = new ArrayList<>();
+        final List<Integer> others = new ArrayList<>();
+        final List<int[]> ranges = new ArrayList<>();
+
+        int size() {
+            return ops.size();
+        }
+
+        int add(int op, int arg, int other) {
+            ops.add(op);
+            args.add(arg);
+            others.add(other);
+            return ops.size() - 1;
+        }
+
+        void patch(int pc, int arg, int other) {
+            args.set(pc, arg);
+            others.set(pc, other);
+        }
+
+        void emit(Node node) {
+            switch (node.kind) {
+                case Node.KIND_CHARS:
+                    ranges.add(ranges(node.chars));
+                    add(CHARS, ranges.size() - 1, 0);
+                    break;
+                case Node.KIND_CONCAT:
+                    node.children.forEach(this::emit);
+                    break;
+                case Node.KIND_ALTERNATE:
+                    alternate(node.children);
+                    break;
+                default:
+                    repeat(node.children.get(0), node.min, node.max, node.greedy);
+                    break;
+            }
+        }
+
+        private void alternate(List<Node> children) {
+            List<Integer> jumps = new ArrayList<>();
+            for (int i = 0; i < children.size() - 1; i++) {
+                int split = add(SPLIT, 0, 0);
+                emit(children.get(i));
+                jumps.add(add(JUMP, 0, 0));
+                patch(split, split + 1, size());
+            }
+            emit(children.get(children.size() - 1));
+            for (int jump : jumps) {
+                patch(jump, size(), 0);
+            }
+        }
+
+        private void repeat(Node child, int min, int max, boolean greedy) {
+            for (int i = 0; i < min; i++) {
+                emit(child);
+            }
+            if (max < 0) {
+                int split = add(SPLIT, 0, 0);
+                emit(child);
+                add(JUMP, split, 0);
+                branch(split, split + 1, size(), greedy);
+                return;
+            }
+            List<Integer> splits = new ArrayList<>();
+            for (int i = min; i < max; i++) {
+                splits.add(add(SPLIT, 0, 0));
+                emit(child);
+            }
+            for (int split : splits) {
+                branch(split, split + 1, size(), greedy);
+            }
+        }
+
+        /**
+         * 贪婪时先进入重复，懒惰时先跳过
+         */
+        private void branch(int split, int body, int out, boolean greedy) {
+            if (greedy) {
+                patch(split, body, out);
+            } else {
+                patch(split, out, body);
+            }
+        }
+
+        private static int[] ranges(BitSet chars) {
+            int[] result = new int[16];
+            int count = 0;
+            for (int low = chars.nextSetBit(0); low >= 0 && low <= Character.MAX_VALUE; ) {
+                int high = chars.nextClearBit(low) - 1;
+                if (count + 2 > result.length) {
+                    result = Arrays.copyOf(result, result.length * 2);
+                }
+                result[count++] = low;
+                result[count++] = Math.min(high, Character.MAX_VALUE);
+                low = chars.nextSetBit(high + 1);
+            }
+            return Arrays.copyOf(result, count);
+        }
+    }
+}
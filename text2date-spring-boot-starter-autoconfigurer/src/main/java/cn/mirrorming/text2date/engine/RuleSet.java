@@ -0,0 +1,138 @@
+package cn.mirrorming.text2date.engine;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RegExp;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 翻译为自动机后的规则集合，供 {@link DfaRegexEngine} 和 {@link LinearRegexEngine} 共用
+ * <p>
+ * 规则开头的后行断言拆出来作为前置条件，无法翻译的规则记录在 fallbackPatterns 中
+ */
+@Slf4j
+final class RuleSet {
+    final int ruleCount;
+    final List<Automaton> automata = new ArrayList<>();
+    /**
+     * 自动机中的模式下标 -> 规则下标
+     */
+    final int[] rules;
+    /**
+     * 自动机中的模式下标 -> 前置断言下标，-1 表示没有
+     */
+    final int[] guardOf;
+    final List<Pattern> guards = new ArrayList<>();
+    final List<String> fallbackPatterns = new ArrayList<>();
+    /**
+     * 回退规则下标 -> 规则下标
+     */
+    final int[] fallbackRules;
+
+    RuleSet(List<String> ruleList) {
+        this.ruleCount = ruleList.size();
+        List<Integer> ruleIndexes = new ArrayList<>();
+        List<Integer> guardIndexes = new ArrayList<>();
+        List<String> guardList = new ArrayList<>();
+        List<Integer> fallbackIndexes = new ArrayList<>();
+        for (int i = 0; i < ruleList.size(); i++) {
+            String rule = ruleList.get(i);
+            int guardEnd = AutomatonRegexTranslator.leadingLookbehindEnd(rule);
+            try {
+                automata.add(new RegExp(AutomatonRegexTranslator.translate(rule.substring(guardEnd))).toAutomaton(false));
+            } catch (IllegalArgumentException e) {
+                log.debug("rule can not be translated to automaton: {}", rule);
+                fallbackPatterns.add(rule);
+                fallbackIndexes.add(i);
+                continue;
+            }
+            ruleIndexes.add(i);
+            if (guardEnd > 0) {
+                String guard = rule.substring(0, guardEnd);
+                if (!guardList.contains(guard)) {
+                    guardList.add(guard);
+                }
+                guardIndexes.add(guardList.indexOf(guard));
+            } else {
+                guardIndexes.add(-1);
+            }
+        }
+        guardList.forEach(guard -> guards.add(Pattern.compile(guard)));
+        this.rules = ruleIndexes.stream().mapToInt(Integer::intValue).toArray();
+        this.guardOf = guardIndexes.stream().mapToInt(Integer::intValue).toArray();
+        this.fallbackRules = fallbackIndexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 由构建时生成的数据恢复，不包含自动机
+     */
+    RuleSet(int ruleCount, int[] rules, int[] guardOf, String[] guards, String[] fallbackPatterns, int[] fallbackRules) {
+        this.ruleCount = ruleCount;
+        this.rules = rules;
+        this.guardOf = guardOf;
+        for (String guard : guards) {
+            this.guards.add(Pattern.compile(guard));
+        }
+        this.fallbackPatterns.addAll(Arrays.asList(fallbackPatterns));
+        this.fallbackRules = fallbackRules;
+    }
+
+    /**
+     * 一段文本上的前置断言，结果按开始位置缓存
+     */
+    final class Guards {
+        private CharSequence text;
+        private final Matcher[] matchers = new Matcher[guards.size()];
+        /**
+         * 各前置断言在 position 上的结果：0 未计算，1 通过，2 不通过
+         */
+        private final byte[] results = new byte[guards.size()];
+        private int position = -1;
+
+        Guards(CharSequence text) {
+            this.text = text;
+        }
+
+        void reset(CharSequence text) {
+            this.text = text;
+            position = -1;
+            for (Matcher matcher : matchers) {
+                if (matcher != null) {
+                    matcher.reset(text);
+                }
+            }
+        }
+
+        /**
+         * @param pattern 自动机中的模式下标
+         * @param s       匹配开始位置
+         * @return 前置断言是否通过
+         */
+        boolean passes(int pattern, int s) {
+            int guard = guardOf[pattern];
+            if (guard < 0) {
+                return true;
+            }
+            if (position != s) {
+                position = s;
+                for (int i = 0; i < results.length; i++) {
+                    results[i] = 0;
+                }
+            }
+            if (results[guard] == 0) {
+                if (matchers[guard] == null) {
+                    matchers[guard] = guards.get(guard).matcher(text)
+                            .useTransparentBounds(true)
+                            .useAnchoringBounds(false);
+                }
+                results[guard] = (byte) (matchers[guard].region(s, text.length()).lookingAt() ? 1 : 2);
+            }
+            return results[guard] == 1;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package cn.mirrorming.text2date.engine;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 构建时写出的自动机快照，启动时直接读出转移表，不用再翻译规则和做子集构造
+ * <p>
+ * 快照按规则内容的摘要命名，格式版本或规则与快照不一致时视为过期，由调用方在运行时构造
+ */
+@Slf4j
+final class RuleSnapshot {
+    /**
+     * 快照所在目录，classpath 根目录下
+     */
+    static final String DIRECTORY = "META-INF/text2date/";
+    private static final int MAGIC = 0x54324446;
+    /**
+     * 快照格式变化时加一，旧快照随即失效
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    final RuleSet ruleSet;
+    /**
+     * 没有可翻译的规则时为 null
+     */
+    final RuleAutomaton automaton;
+
+    private RuleSnapshot(RuleSet ruleSet, RuleAutomaton automaton) {
+        this.ruleSet = ruleSet;
+        this.automaton = automaton;
+    }
+
+    /**
+     * @param rules 规则
+     * @return 快照的资源名，如 META-INF/text2date/3f2a...dfa
+     */
+    static String resourceName(List<String> rules) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (String rule : rules) {
+                digest.update(rule.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            StringBuilder name = new StringBuilder(DIRECTORY);
+            for (byte b : digest.digest()) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return name.append(".dfa").toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param rules     规则
+     * @param ruleSet   由 rules 构造的规则集合
+     * @param automaton 由 ruleSet 构造的自动机，没有可翻译的规则时为 null
+     * @param out       输出
+     * @throws IOException 写出失败
+     */
+    static void write(List<String> rules, RuleSet ruleSet, RuleAutomaton automaton, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        writeStrings(data, rules);
+        writeInts(data, ruleSet.rules);
+        writeInts(data, ruleSet.guardOf);
+        List<String> guards = new ArrayList<>();
+        for (Pattern guard : ruleSet.guards) {
+            guards.add(guard.pattern());
+        }
+        writeStrings(data, guards);
+        writeStrings(data, ruleSet.fallbackPatterns);
+        writeInts(data, ruleSet.fallbackRules);
+        data.writeBoolean(automaton != null);
+        if (automaton != null) {
+            automaton.write(data);
+        }
+        data.flush();
+    }
+
+    /**
+     * @param rules 规则
+     * @return 与规则一致的快照，没有或已过期时返回 null
+     */
+    static RuleSnapshot load(List<String> rules) {
+        InputStream in = RuleSnapshot.class.getClassLoader().getResourceAsStream(resourceName(rules));
+        if (in == null) {
+            log.debug("no automaton snapshot for {} rules", rules.size());
+            return null;
+        }
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+            if (data.readInt() != MAGIC || data.readInt() != FORMAT_VERSION) {
+                log.info("automaton snapshot format changed, compiling at runtime");
+                return null;
+            }
+            if (!readStrings(data).equals(rules)) {
+                log.info("automaton snapshot does not match rules, compiling at runtime");
+                return null;
+            }
+            int[] patterns = readInts(data);
+            int[] guardOf = readInts(data);
+            String[] guards = readStrings(data).toArray(new String[0]);
+            String[] fallbackPatterns = readStrings(data).toArray(new String[0]);
+            int[] fallbackRules = readInts(data);
+            RuleSet ruleSet = new RuleSet(rules.size(), patterns, guardOf, guards, fallbackPatterns, fallbackRules);
+            return new RuleSnapshot(ruleSet, data.readBoolean() ? RuleAutomaton.read(data) : null);
+        } catch (IOException | RuntimeException e) {
+            log.warn("can not read automaton snapshot, compiling at runtime: {}", e.toString());
+            return null;
+        }
+    }
+
+    static void writeInts(DataOutputStream data, int[] values) throws IOException {
+        data.writeInt(values.length);
+        for (int value : values) {
+            data.writeInt(value);
+        }
+    }
+
+    static int[] readInts(DataInputStream data) throws IOException {
+        int[] values = new int[data.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = data.readInt();
+        }
+        return values;
+    }
+
+    private static void writeStrings(DataOutputStream data, List<String> values) throws IOException {
+        data.writeInt(values.size());
+        for (String value : values) {
+            data.writeUTF(value);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream data) throws IOException {
+        int size = data.readInt();
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(data.readUTF());
+        }
+        return values;
+    }
+}
@@ -33,6 +33,14 @@ public class ChineseNumbers {
 
     private static final Map<String, String> TRADITIONAL_TO_PINYIN_MAP = new HashMap<>();
 
+    /**
+     * 字符 -> 数值：1-10 为数字(值加一)，其余见下面的常量，0 表示快速路径不支持
+     */
+    private static final byte[] NUMERALS = new byte[Character.MAX_VALUE + 1];
+    private static final byte TEN = 11;
+    private static final byte HUNDRED = 12;
+    private static final byte THOUSAND = 13;
+
     private static final String MINUS = "负";
     private static final String DECIMAL = "点";
     private static final String FRACTION = "分之";
@@ -89,6 +97,13 @@ public class ChineseNumbers {
         String join = DIGITS_MAP.keySet().stream().map(String::valueOf).collect(Collectors.joining(""));
         String pattern = String.format("^[%s]+$", join);
         DIGITS_PATTERN = Pattern.compile(pattern);
+        DIGITS_MAP.forEach((c, value) -> NUMERALS[c] = (byte) (value + 1));
+        NUMERALS['十'] = TEN;
+        NUMERALS['拾'] = TEN;
+        NUMERALS['百'] = HUNDRED;
+        NUMERALS['佰'] = HUNDRED;
+        NUMERALS['千'] = THOUSAND;
+        NUMERALS['仟'] = THOUSAND;
 
         BEFORE_WAN_DIGITS_MAP.put("仟", 1000);
         BEFORE_WAN_DIGITS_MAP.put("佰", 100);
@@ -314,6 +329,80 @@ public class ChineseNumbers {
         return result;
     }
 
+    /**
+     * 与 (int) chineseNumberToEnglish(text.subSequence(start, end)) 相同，
+     * 只含数字和十、百、千时按字符表直接计算，不分配对象；其它情况(万、小数、分数、廿等)退回 chineseNumberToEnglish
+     *
+     * @param text  文本
+     * @param start 开始位置
+     * @param end   结束位置(不包含)
+     * @return int
+     */
+    public static int chineseNumberToInt(CharSequence text, int start, int end) {
+        if (start >= end) {
+            throw new IllegalArgumentException("empty input");
+        }
+        boolean digitsOnly = true;
+        for (int i = start; i < end; i++) {
+            byte numeral = NUMERALS[text.charAt(i)];
+            if (numeral == 0) {
+                return (int) chineseNumberToEnglish(text.subSequence(start, end).toString());
+            }
+            digitsOnly &= numeral <= 10;
+        }
+        if (digitsOnly && end - start > 1) {
+            long total = 0;
+            for (int i = start; i < end; i++) {
+                total = total * 10 + NUMERALS[text.charAt(i)] - 1;
+            }
+            return (int) (double) total;
+        }
+        double total = 0;
+        for (int i = start; i < end; i++) {
+            byte numeral = NUMERALS[text.charAt(i)];
+            if (numeral == THOUSAND) {
+                total += 1000;
+            } else if (numeral == HUNDRED) {
+                total += 100;
+            } else if (numeral == TEN) {
+                total += 10;
+            } else if (numeral == 1) {
+                // 零
+                continue;
+            } else if (i + 1 < end) {
+                int digit = numeral - 1;
+                byte next = NUMERALS[text.charAt(i + 1)];
+                if (next == TEN) {
+                    total += digit * 10;
+                    i++;
+                } else if (next == HUNDRED) {
+                    total += digit * 100;
+                    i++;
+                } else if (next == THOUSAND) {
+                    total += digit * 1000;
+                    i++;
+                } else {
+                    total = total * 10 + digit;
+                    while (i + 1 < end && NUMERALS[text.charAt(i + 1)] <= 10) {
+                        total = total * 10 + NUMERALS[text.charAt(i + 1)] - 1;
+                        i++;
+                    }
+                }
+            } else {
+                int digit = numeral - 1;
+                byte prev = i > start ? NUMERALS[text.charAt(i - 1)] : 0;
+                if (prev == THOUSAND) {
+                    total += digit * 100;
+                } else if (prev == HUNDRED) {
+                    total += digit * 10;
+                } else {
+                    total += digit;
+                }
+            }
+        }
+        return (int) total;
+    }
+
     /**
      * 输入如果完全匹配中文对应的数字，直接调用此函数映射输出
      *
@@ -0,0 +1,230 @@
+package cn.mirrorming.text2date.time;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 时区内的日期计算，代替 Calendar：本地时间用 epoch 秒(按 UTC 记)表示，日期用 epoch 天表示，
+ * 只做基本类型运算，固定偏移的时区不查 ZoneRules
+ * <p>
+ * 与 GregorianCalendar 的对应：时、分按时刻加减，天、周保持钟点，月、年超出月末时取月末；
+ * 日期为预期格里历(1582 年之前与 Calendar 的儒略历不同)
+ */
+final class EpochCalendar {
+    private static final Map<ZoneId, EpochCalendar> CACHE = new ConcurrentHashMap<>();
+
+    static final int SECONDS_PER_DAY = 86400;
+    private static final long DAYS_PER_CYCLE = 146097;
+    private static final long DAYS_0000_TO_1970 = (DAYS_PER_CYCLE * 5L) - (30L * 365L + 7L);
+
+    private final ZoneId zone;
+    private final ZoneRules rules;
+    /**
+     * 固定偏移(秒)，不是固定偏移时为 Integer.MIN_VALUE
+     */
+    private final int fixedOffset;
+
+    private EpochCalendar(ZoneId zone) {
+        this.zone = zone;
+        this.rules = zone.getRules();
+        this.fixedOffset = rules.isFixedOffset() ? rules.getOffset(Instant.EPOCH).getTotalSeconds() : Integer.MIN_VALUE;
+    }
+
+    /**
+     * @param zone 时区
+     * @return 缓存的实例
+     */
+    static EpochCalendar of(ZoneId zone) {
+        return CACHE.computeIfAbsent(zone, EpochCalendar::new);
+    }
+
+    ZoneId zone() {
+        return zone;
+    }
+
+    /**
+     * @param epochSecond 时刻
+     * @return 本地时间
+     */
+    long toLocal(long epochSecond) {
+        if (fixedOffset != Integer.MIN_VALUE) {
+            return epochSecond + fixedOffset;
+        }
+        return epochSecond + rules.getOffset(Instant.ofEpochSecond(epochSecond)).getTotalSeconds();
+    }
+
+    /**
+     * 与 Calendar 相同：夏令时跳过的本地时间按跳变前的偏移计算(即顺延)，重复的本地时间取跳变后的偏移
+     *
+     * @param local 本地时间
+     * @return 时刻
+     */
+    long toEpochSecond(long local) {
+        if (fixedOffset != Integer.MIN_VALUE) {
+            return local - fixedOffset;
+        }
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(local, 0, ZoneOffset.UTC);
+        ZoneOffsetTransition transition = rules.getTransition(dateTime);
+        if (transition == null) {
+            return local - rules.getOffset(dateTime).getTotalSeconds();
+        }
+        return local - (transition.isGap() ? transition.getOffsetBefore() : transition.getOffsetAfter()).getTotalSeconds();
+    }
+
+    /**
+     * 与 Calendar.add 相同：先按原来的偏移计算，偏移变了再按新的偏移调整，调整后换了日期则不调整；
+     * 所以落在夏令时跳过的钟点时往前退，重复的钟点保持原来的偏移
+     *
+     * @param epochSecond 时刻
+     * @param days        天数
+     * @return 加上天数，钟点不变
+     */
+    long plusDays(long epochSecond, long days) {
+        if (days == 0) {
+            return epochSecond;
+        }
+        if (fixedOffset != Integer.MIN_VALUE) {
+            return epochSecond + days * SECONDS_PER_DAY;
+        }
+        long offset = toLocal(epochSecond) - epochSecond;
+        long local = epochSecond + offset + days * SECONDS_PER_DAY;
+        long result = local - offset;
+        long newOffset = toLocal(result) - result;
+        if (newOffset != offset) {
+            long adjusted = local - newOffset;
+            if (Math.floorDiv(toLocal(adjusted), SECONDS_PER_DAY) == Math.floorDiv(local, SECONDS_PER_DAY)) {
+                return adjusted;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param epochSecond 时刻
+     * @param months      月数
+     * @return 加上月数，超出月末时取月末，钟点不变
+     */
+    long plusMonths(long epochSecond, long months) {
+        if (months == 0) {
+            return epochSecond;
+        }
+        long local = toLocal(epochSecond);
+        long epochDay = Math.floorDiv(local, SECONDS_PER_DAY);
+        long date = date(epochDay);
+        long month = year(date) * 12L + (month(date) - 1) + months;
+        int year = (int) Math.floorDiv(month, 12);
+        int monthOfYear = (int) Math.floorMod(month, 12) + 1;
+        int day = Math.min(day(date), lengthOfMonth(year, monthOfYear));
+        return toEpochSecond(epochDay(year, monthOfYear, day) * SECONDS_PER_DAY + Math.floorMod(local, SECONDS_PER_DAY));
+    }
+
+    /**
+     * @param year  年
+     * @param month 月 1-12
+     * @param day   日，超出月末时顺延到下个月
+     * @return epoch 天
+     */
+    static long epochDay(long year, int month, long day) {
+        long total = 365 * year;
+        if (year >= 0) {
+            total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        } else {
+            total -= year / -4 - year / -100 + year / -400;
+        }
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * @param epochDay epoch 天
+     * @return 年月日，用 {@link #year(long)}、{@link #month(long)}、{@link #day(long)} 取出
+     */
+    static long date(long epochDay) {
+        long zeroDay = epochDay + DAYS_0000_TO_1970;
+        // 从 3 月 1 日起算，闰日在年末
+        zeroDay -= 60;
+        long adjust = 0;
+        if (zeroDay < 0) {
+            long adjustCycles = (zeroDay + 1) / DAYS_PER_CYCLE - 1;
+            adjust = adjustCycles * 400;
+            zeroDay += -adjustCycles * DAYS_PER_CYCLE;
+        }
+        long yearEst = (400 * zeroDay + 591) / DAYS_PER_CYCLE;
+        long doyEst = zeroDay - (365 * yearEst + yearEst / 4 - yearEst / 100 + yearEst / 400);
+        if (doyEst < 0) {
+            yearEst--;
+            doyEst = zeroDay - (365 * yearEst + yearEst / 4 - yearEst / 100 + yearEst / 400);
+        }
+        yearEst += adjust;
+        int marchDoy0 = (int) doyEst;
+        int marchMonth0 = (marchDoy0 * 5 + 2) / 153;
+        int month = (marchMonth0 + 2) % 12 + 1;
+        int day = marchDoy0 - (marchMonth0 * 306 + 5) / 10 + 1;
+        yearEst += marchMonth0 / 10;
+        return yearEst << 9 | month << 5 | day;
+    }
+
+    static int year(long date) {
+        return (int) (date >> 9);
+    }
+
+    static int month(long date) {
+        return (int) (date >> 5 & 0xf);
+    }
+
+    static int day(long date) {
+        return (int) (date & 0x1f);
+    }
+
+    /**
+     * @param epochDay epoch 天
+     * @return 1 周一 ... 7 周日
+     */
+    static int dayOfWeek(long epochDay) {
+        return (int) Math.floorMod(epochDay + 3, 7) + 1;
+    }
+
+    /**
+     * 以周一为一周的第一天，第一周至少有 minimalDays 天在本月，之前的几天是第 0 周
+     *
+     * @param firstOfMonth 当月 1 日的 epoch 天
+     * @param minimalDays  第一周最少的天数
+     * @return 当月第一周周一的 epoch 天
+     */
+    static long firstWeekOfMonth(long firstOfMonth, int minimalDays) {
+        int dayOfWeek = dayOfWeek(firstOfMonth);
+        long monday = firstOfMonth - (dayOfWeek - 1);
+        return 8 - dayOfWeek >= minimalDays ? monday : monday + 7;
+    }
+
+    static boolean isLeapYear(long year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    static int lengthOfMonth(long year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+}
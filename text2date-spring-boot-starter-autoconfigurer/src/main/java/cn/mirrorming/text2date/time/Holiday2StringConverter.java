@@ -1,8 +1,8 @@
 package cn.mirrorming.text2date.time;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.time.LocalDate;
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * 节假日转换器
@@ -20,42 +20,21 @@ public class Holiday2StringConverter {
             "愚人节", "劳动节", "青年节", "护士节", "儿童节", "建党节", "建军节", "爸爸节", "教师节", "孔子诞辰", "国庆节", "老人节", "联合国日",
             "孙中山诞辰纪念", "澳门回归纪念", "平安夜", "万圣节", "圣诞"};
 
-    private static HashMap<String, String> holidayMap = new HashMap<>();
-    private static SimpleDateFormat sdf = new SimpleDateFormat("yyyy年MM月dd日");
+    /**
+     * 节日 -> 编号，即在 HOLIDAY 中的下标，日期见 {@link HolidayCalendar}
+     */
+    static final Map<String, Integer> IDS = new HashMap<>();
+    /**
+     * 以"节"结尾的节日去掉"节"之后 -> 编号，"国庆"这样的写法查这里，不用拼接字符串
+     */
+    private static final Map<String, Integer> SHORT_NAMES = new HashMap<>();
 
     static {
-        for (String e : HOLIDAY) {
-            holidayMap.put(e, "");
-        }
-        int year = Calendar.getInstance().get(Calendar.YEAR);
-        LunarGregorianConverter time = new LunarGregorianConverter(year, 1, 1);
-        int size = holidayMap.size();
-        while (size > 0) {
-            // 农历节日
-            String lunarHoliday = time.getLunarHoliday();
-            // 公历节日
-            String holiday = time.getHoliday();
-            // 节气
-            String solarTerms = time.getSoralTerm();
-
-            if (holidayMap.containsKey(lunarHoliday)) {
-                String value = sdf.format(time.getCalendar().getTime());
-                holidayMap.put(lunarHoliday, value);
-                size--;
-            }
-
-            if (holidayMap.containsKey(holiday)) {
-                String value = sdf.format(time.getCalendar().getTime());
-                holidayMap.put(holiday, value);
-                size--;
+        for (int i = 0; i < HOLIDAY.length; i++) {
+            IDS.put(HOLIDAY[i], i);
+            if (HOLIDAY[i].endsWith("节")) {
+                SHORT_NAMES.put(HOLIDAY[i].substring(0, HOLIDAY[i].length() - 1), i);
             }
-
-            if (holidayMap.containsKey(solarTerms)) {
-                String value = sdf.format(time.getCalendar().getTime());
-                holidayMap.put(solarTerms, value);
-                size--;
-            }
-            time.nextDay();
         }
 
 
@@ -188,44 +167,72 @@ public class Holiday2StringConverter {
 //        holidayMap.put("圣诞节", "12月25日");
     }
 
+    /**
+     * @param holiday 文本
+     * @return 节日编号，不是节日时为 -1
+     */
+    static int holidayId(String holiday) {
+        // 感恩节、父亲节、母亲节这类按星期算的节日
+        switch (holiday) {
+            case "感恩节":
+                return HolidayCalendar.THANKSGIVING;
+            case "父亲节":
+                return HolidayCalendar.FATHERS_DAY;
+            case "母亲节":
+                return HolidayCalendar.MOTHERS_DAY;
+            default:
+                break;
+        }
+        Integer id = IDS.get(holiday);
+        if (id == null) {
+            id = holiday.contains("节") ? IDS.get(holiday.replace("节", "")) : SHORT_NAMES.get(holiday);
+        }
+        return id == null ? -1 : id;
+    }
 
     /**
-     * 节日转化为时间
+     * 节日转化为今年的日期
      *
      * @param holiday 文本
      * @return String yyyy年MM月dd日 or null
      */
     public static String holidayDate(String holiday) {
-        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy年MM月dd日");
-        // 处理 感恩节、父亲节、母亲节等这类的节日
-        if (holiday.trim().contains("节")) {
-            String[] s = {"感恩节", "父亲节", "母亲节"};
-            Calendar cal = Calendar.getInstance();
-            if (holiday.equals(s[0])) {
-                cal.set(Calendar.MONTH, 10);
-                cal.set(Calendar.WEEK_OF_MONTH, 4);
-                cal.set(Calendar.DAY_OF_WEEK, Calendar.THURSDAY);
-                return simpleDateFormat.format(cal.getTime());
-            } else if (holiday.equals(s[1])) {
-                cal.set(Calendar.MONTH, 5);
-                cal.set(Calendar.WEEK_OF_MONTH, 3);
-                cal.set(Calendar.DAY_OF_WEEK, Calendar.SUNDAY);
-                return simpleDateFormat.format(cal.getTime());
-            } else if (holiday.equals(s[2])) {
-                cal.set(Calendar.MONTH, 4);
-                cal.set(Calendar.WEEK_OF_MONTH, 2);
-                cal.set(Calendar.DAY_OF_WEEK, Calendar.SUNDAY);
-                return simpleDateFormat.format(cal.getTime());
-            }
-        }
+        return holidayDate(holiday, LocalDate.now().getYear());
+    }
+
+    /**
+     * 节日转化为时间
+     *
+     * @param holiday 文本
+     * @param year    公历年份
+     * @return String yyyy年MM月dd日，当年没有这个节日时为空串；不是节日时为 null
+     */
+    public static String holidayDate(String holiday, int year) {
+        int id = holidayId(holiday);
+        return id < 0 ? null : holidayDate(id, year);
+    }
 
-        if (holidayMap.containsKey(holiday)) {
-            return holidayMap.get(holiday);
-        } else if (!holidayMap.containsKey(holiday) && holiday.contains("节")) {
-            holiday = holiday.replace("节", "");
-            return holidayMap.get(holiday);
-        } else {
-            return holidayMap.getOrDefault(holiday.concat("节"), null);
+    /**
+     * @param holiday 节日编号
+     * @param year    公历年份
+     * @return yyyy年MM月dd日，当年没有这个节日时为空串
+     */
+    static String holidayDate(int holiday, int year) {
+        int date = HolidayCalendar.date(year, holiday);
+        if (date == 0) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(11);
+        int y = date / 10000;
+        for (int digits = 1000; digits > 1 && y < digits; digits /= 10) {
+            sb.append('0');
         }
+        sb.append(y).append('年');
+        appendTwoDigits(sb, date / 100 % 100).append('月');
+        return appendTwoDigits(sb, date % 100).append('日').toString();
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder sb, int value) {
+        return sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
     }
 }
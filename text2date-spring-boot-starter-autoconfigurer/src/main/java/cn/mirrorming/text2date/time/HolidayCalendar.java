@@ -0,0 +1,134 @@
+package cn.mirrorming.text2date.time;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Calendar;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 各年的节日日期表：年份 -> 按节日编号排列的日期(yyyyMMdd，0 表示没有)，按 (年份, 节日编号) 直接取
+ * <p>
+ * 节日编号是 {@link Holiday2StringConverter#HOLIDAY} 的下标，之后是感恩节、父亲节、母亲节。
+ * 快照({@link HolidaySnapshot})中的年份直接取用，其余年份第一次用到时逐日推算；
+ * 超出农历数据表的年份只有公历节日和节气
+ */
+@Slf4j
+final class HolidayCalendar {
+    /**
+     * 编号 0-23 是节气，顺序与 {@link LunarGregorianConverter#sTerm(int, int)} 相同
+     */
+    static final int SOLAR_TERMS = 24;
+    static final int THANKSGIVING = Holiday2StringConverter.HOLIDAY.length;
+    static final int FATHERS_DAY = THANKSGIVING + 1;
+    static final int MOTHERS_DAY = THANKSGIVING + 2;
+    /**
+     * 节日数
+     */
+    static final int COUNT = THANKSGIVING + 3;
+
+    private static final Map<Integer, int[]> YEARS = new ConcurrentHashMap<>();
+
+    private HolidayCalendar() {
+    }
+
+    /**
+     * @param year    公历年份
+     * @param holiday 节日编号
+     * @return yyyyMMdd，当年没有这个节日时为 0
+     */
+    static int date(int year, int holiday) {
+        if (holiday < SOLAR_TERMS) {
+            //节气直接查节气表，不用生成当年的表
+            return solarTerm(year, holiday);
+        }
+        int[] dates = YEARS.get(year);
+        if (dates == null) {
+            dates = YEARS.computeIfAbsent(year, HolidayCalendar::compute);
+        }
+        return dates[holiday];
+    }
+
+    private static int[] compute(int year) {
+        int[] dates = new int[COUNT];
+        int[] snapshot = Snapshot.YEARS.get(year);
+        if (snapshot != null) {
+            System.arraycopy(snapshot, 0, dates, 0, snapshot.length);
+        } else {
+            try {
+                System.arraycopy(walk(year), 0, dates, 0, THANKSGIVING);
+            } catch (RuntimeException e) {
+                log.debug("no lunar data for {}, only solar holidays and terms: {}", year, e.toString());
+                solarOnly(year, dates);
+            }
+        }
+        //与 Calendar 的默认区域设置一致：当月第几周的星期几
+        dates[THANKSGIVING] = weekOfMonth(year, Calendar.NOVEMBER, 4, Calendar.THURSDAY);
+        dates[FATHERS_DAY] = weekOfMonth(year, Calendar.JUNE, 3, Calendar.SUNDAY);
+        dates[MOTHERS_DAY] = weekOfMonth(year, Calendar.MAY, 2, Calendar.SUNDAY);
+        return dates;
+    }
+
+    /**
+     * 从 year 年元旦逐日推算各节日、节气的日期，农历数据表覆盖不到时抛出异常
+     *
+     * @param year 公历年份
+     * @return 按 {@link Holiday2StringConverter#HOLIDAY} 排列的 yyyyMMdd
+     */
+    static int[] walk(int year) {
+        Map<String, Integer> ids = Holiday2StringConverter.IDS;
+        int[] dates = new int[THANKSGIVING];
+        LunarGregorianConverter time = new LunarGregorianConverter(year, 1, 1);
+        int size = dates.length;
+        while (size > 0) {
+            Calendar calendar = time.getCalendar();
+            int date = calendar.get(Calendar.YEAR) * 10000 + (calendar.get(Calendar.MONTH) + 1) * 100 + calendar.get(Calendar.DAY_OF_MONTH);
+            // 农历节日、公历节日、节气，再次出现时取后一次
+            for (String holiday : new String[]{time.getLunarHoliday(), time.getHoliday(), time.getSoralTerm()}) {
+                Integer id = holiday == null ? null : ids.get(holiday);
+                if (id != null) {
+                    dates[id] = date;
+                    size--;
+                }
+            }
+            time.nextDay();
+        }
+        return dates;
+    }
+
+    private static void solarOnly(int year, int[] dates) {
+        Map<String, Integer> ids = Holiday2StringConverter.IDS;
+        for (int month = 1; month <= 12; month++) {
+            for (int day = 1; day <= EpochCalendar.lengthOfMonth(year, month); day++) {
+                Integer id = ids.get(LunarGregorianConverter.gregorianHoliday(month, day));
+                if (id != null) {
+                    dates[id] = year * 10000 + month * 100 + day;
+                }
+            }
+        }
+        for (int n = 0; n < SOLAR_TERMS; n++) {
+            dates[n] = solarTerm(year, n);
+        }
+    }
+
+    private static int solarTerm(int year, int n) {
+        return year * 10000 + (n / 2 + 1) * 100 + LunarGregorianConverter.solarTermDay(year, n);
+    }
+
+    private static int weekOfMonth(int year, int month, int week, int dayOfWeek) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(Calendar.YEAR, year);
+        calendar.set(Calendar.MONTH, month);
+        calendar.set(Calendar.WEEK_OF_MONTH, week);
+        calendar.set(Calendar.DAY_OF_WEEK, dayOfWeek);
+        return calendar.get(Calendar.YEAR) * 10000 + (calendar.get(Calendar.MONTH) + 1) * 100 + calendar.get(Calendar.DAY_OF_MONTH);
+    }
+
+    /**
+     * 第一次用到时读取快照
+     */
+    private static final class Snapshot {
+        static final Map<Integer, int[]> YEARS = HolidaySnapshot.load();
+    }
+}
@@ -0,0 +1,177 @@
+package cn.mirrorming.text2date.time;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * 节日名词典的 Aho-Corasick 自动机：一遍扫描找出文本中所有的节日，按最左最长取不重叠的匹配
+ * <p>
+ * 词典是 {@link Holiday2StringConverter#HOLIDAY}、{@link LunarGregorianConverter} 中的农历和公历节日，
+ * 加上“中秋节”“国庆”这样加、减“节”的写法和感恩节、父亲节、母亲节。
+ * 与 engine 包中的 RuleAutomaton 一样按字符等价类压缩，失败转移预先展开到转移表里，每个字符一次数组下标运算
+ */
+final class HolidayScanner {
+    /**
+     * 词 -> 节日编号
+     */
+    private static final String[] WORDS;
+    private static final int[] HOLIDAYS;
+    /**
+     * 字符 -> 等价类，0 表示不在词典中
+     */
+    private static final char[] CLASSES = new char[Character.MAX_VALUE + 1];
+    private static final int CLASS_COUNT;
+    /**
+     * state * CLASS_COUNT + class -> 下一个状态，状态 0 是根
+     */
+    private static final int[] TRANSITIONS;
+    /**
+     * 状态 -> 在此结束的最长的词，-1 表示没有
+     */
+    private static final int[] OUTPUTS;
+
+    static {
+        Map<String, Integer> words = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>(Arrays.asList(Holiday2StringConverter.HOLIDAY));
+        names.addAll(LunarGregorianConverter.holidayNames());
+        names.addAll(Arrays.asList("感恩节", "父亲节", "母亲节", "国庆"));
+        for (String name : names) {
+            int id = Holiday2StringConverter.holidayId(name);
+            words.putIfAbsent(name, id);
+            if (!name.endsWith("节")) {
+                words.putIfAbsent(name + "节", id);
+            }
+        }
+        WORDS = words.keySet().toArray(new String[0]);
+        HOLIDAYS = words.values().stream().mapToInt(Integer::intValue).toArray();
+
+        int classCount = 1;
+        for (String word : WORDS) {
+            for (int i = 0; i < word.length(); i++) {
+                if (CLASSES[word.charAt(i)] == 0) {
+                    CLASSES[word.charAt(i)] = (char) classCount++;
+                }
+            }
+        }
+        CLASS_COUNT = classCount;
+
+        //字典树
+        List<int[]> rows = new ArrayList<>();
+        List<Integer> outputs = new ArrayList<>();
+        rows.add(new int[classCount]);
+        outputs.add(-1);
+        for (int w = 0; w < WORDS.length; w++) {
+            int state = 0;
+            for (int i = 0; i < WORDS[w].length(); i++) {
+                int cls = CLASSES[WORDS[w].charAt(i)];
+                if (rows.get(state)[cls] == 0) {
+                    rows.get(state)[cls] = rows.size();
+                    rows.add(new int[classCount]);
+                    outputs.add(-1);
+                }
+                state = rows.get(state)[cls];
+            }
+            outputs.set(state, w);
+        }
+
+        //按层计算失败转移，没有的转移取失败状态的转移；没有词结束的状态取失败状态的输出
+        int[] fail = new int[rows.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int cls = 1; cls < classCount; cls++) {
+            if (rows.get(0)[cls] != 0) {
+                queue.add(rows.get(0)[cls]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int[] row = rows.get(state);
+            if (outputs.get(state) < 0) {
+                outputs.set(state, outputs.get(fail[state]));
+            }
+            for (int cls = 1; cls < classCount; cls++) {
+                if (row[cls] != 0) {
+                    fail[row[cls]] = rows.get(fail[state])[cls];
+                    queue.add(row[cls]);
+                } else {
+                    row[cls] = rows.get(fail[state])[cls];
+                }
+            }
+        }
+        TRANSITIONS = new int[rows.size() * classCount];
+        for (int state = 0; state < rows.size(); state++) {
+            System.arraycopy(rows.get(state), 0, TRANSITIONS, state * classCount, classCount);
+        }
+        OUTPUTS = outputs.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private HolidayScanner() {
+    }
+
+    /**
+     * 找出 text 中的节日，写入 context 的节日列表
+     *
+     * @param text    文本
+     * @param context 解析上下文
+     */
+    static void scan(CharSequence text, ParseContext context) {
+        context.holidayCount = 0;
+        //待定的匹配：同一个结束位置取最长的词，开始位置更靠前或相同时替换，与已确定的匹配重叠时丢弃
+        int start = -1;
+        int end = -1;
+        int word = -1;
+        int state = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            state = TRANSITIONS[state * CLASS_COUNT + CLASSES[text.charAt(i)]];
+            int w = OUTPUTS[state];
+            if (w < 0) {
+                continue;
+            }
+            int s = i + 1 - WORDS[w].length();
+            if (word >= 0 && s >= end) {
+                context.addHoliday(start, end, word);
+                word = -1;
+            }
+            if (word < 0 ? s >= lastEnd(context) : s <= start) {
+                start = s;
+                end = i + 1;
+                word = w;
+            }
+        }
+        if (word >= 0) {
+            context.addHoliday(start, end, word);
+        }
+    }
+
+    private static int lastEnd(ParseContext context) {
+        return context.holidayCount == 0 ? 0 : context.holidayEnds[context.holidayCount - 1];
+    }
+
+    /**
+     * @param word 词的下标
+     * @return 节日编号
+     */
+    static int holiday(int word) {
+        return HOLIDAYS[word];
+    }
+
+    /**
+     * @param word 词的下标
+     * @return 词
+     */
+    static String word(int word) {
+        return WORDS[word];
+    }
+
+    /**
+     * @param word 词的下标
+     * @return 词的长度
+     */
+    static int length(int word) {
+        return WORDS[word].length();
+    }
+}
@@ -0,0 +1,100 @@
+package cn.mirrorming.text2date.time;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 构建时写出的节日日期表，第一次用到节日时整张读出，表中的年份不用再逐日推算农历和节气
+ * <p>
+ * 每年一条定长记录，日期存为 yyyyMMdd；格式版本或节日列表变化、年份不在表中时由 {@link HolidayCalendar} 推算
+ */
+@Slf4j
+final class HolidaySnapshot {
+    /**
+     * classpath 根目录下的资源名
+     */
+    static final String RESOURCE = "META-INF/text2date/holidays.bin";
+    private static final int MAGIC = 0x54324448;
+    /**
+     * 快照格式变化时加一，旧快照随即失效
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    private HolidaySnapshot() {
+    }
+
+    /**
+     * @param firstYear 第一年
+     * @param years     各年的节日日期 yyyyMMdd，顺序与 {@link Holiday2StringConverter#HOLIDAY} 一致
+     * @param out       输出
+     * @throws IOException 写出失败
+     */
+    static void write(int firstYear, List<int[]> years, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        data.writeInt(Holiday2StringConverter.HOLIDAY.length);
+        for (String holiday : Holiday2StringConverter.HOLIDAY) {
+            data.writeUTF(holiday);
+        }
+        data.writeInt(firstYear);
+        data.writeInt(years.size());
+        for (int[] dates : years) {
+            for (int i = 0; i < Holiday2StringConverter.HOLIDAY.length; i++) {
+                data.writeInt(dates[i]);
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * @return 年份 -> 按 {@link Holiday2StringConverter#HOLIDAY} 排列的 yyyyMMdd，快照没有或已过期时为空
+     */
+    static Map<Integer, int[]> load() {
+        InputStream in = HolidaySnapshot.class.getClassLoader().getResourceAsStream(RESOURCE);
+        if (in == null) {
+            log.debug("no holiday snapshot");
+            return Collections.emptyMap();
+        }
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+            if (data.readInt() != MAGIC || data.readInt() != FORMAT_VERSION) {
+                log.info("holiday snapshot format changed, computing holidays");
+                return Collections.emptyMap();
+            }
+            String[] holidays = Holiday2StringConverter.HOLIDAY;
+            boolean matches = data.readInt() == holidays.length;
+            for (int i = 0; matches && i < holidays.length; i++) {
+                matches = holidays[i].equals(data.readUTF());
+            }
+            if (!matches) {
+                log.info("holiday snapshot does not match holidays, computing holidays");
+                return Collections.emptyMap();
+            }
+            int firstYear = data.readInt();
+            int count = data.readInt();
+            Map<Integer, int[]> years = new HashMap<>(count * 2);
+            for (int year = firstYear; year < firstYear + count; year++) {
+                int[] dates = new int[holidays.length];
+                for (int i = 0; i < dates.length; i++) {
+                    dates[i] = data.readInt();
+                }
+                years.put(year, dates);
+            }
+            log.debug("holiday snapshot loaded for {}-{}", firstYear, firstYear + count - 1);
+            return years;
+        } catch (IOException | RuntimeException e) {
+            log.warn("can not read holiday snapshot, computing holidays: {}", e.toString());
+            return Collections.emptyMap();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package cn.mirrorming.text2date.time;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 注解处理器：按 {@link HolidayYears} 逐年推算节日日期，写成 {@link HolidaySnapshot}
+ * <p>
+ * 农历数据表覆盖不到的年份推算会失败，快照在第一个失败的年份之前截止
+ */
+@SupportedAnnotationTypes("cn.mirrorming.text2date.time.HolidayYears")
+public class HolidaySnapshotProcessor extends AbstractProcessor {
+    private boolean written;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(HolidayYears.class)) {
+            if (written) {
+                break;
+            }
+            HolidayYears years = element.getAnnotation(HolidayYears.class);
+            List<int[]> holidays = new ArrayList<>();
+            for (int year = years.from(); year <= years.to(); year++) {
+                try {
+                    holidays.add(HolidayCalendar.walk(year));
+                } catch (RuntimeException e) {
+                    processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                            "holiday snapshot ends at " + (year - 1) + ": " + e, element);
+                    break;
+                }
+            }
+            try {
+                FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", HolidaySnapshot.RESOURCE);
+                try (OutputStream out = new BufferedOutputStream(resource.openOutputStream())) {
+                    HolidaySnapshot.write(years.from(), holidays, out);
+                }
+                written = true;
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "can not write holiday snapshot: " + e, element);
+            }
+        }
+        return true;
+    }
+}
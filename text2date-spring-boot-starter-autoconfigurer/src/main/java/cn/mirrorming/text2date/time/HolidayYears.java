@@ -0,0 +1,24 @@
+package cn.mirrorming.text2date.time;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 构建时为这些年份写出节日日期表，见 {@link HolidaySnapshotProcessor}
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target({ElementType.PACKAGE, ElementType.TYPE})
+public @interface HolidayYears {
+
+    /**
+     * @return 第一年
+     */
+    int from();
+
+    /**
+     * @return 最后一年(包含)
+     */
+    int to();
+}
@@ -0,0 +1,155 @@
+package cn.mirrorming.text2date.time;
+
+import java.util.Arrays;
+
+/**
+ * 农历日期计算：类加载时由农历数据表算出各年正月初一、各月初一的 epoch 天，
+ * 公历转农历时二分查找年份、月份，农历转公历时直接按下标取，都不分配对象
+ * <p>
+ * 农历日期打包成一个 int，用 {@link #year(int)}、{@link #month(int)}、{@link #day(int)}、{@link #isLeap(int)} 取出
+ */
+final class LunarCalendar {
+    /**
+     * 数据表的第一年、最后一年(包含)
+     */
+    static final int MIN_YEAR = 1900;
+    static final int MAX_YEAR = MIN_YEAR + LunarGregorianConverter.LUNAR_INFO_YEARS - 1;
+    /**
+     * 1900-01-31 是农历 1900 年正月初一
+     */
+    static final long MIN_EPOCH_DAY = EpochCalendar.epochDay(1900, 1, 31);
+
+    /**
+     * 各年正月初一距 MIN_EPOCH_DAY 的天数，最后多一项为数据表之后的一年
+     */
+    private static final int[] YEAR_STARTS = new int[MAX_YEAR - MIN_YEAR + 2];
+    /**
+     * 每年 14 项：各月初一距 MIN_EPOCH_DAY 的天数，闰月紧跟在所闰的月之后，之后一项为下一年正月初一，没有闰月时最后一项不用
+     */
+    private static final int[] MONTH_STARTS = new int[(MAX_YEAR - MIN_YEAR + 1) * 14];
+
+    static {
+        int days = 0;
+        for (int year = MIN_YEAR; year <= MAX_YEAR; year++) {
+            int index = year - MIN_YEAR;
+            YEAR_STARTS[index] = days;
+            int leap = LunarGregorianConverter.leapMonth(year);
+            int base = index * 14;
+            int k = 0;
+            for (int month = 1; month <= 12; month++) {
+                MONTH_STARTS[base + k++] = days;
+                days += LunarGregorianConverter.monthDays(year, month);
+                if (month == leap) {
+                    MONTH_STARTS[base + k++] = days;
+                    days += LunarGregorianConverter.leapDays(year);
+                }
+            }
+            MONTH_STARTS[base + k] = days;
+        }
+        YEAR_STARTS[YEAR_STARTS.length - 1] = days;
+    }
+
+    private LunarCalendar() {
+    }
+
+    /**
+     * @param epochDay epoch 天
+     * @return 农历日期
+     * @throws IllegalArgumentException 超出农历数据表的范围
+     */
+    static int date(long epochDay) {
+        long offset = epochDay - MIN_EPOCH_DAY;
+        if (offset < 0 || offset >= YEAR_STARTS[YEAR_STARTS.length - 1]) {
+            throw new IllegalArgumentException("epoch day out of lunar range: " + epochDay);
+        }
+        int days = (int) offset;
+        int index = Arrays.binarySearch(YEAR_STARTS, days);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        int year = MIN_YEAR + index;
+        int leap = LunarGregorianConverter.leapMonth(year);
+        int base = index * 14;
+        int k = Arrays.binarySearch(MONTH_STARTS, base, base + (leap == 0 ? 13 : 14), days);
+        if (k < 0) {
+            k = -k - 2;
+        }
+        k -= base;
+        int day = days - MONTH_STARTS[base + k] + 1;
+        //闰月之后的下标比月份大 1
+        if (leap == 0 || k < leap) {
+            return pack(year, k + 1, day, false);
+        }
+        return k == leap ? pack(year, leap, day, true) : pack(year, k, day, false);
+    }
+
+    /**
+     * @param year  农历年
+     * @param month 月 1-12
+     * @param day   日 1-30
+     * @param leap  是否闰月
+     * @return epoch 天
+     * @throws IllegalArgumentException 超出农历数据表的范围、当年没有这个闰月或当月没有这一天
+     */
+    static long epochDay(int year, int month, int day, boolean leap) {
+        int index = monthIndex(year, month, leap);
+        if (day < 1 || day > MONTH_STARTS[index + 1] - MONTH_STARTS[index]) {
+            throw new IllegalArgumentException("no such lunar day: " + year + (leap ? "-闰" : "-") + month + "-" + day);
+        }
+        return MIN_EPOCH_DAY + MONTH_STARTS[index] + day - 1;
+    }
+
+    /**
+     * @return 农历 year 年 month 月的天数，29 或 30
+     * @throws IllegalArgumentException 超出农历数据表的范围或当年没有这个闰月
+     */
+    static int lengthOfMonth(int year, int month, boolean leap) {
+        int index = monthIndex(year, month, leap);
+        return MONTH_STARTS[index + 1] - MONTH_STARTS[index];
+    }
+
+    /**
+     * @return 月初在 MONTH_STARTS 中的下标
+     */
+    private static int monthIndex(int year, int month, boolean leap) {
+        if (year < MIN_YEAR || year > MAX_YEAR || month < 1 || month > 12) {
+            throw new IllegalArgumentException("lunar month out of range: " + year + "-" + month);
+        }
+        int leapMonth = LunarGregorianConverter.leapMonth(year);
+        if (leap && leapMonth != month) {
+            throw new IllegalArgumentException("no leap month " + month + " in lunar year " + year);
+        }
+        //闰月及之后的月份下标加 1
+        int k = leapMonth != 0 && (month > leapMonth || leap) ? month : month - 1;
+        return (year - MIN_YEAR) * 14 + k;
+    }
+
+    /**
+     * @param epochDay epoch 天
+     * @return 是否在农历数据表的范围内
+     */
+    static boolean isSupported(long epochDay) {
+        long offset = epochDay - MIN_EPOCH_DAY;
+        return offset >= 0 && offset < YEAR_STARTS[YEAR_STARTS.length - 1];
+    }
+
+    private static int pack(int year, int month, int day, boolean leap) {
+        return year << 10 | (leap ? 1 << 9 : 0) | month << 5 | day;
+    }
+
+    static int year(int date) {
+        return date >> 10;
+    }
+
+    static int month(int date) {
+        return date >> 5 & 0xf;
+    }
+
+    static int day(int date) {
+        return date & 0x1f;
+    }
+
+    static boolean isLeap(int date) {
+        return (date & 1 << 9) != 0;
+    }
+}
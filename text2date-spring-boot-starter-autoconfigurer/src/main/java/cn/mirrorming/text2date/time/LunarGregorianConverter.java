@@ -1,6 +1,7 @@
 package cn.mirrorming.text2date.time;
 
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.*;
 
 
@@ -11,7 +12,7 @@ public final class LunarGregorianConverter {
     /**
      * 转换的结果集.year .month .day .isLeap .yearCyl .dayCyl .monCyl
      */
-    private int[] result;
+    private final int[] result = new int[7];
     private Calendar calendar;
     private static SimpleDateFormat sdf = new SimpleDateFormat("yyyy.M.d EEEEE");
 
@@ -44,6 +45,10 @@ public final class LunarGregorianConverter {
             0x05aa0, 0x076a3, 0x096d0, 0x04bd7, 0x04ad0, 0x0a4d0, 0x1d0b6,
             0x0d250, 0x0d520, 0x0dd45, 0x0b5a0, 0x056d0, 0x055b2, 0x049b0,
             0x0a577, 0x0a4b0, 0x0aa50, 0x1b255, 0x06d20, 0x0ada0};
+    /**
+     * 农历数据表覆盖的年数，从 1900 年起
+     */
+    static final int LUNAR_INFO_YEARS = lunarInfo.length;
     /**
      * 节气
      */
@@ -51,6 +56,23 @@ public final class LunarGregorianConverter {
             63836, 85337, 107014, 128867, 150921, 173149, 195551, 218072,
             240693, 263343, 285989, 308563, 331033, 353350, 375494, 397447,
             419210, 440795, 462224, 483532, 504758};
+    /**
+     * 节气表覆盖的年份，之外的年份按公式现算
+     */
+    private static final int SOLAR_TERM_MIN_YEAR = 1900;
+    private static final int SOLAR_TERM_MAX_YEAR = 2100;
+    /**
+     * 各年 24 个节气的日，下标为 (年 - 1900) * 24 + 节气
+     */
+    private static final byte[] SOLAR_TERM_DAYS = new byte[(SOLAR_TERM_MAX_YEAR - SOLAR_TERM_MIN_YEAR + 1) * 24];
+
+    static {
+        for (int y = SOLAR_TERM_MIN_YEAR; y <= SOLAR_TERM_MAX_YEAR; y++) {
+            for (int n = 0; n < 24; n++) {
+                SOLAR_TERM_DAYS[(y - SOLAR_TERM_MIN_YEAR) * 24 + n] = (byte) computeSolarTermDay(y, n);
+            }
+        }
+    }
 
     private static final String[] SOLAR_TERM = new String[]{"小寒", "大寒", "立春", "雨水", "惊蛰", "春分", "清明", "谷雨", "立夏", "小满", "芒种", "夏至", "小暑", "大暑", "立秋", "处暑", "白露", "秋分", "寒露", "霜降", "立冬", "小雪", "大雪", "冬至"};
 
@@ -147,30 +169,13 @@ public final class LunarGregorianConverter {
         convert();// 转换日期
     }
 
-    /**
-     * 农历年份的总天数
-     *
-     * @param year 农历年份
-     * @return res
-     */
-    private static int totalDaysOfYear(int year) {
-        // 29*12
-        int sum = 348;
-        for (int i = 0x8000; i > 0x8; i >>= 1) {
-            // 大月 +1 天
-            sum += (lunarInfo[year - 1900] & i) == 0 ? 0 : 1;
-        }
-        // +闰月的天数
-        return (sum + leapDays(year));
-    }
-
     /**
      * 农历 year年闰月的天数
      *
      * @param year 年
      * @return year年闰月的天数
      */
-    private static int leapDays(int year) {
+    static int leapDays(int year) {
         int result = 0;
         if (leapMonth(year) != 0) {
             result = (lunarInfo[year - 1900] & 0x10000) == 0 ? 29 : 30;
@@ -184,7 +189,7 @@ public final class LunarGregorianConverter {
      * @param year 农历年份
      * @return year年闰哪个月 1-12 , 没闰传回 0
      */
-    private static int leapMonth(int year) {
+    static int leapMonth(int year) {
         return (lunarInfo[year - 1900] & 0xf);
     }
 
@@ -195,86 +200,42 @@ public final class LunarGregorianConverter {
      * @param m m 月
      * @return 总天数
      */
-    private static int monthDays(int y, int m) {
+    static int monthDays(int y, int m) {
         return ((lunarInfo[y - 1900] & (0x10000 >> m)) == 0 ? 29 : 30);
     }
 
     /**
-     * 将传入的日期转换为农历
+     * 将传入的日期转换为农历，见 {@link LunarCalendar}
      */
     private void convert() {
-        // 基准时间 1900-01-31是农历1900年正月初一
-        Calendar baseCalendar = Calendar.getInstance();
-        // 1900-01-31是农历1900年正月初一
-        baseCalendar.set(1900, 0, 31, 0, 0, 0);
-        Date baseDate = baseCalendar.getTime();
-        // 偏移量（天）// 天数(86400000=24*60*60*1000)
-        int offset = (int) ((calendar.getTimeInMillis() - baseDate.getTime()) / 86400000);
-        // 基准时间在天干地支纪年法中的位置
-        // 1898-10-01是农历甲子月
-        int monCyl = 14;
-        // 1899-12-21是农历1899年腊月甲子日
-        int dayCyl = offset + 40;
-
-        // 得到年数
-        int i;
-        int temp = 0;
-        for (i = 1900; i < 2050 && offset > 0; i++) {
-            // 农历每年天数
-            temp = totalDaysOfYear(i);
-            offset -= temp;
-            monCyl += 12;
-        }
-        if (offset < 0) {
-            offset += temp;
-            i--;
-            monCyl -= 12;
-        }
-        // 农历年份
-        int year = i;
+        long epochDay = EpochCalendar.epochDay(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+        int date = LunarCalendar.date(epochDay);
+        int year = LunarCalendar.year(date);
+        int month = LunarCalendar.month(date);
+        result[0] = year;
+        result[1] = month;
+        result[2] = LunarCalendar.day(date);
+        result[3] = LunarCalendar.isLeap(date) ? 1 : 0;
         // 1864年是甲子年
-        int yearCyl = i - 1864;
-        // 闰哪个月
-        int leap = leapMonth(i);
-        boolean isLeap = false;
-        int j;
-        for (j = 1; j < 13 && offset > 0; j++) {
-            // 闰月
-            if (leap > 0 && j == (leap + 1) && !isLeap) {
-                --j;
-                isLeap = true;
-                temp = leapDays(year);
-            } else {
-                temp = monthDays(year, j);
-            }
-            // 解除闰月
-            if (isLeap && j == (leap + 1)) {
-                isLeap = false;
-            }
-            offset -= temp;
-            if (!isLeap) {
-                monCyl++;
-            }
-        }
-        if (offset == 0 && leap > 0 && j == leap + 1) {
-            if (isLeap) {
-                isLeap = false;
-            } else {
-                isLeap = true;
-                --j;
-                --monCyl;
-            }
-        }
-        if (offset < 0) {
-            offset += temp;
-            --j;
-            --monCyl;
-        }
-        // 农历月份
-        int month = j;
-        // 农历天
-        int day = offset + 1;
-        result = new int[]{year, month, day, isLeap ? 1 : 0, yearCyl, monCyl, dayCyl};
+        result[4] = year - 1864;
+        // 1898-10-01是农历甲子月，闰月与所闰的月相同
+        result[5] = 14 + (year - 1900) * 12 + month - 1;
+        // 1899-12-21是农历1899年腊月甲子日
+        result[6] = (int) (epochDay - LunarCalendar.MIN_EPOCH_DAY) + 40;
+    }
+
+    /**
+     * 农历日期转换为公历
+     *
+     * @param year   农历年，1900-2049
+     * @param month  月 1-12
+     * @param day    日 1-30
+     * @param isLeap 是否闰月
+     * @return 公历日期
+     * @throws IllegalArgumentException 超出农历数据表的范围、当年没有这个闰月或当月没有这一天
+     */
+    public static LocalDate lunarToGregorian(int year, int month, int day, boolean isLeap) {
+        return LocalDate.ofEpochDay(LunarCalendar.epochDay(year, month, day, isLeap));
     }
 
     /**
@@ -382,9 +343,9 @@ public final class LunarGregorianConverter {
         int m = calendar.get(Calendar.MONTH);
         int d = calendar.get(Calendar.DAY_OF_MONTH);
         String solarTerms;
-        if (d == sTerm(y, m * 2)) {
+        if (d == solarTermDay(y, m * 2)) {
             solarTerms = SOLAR_TERM[m * 2];
-        } else if (d == sTerm(y, m * 2 + 1)) {
+        } else if (d == solarTermDay(y, m * 2 + 1)) {
             solarTerms = SOLAR_TERM[m * 2 + 1];
         } else {
             // 到这里说明非节气时间
@@ -399,11 +360,30 @@ public final class LunarGregorianConverter {
      * @return i
      */
     public int sTerm(int y, int n) {
-        Calendar cal = Calendar.getInstance();
-        cal.set(1900, 0, 6, 2, 5, 0);
-        long temp = cal.getTime().getTime();
-        cal.setTimeInMillis((long) ((31556925974.7 * (y - 1900) + S_TERM_INFO[n] * 60000L) + temp));
-        return cal.get(Calendar.DAY_OF_MONTH);
+        return solarTermDay(y, n);
+    }
+
+    /**
+     * 查节气表，表外的年份现算
+     *
+     * @param y 公历年
+     * @param n 节气，0 小寒 ... 23 冬至，第 n 个节气在 n / 2 + 1 月
+     * @return 日
+     */
+    static int solarTermDay(int y, int n) {
+        if (y >= SOLAR_TERM_MIN_YEAR && y <= SOLAR_TERM_MAX_YEAR) {
+            return SOLAR_TERM_DAYS[(y - SOLAR_TERM_MIN_YEAR) * 24 + n];
+        }
+        return computeSolarTermDay(y, n);
+    }
+
+    /**
+     * 1900-01-06 02:05(UTC) 是小寒，之后按回归年和各节气的分钟数推算，与公式的出处一样按 UTC 取日
+     */
+    private static int computeSolarTermDay(int y, int n) {
+        long base = EpochCalendar.epochDay(1900, 1, 6) * 86400000L + (2 * 60 + 5) * 60000L;
+        long millis = (long) ((31556925974.7 * (y - 1900) + S_TERM_INFO[n] * 60000L) + base);
+        return EpochCalendar.day(EpochCalendar.date(Math.floorDiv(millis, 86400000L)));
     }
 
     /**
@@ -428,10 +408,25 @@ public final class LunarGregorianConverter {
      * @return s
      */
     public String getHoliday() {
-        int m = calendar.get(Calendar.MONTH) + 1;
-        int d = calendar.get(Calendar.DAY_OF_MONTH);
-        int temp = (m << 8) + d;
-        return HOLIDAY_MAP.get(temp);
+        return gregorianHoliday(calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * @param m 月 1-12
+     * @param d 日
+     * @return 公历节日，没有时为 null
+     */
+    static String gregorianHoliday(int m, int d) {
+        return HOLIDAY_MAP.get((m << 8) + d);
+    }
+
+    /**
+     * @return 农历节日和公历节日的名字
+     */
+    static List<String> holidayNames() {
+        List<String> names = new ArrayList<>(LUNAR_HOLIDAY_MAP.values());
+        names.addAll(HOLIDAY_MAP.values());
+        return names;
     }
 
     /**
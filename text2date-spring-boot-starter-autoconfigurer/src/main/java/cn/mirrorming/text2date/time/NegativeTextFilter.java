@@ -0,0 +1,201 @@
+package cn.mirrorming.text2date.time;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 没有时间表达的文本：记录文本的 128 位指纹，再次出现时不用匹配直接返回空结果
+ * <p>
+ * 只记录规则和节日都没有命中的文本，这与相对时间、时区无关；命中了但解析失败的文本(比如农历数据表之外的年份的春节)
+ * 换一个相对时间可能有结果，不记录。指纹存在按桶分组的定长表里(每桶 4 个)，
+ * 桶满时覆盖其中一个，内存固定；丢掉的只是可以跳过的文本，不会漏掉时间实体。
+ * 与布隆过滤器不同，判断为空要求 128 位指纹完全相同，不同文本误判的概率约为 容量/2^127
+ * <p>
+ * 分当前、上一代两张表，每隔 rotation 丢掉上一代，记录最多保留两个周期，规则变化后的旧结果不会一直存在
+ */
+public final class NegativeTextFilter {
+    private static final int WAYS = 4;
+    private static final int STRIPES = 16;
+
+    private final int capacity;
+    private final long rotationMillis;
+    private volatile Generation current;
+    private volatile Generation previous;
+    private volatile long nextRotation;
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+
+    /**
+     * @param capacity 每一代最多记录的文本数
+     * @param rotation 轮换周期
+     */
+    public NegativeTextFilter(int capacity, Duration rotation) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        if (rotation.isNegative() || rotation.isZero()) {
+            throw new IllegalArgumentException("rotation must be positive: " + rotation);
+        }
+        this.capacity = capacity;
+        this.rotationMillis = rotation.toMillis();
+        this.current = new Generation(capacity);
+        this.previous = new Generation(capacity);
+        this.nextRotation = System.currentTimeMillis() + rotationMillis;
+    }
+
+    /**
+     * @param text 文本
+     * @return 是否记录过结果为空
+     */
+    boolean contains(CharSequence text) {
+        rotateIfDue();
+        lookups.increment();
+        long h1 = hash(text, 0x9E3779B97F4A7C15L);
+        long h2 = hash(text, 0xC2B2AE3D27D4EB4FL) | 1;
+        if (current.contains(h1, h2) || previous.contains(h1, h2)) {
+            hits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param text 规则和节日都没有命中的文本
+     */
+    void add(CharSequence text) {
+        records.increment();
+        current.add(hash(text, 0x9E3779B97F4A7C15L), hash(text, 0xC2B2AE3D27D4EB4FL) | 1);
+    }
+
+    private void rotateIfDue() {
+        long now = System.currentTimeMillis();
+        if (now < nextRotation) {
+            return;
+        }
+        synchronized (this) {
+            if (now < nextRotation) {
+                return;
+            }
+            previous = current;
+            current = new Generation(capacity);
+            nextRotation = now + rotationMillis;
+            rotations.increment();
+        }
+    }
+
+    /**
+     * 立即丢掉所有记录，规则变化时调用
+     */
+    public synchronized void clear() {
+        previous = new Generation(capacity);
+        current = new Generation(capacity);
+        nextRotation = System.currentTimeMillis() + rotationMillis;
+    }
+
+    /**
+     * 64 位哈希，两个不同的种子得到 128 位指纹
+     */
+    private static long hash(CharSequence text, long seed) {
+        long h = seed ^ text.length();
+        for (int i = 0; i < text.length(); i++) {
+            h = (h ^ text.charAt(i)) * 0x100000001B3L;
+            h = Long.rotateLeft(h, 29) * seed;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return 两代表占用的字节数
+     */
+    public long getMemoryBytes() {
+        return 2L * current.table.length * Long.BYTES;
+    }
+
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    /**
+     * @return 跳过解析的次数
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getRecordCount() {
+        return records.sum();
+    }
+
+    public long getRotationCount() {
+        return rotations.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "NegativeTextFilter[capacity=" + capacity + ", memoryBytes=" + getMemoryBytes() + ", lookups=" + getLookupCount()
+                + ", hits=" + getHitCount() + ", records=" + getRecordCount() + ", rotations=" + getRotationCount() + "]";
+    }
+
+    /**
+     * 一代记录：桶号取 h1 的低位，每桶 WAYS 个 (h1, h2)，h2 不为 0 表示有记录
+     */
+    private static final class Generation {
+        private final long[] table;
+        private final int mask;
+        private final Object[] locks = new Object[STRIPES];
+
+        Generation(int capacity) {
+            int buckets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS - 1) << 1);
+            table = new long[buckets * WAYS * 2];
+            mask = buckets - 1;
+            for (int i = 0; i < STRIPES; i++) {
+                locks[i] = new Object();
+            }
+        }
+
+        boolean contains(long h1, long h2) {
+            int bucket = (int) h1 & mask;
+            int base = bucket * WAYS * 2;
+            synchronized (locks[bucket & (STRIPES - 1)]) {
+                for (int i = base; i < base + WAYS * 2; i += 2) {
+                    if (table[i + 1] == h2 && table[i] == h1) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        void add(long h1, long h2) {
+            int bucket = (int) h1 & mask;
+            int base = bucket * WAYS * 2;
+            synchronized (locks[bucket & (STRIPES - 1)]) {
+                int free = -1;
+                for (int i = base; i < base + WAYS * 2; i += 2) {
+                    if (table[i + 1] == h2 && table[i] == h1) {
+                        return;
+                    }
+                    if (free < 0 && table[i + 1] == 0) {
+                        free = i;
+                    }
+                }
+                if (free < 0) {
+                    //桶满时按指纹选一个覆盖
+                    free = base + (int) (h2 >>> 62) * 2;
+                }
+                table[free] = h1;
+                table[free + 1] = h2;
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package cn.mirrorming.text2date.time;
+
+import cn.mirrorming.text2date.engine.RegexEngine;
+import cn.mirrorming.text2date.engine.RuleMatcher;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 一次解析用到的可复用对象：预处理缓冲区、字段转换器、各个正则的 Matcher、规则匹配器和临时数组，
+ * 稳定之后解析过程只分配返回的实体
+ * <p>
+ * 不是线程安全的，每个线程一个实例({@link #local()})，也可以由调用方创建后显式传入
+ */
+final class ParseContext {
+    private static final ThreadLocal<ParseContext> LOCAL = ThreadLocal.withInitial(ParseContext::new);
+
+    final TimeTextNormalizer normalizer = new TimeTextNormalizer();
+    final TimeFieldTransducer transducer = new TimeFieldTransducer(normalizer);
+    /**
+     * 正则提取字段时复用的 TimeFields
+     */
+    final TimeFields fields = new TimeFields();
+    /**
+     * 年、月、日、时、分、秒
+     */
+    final int[] arr = new int[6];
+    final int[] relativeFields = new int[6];
+    final boolean[] flags = new boolean[5];
+    final boolean[] shifts = new boolean[5];
+    final int[] weekdays = new int[5];
+
+    /**
+     * 合并后的实体：开始、结束位置、需要运行的字段解析器和其中第一个节日(见 {@link HolidayScanner}，没有时为 -1)，有效长度为 entityCount
+     */
+    int[] entityStarts = new int[8];
+    int[] entityEnds = new int[8];
+    int[] entitySlots = new int[8];
+    int[] entityHolidays = new int[8];
+    int entityCount;
+    /**
+     * {@link HolidayScanner} 找到的节日：开始、结束位置和词的下标，按位置排列且不重叠，有效长度为 holidayCount
+     */
+    int[] holidayStarts = new int[4];
+    int[] holidayEnds = new int[4];
+    int[] holidayWords = new int[4];
+    int holidayCount;
+
+    /**
+     * 相对时间的精度：用到了相对时间(本地)年、月、日、时、分中的前几个字段
+     */
+    static final int NONE = 0;
+    static final int YEAR = 1;
+    static final int MONTH = 2;
+    static final int DAY = 3;
+    static final int HOUR = 4;
+    static final int MINUTE = 5;
+    /**
+     * 当前实体的解析结果用到的相对时间精度，供 {@link TimeEntityCache} 判断缓存项何时失效
+     */
+    int relativePrecision;
+    /**
+     * 当前实体的解析读取了时钟时，时钟的本地小时数(epoch 小时)，否则为 Long.MIN_VALUE
+     */
+    long clockHour;
+
+    private final Map<Pattern, Matcher> matchers = new IdentityHashMap<>();
+    private RegexEngine engine;
+    private RuleMatcher ruleMatcher;
+
+    ParseContext() {
+    }
+
+    /**
+     * @return 当前线程的实例
+     */
+    static ParseContext local() {
+        return LOCAL.get();
+    }
+
+    /**
+     * @param pattern 正则
+     * @param text    文本
+     * @return 重置到 text 的 Matcher，在下一次以同一个 pattern 调用之前有效
+     */
+    Matcher matcher(Pattern pattern, CharSequence text) {
+        Matcher matcher = matchers.get(pattern);
+        if (matcher == null) {
+            matcher = pattern.matcher(text);
+            matchers.put(pattern, matcher);
+            return matcher;
+        }
+        return matcher.reset(text);
+    }
+
+    /**
+     * @param engine 匹配引擎
+     * @param text   文本
+     * @return 重置到 text 的规则匹配器，引擎不支持重置时新建
+     */
+    RuleMatcher ruleMatcher(RegexEngine engine, CharSequence text) {
+        if (this.engine == engine && ruleMatcher.reset(text)) {
+            return ruleMatcher;
+        }
+        this.engine = engine;
+        ruleMatcher = engine.matcher(text);
+        return ruleMatcher;
+    }
+
+    /**
+     * 解析结束后调用，不再引用解析的文本
+     */
+    void release() {
+        if (ruleMatcher != null && !ruleMatcher.reset("")) {
+            engine = null;
+            ruleMatcher = null;
+        }
+    }
+
+    /**
+     * 开始解析一个实体
+     */
+    void resetDependencies() {
+        relativePrecision = NONE;
+        clockHour = Long.MIN_VALUE;
+    }
+
+    /**
+     * @param precision 用到的相对时间精度
+     */
+    void dependsOn(int precision) {
+        if (precision > relativePrecision) {
+            relativePrecision = precision;
+        }
+    }
+
+    /**
+     * 加入一个实体，按开始位置依次加入，与上一个相邻或重叠时合并
+     *
+     * @param holiday 实体中的节日，没有时为 -1
+     */
+    void addEntity(int start, int end, int slots, int holiday) {
+        if (entityCount > 0 && start <= entityEnds[entityCount - 1]) {
+            entityEnds[entityCount - 1] = Math.max(end, entityEnds[entityCount - 1]);
+            entitySlots[entityCount - 1] |= slots;
+            if (entityHolidays[entityCount - 1] < 0) {
+                entityHolidays[entityCount - 1] = holiday;
+            }
+            return;
+        }
+        if (entityCount == entityStarts.length) {
+            entityStarts = Arrays.copyOf(entityStarts, entityCount * 2);
+            entityEnds = Arrays.copyOf(entityEnds, entityCount * 2);
+            entitySlots = Arrays.copyOf(entitySlots, entityCount * 2);
+            entityHolidays = Arrays.copyOf(entityHolidays, entityCount * 2);
+        }
+        entityStarts[entityCount] = start;
+        entityEnds[entityCount] = end;
+        entitySlots[entityCount] = slots;
+        entityHolidays[entityCount] = holiday;
+        entityCount++;
+    }
+
+    /**
+     * 加入一个节日，由 {@link HolidayScanner} 按位置依次调用
+     *
+     * @param word 词的下标
+     */
+    void addHoliday(int start, int end, int word) {
+        if (holidayCount == holidayStarts.length) {
+            holidayStarts = Arrays.copyOf(holidayStarts, holidayCount * 2);
+            holidayEnds = Arrays.copyOf(holidayEnds, holidayCount * 2);
+            holidayWords = Arrays.copyOf(holidayWords, holidayCount * 2);
+        }
+        holidayStarts[holidayCount] = start;
+        holidayEnds[holidayCount] = end;
+        holidayWords[holidayCount] = word;
+        holidayCount++;
+    }
+}
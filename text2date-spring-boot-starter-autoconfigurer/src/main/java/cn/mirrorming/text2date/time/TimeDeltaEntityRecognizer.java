@@ -1,6 +1,9 @@
 package cn.mirrorming.text2date.time;
 
-import cn.mirrorming.text2date.number.ChineseNumbers;
+import cn.mirrorming.text2date.engine.RegexEngine;
+import cn.mirrorming.text2date.engine.RegexEngineFactory;
+import cn.mirrorming.text2date.engine.RegexEngineType;
+import cn.mirrorming.text2date.engine.RuleMatcher;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -26,13 +29,20 @@ public class TimeDeltaEntityRecognizer {
     private static final long MINUTE_IN_SECONDS = 60;
 
 
-    private Pattern pattern;
+    private RegexEngine engine;
     private List<String> regexList;
 
     public TimeDeltaEntityRecognizer() {
         this(TimeDeltaEntityRecognizer.class.getResourceAsStream("/timedelta.regex"));
     }
 
+    /**
+     * @param engineFactory 匹配引擎，如 {@link RegexEngineType#DFA}
+     */
+    public TimeDeltaEntityRecognizer(RegexEngineFactory engineFactory) {
+        this(TimeDeltaEntityRecognizer.class.getResourceAsStream("/timedelta.regex"), engineFactory);
+    }
+
     public TimeDeltaEntityRecognizer(String file) throws IOException {
         this(new FileInputStream(file));
     }
@@ -44,6 +54,14 @@ public class TimeDeltaEntityRecognizer {
      * @throws IOException IO异常
      */
     public TimeDeltaEntityRecognizer(InputStream in) {
+        this(in, RegexEngineType.JDK);
+    }
+
+    /**
+     * @param in            InputStream
+     * @param engineFactory 匹配引擎
+     */
+    public TimeDeltaEntityRecognizer(InputStream in, RegexEngineFactory engineFactory) {
         try {
             regexList = IOUtils.readLines(in, "UTF-8")
                     .stream()
@@ -58,9 +76,7 @@ public class TimeDeltaEntityRecognizer {
         }
         long start = System.currentTimeMillis();
 
-        this.pattern = Pattern.compile(regexList.stream()
-                .map(item -> "(" + item + ")")
-                .collect(Collectors.joining("|")));
+        this.engine = engineFactory.create(regexList);
 
         long end = System.currentTimeMillis();
 
@@ -80,7 +96,7 @@ public class TimeDeltaEntityRecognizer {
     public List<TimeDeltaEntity> parse(String text) {
         List<TimeDeltaEntity> result = new ArrayList<>();
         int offset;
-        Matcher match = pattern.matcher(text);
+        RuleMatcher match = engine.matcher(text);
         while (match.find()) {
             TimeDeltaEntity lastEntity = result.isEmpty() ? null : result.get(result.size() - 1);
             offset = match.start();
@@ -112,18 +128,7 @@ public class TimeDeltaEntityRecognizer {
      * @return res
      */
     private String normalizeTimeDeltaString(String text) {
-        Pattern p = Pattern.compile("[一二两三四五六七八九十]+");
-        Matcher m = p.matcher(text);
-        StringBuffer sb = new StringBuffer();
-        boolean result = m.find();
-        while (result) {
-            String group = m.group();
-            Number number = ChineseNumbers.chineseNumberToEnglish(group);
-            m.appendReplacement(sb, String.valueOf(number.intValue()));
-            result = m.find();
-        }
-        m.appendTail(sb);
-        return sb.toString();
+        return TimeTextNormalizer.local().foldNumbers(text).toString();
     }
 
     /**
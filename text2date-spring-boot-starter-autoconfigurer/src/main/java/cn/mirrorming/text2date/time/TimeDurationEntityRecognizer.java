@@ -1,6 +1,9 @@
 package cn.mirrorming.text2date.time;
 
-import cn.mirrorming.text2date.number.ChineseNumbers;
+import cn.mirrorming.text2date.engine.RegexEngine;
+import cn.mirrorming.text2date.engine.RegexEngineFactory;
+import cn.mirrorming.text2date.engine.RegexEngineType;
+import cn.mirrorming.text2date.engine.RuleMatcher;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -28,13 +31,20 @@ public class TimeDurationEntityRecognizer {
     private static final long MINUTE_IN_SECONDS = 60;
 
 
-    private Pattern pattern;
+    private RegexEngine engine;
     private List<String> regexList;
 
     public TimeDurationEntityRecognizer() {
         this(TimeDurationEntityRecognizer.class.getResourceAsStream("/duration.regex"));
     }
 
+    /**
+     * @param engineFactory 匹配引擎，如 {@link RegexEngineType#DFA}
+     */
+    public TimeDurationEntityRecognizer(RegexEngineFactory engineFactory) {
+        this(TimeDurationEntityRecognizer.class.getResourceAsStream("/duration.regex"), engineFactory);
+    }
+
     /**
      * TimeDurationEntityRecognizer
      *
@@ -42,6 +52,14 @@ public class TimeDurationEntityRecognizer {
      * @throws IOException IO异常
      */
     public TimeDurationEntityRecognizer(InputStream in) {
+        this(in, RegexEngineType.JDK);
+    }
+
+    /**
+     * @param in            InputStream
+     * @param engineFactory 匹配引擎
+     */
+    public TimeDurationEntityRecognizer(InputStream in, RegexEngineFactory engineFactory) {
         try {
             regexList = IOUtils.readLines(in, "UTF-8").stream()
                     .map(StringUtils::stripToNull)
@@ -56,9 +74,7 @@ public class TimeDurationEntityRecognizer {
         }
         long start = System.currentTimeMillis();
 
-        this.pattern = Pattern.compile(regexList.stream()
-                .map(item -> "(" + item + ")")
-                .collect(Collectors.joining("|")));
+        this.engine = engineFactory.create(regexList);
 
         long end = System.currentTimeMillis();
         log.info("pattern initialized for {} patterns, time used(ms):{}", regexList.size(), (end - start));
@@ -73,7 +89,7 @@ public class TimeDurationEntityRecognizer {
     public List<TimeDurationEntity> parse(String text) {
         List<TimeDurationEntity> result = new ArrayList<>();
         int offset;
-        Matcher match = pattern.matcher(text);
+        RuleMatcher match = engine.matcher(text);
         while (match.find()) {
             TimeDurationEntity lastEntity = result.isEmpty() ? null : result.get(result.size() - 1);
             offset = match.start();
@@ -102,18 +118,7 @@ public class TimeDurationEntityRecognizer {
      * normalizeDurationString
      */
     private String normalizeDurationString(String text) {
-        Pattern p = Pattern.compile("[一二两三四五六七八九十]+");
-        Matcher m = p.matcher(text);
-        StringBuffer sb = new StringBuffer();
-        boolean result = m.find();
-        while (result) {
-            String group = m.group();
-            Number number = ChineseNumbers.chineseNumberToEnglish(group);
-            m.appendReplacement(sb, String.valueOf(number.intValue()));
-            result = m.find();
-        }
-        m.appendTail(sb);
-        return sb.toString();
+        return TimeTextNormalizer.local().foldNumbers(text).toString();
     }
 
     /**
@@ -2,6 +2,7 @@ package cn.mirrorming.text2date.time;
 
 import lombok.Data;
 
+import java.time.ZonedDateTime;
 import java.util.Date;
 
 /**
@@ -11,6 +12,10 @@ import java.util.Date;
 public class TimeEntity {
     private String original;
     private Date value;
+    /**
+     * 与 value 是同一时刻，带解析时的时区
+     */
+    private ZonedDateTime dateTime;
     private int offset;
     private Cycle cycle;
     private boolean isDateOnly;
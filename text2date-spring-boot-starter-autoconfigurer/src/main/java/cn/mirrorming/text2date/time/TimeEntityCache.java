@@ -0,0 +1,283 @@
+package cn.mirrorming.text2date.time;
+
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 时间实体的解析结果缓存：实体文本 + 时区 -> 解析出的年月日时分秒字段和 Cycle，按最近最少使用淘汰
+ * <p>
+ * 结果用到相对时间的哪些字段在解析时记录下来(见 {@link ParseContext#relativePrecision})，
+ * 缓存项只对这些字段相同的相对时间有效：“2020年3月5日”不受相对时间影响，“明天下午三点”在同一天内有效，
+ * “半小时后”在同一分钟内有效；相对时间移出这个范围后重新解析并替换缓存项
+ * <p>
+ * 按 key 的哈希分段加锁，各段分别按访问顺序淘汰
+ */
+public final class TimeEntityCache {
+    private static final int MAX_SEGMENTS = 16;
+
+    private final int maximumSize;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize 最大条数
+     */
+    public TimeEntityCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        int count = Integer.highestOneBit(Math.min(MAX_SEGMENTS, maximumSize));
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(maximumSize / count + (i < maximumSize % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * @param text              实体文本
+     * @param calendar          时区
+     * @param relative          相对时间(epoch 秒)
+     * @param isDefaultRelative 相对时间是否为调用方给出的时间
+     * @return 对这个相对时间有效的缓存项，没有时返回 null
+     */
+    Entry get(String text, EpochCalendar calendar, long relative, boolean isDefaultRelative) {
+        Key key = new Key(text, calendar.zone(), isDefaultRelative);
+        Segment segment = segmentOf(key);
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (!entry.validFor(calendar, relative)) {
+            invalidations.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry;
+    }
+
+    /**
+     * @param fields  解析出的字段，解析失败时为 null
+     * @param cycle   解析出的 Cycle
+     * @param context 记录了解析用到的相对时间字段
+     */
+    void put(String text, EpochCalendar calendar, long relative, boolean isDefaultRelative, int[] fields, Cycle cycle,
+             ParseContext context) {
+        Key key = new Key(text, calendar.zone(), isDefaultRelative);
+        Entry entry = new Entry(fields, cycle, calendar, relative, context.relativePrecision, context.clockHour);
+        Segment segment = segmentOf(key);
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+    }
+
+    private Segment segmentOf(Key key) {
+        int h = key.hash;
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return 当前条数
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return 未命中次数，包括因相对时间变化而失效的次数
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return 缓存项因相对时间变化而失效的次数
+     */
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    /**
+     * @return 因超出最大条数被淘汰的次数
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return 命中率，没有查询时为 0
+     */
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    @Override
+    public String toString() {
+        return "TimeEntityCache[size=" + size() + ", maximumSize=" + maximumSize + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount() + ", invalidations=" + getInvalidationCount() + ", evictions=" + getEvictionCount() + "]";
+    }
+
+    /**
+     * @param precision 用到的相对时间字段数，见 {@link ParseContext#relativePrecision}
+     * @param local     相对时间的本地时间
+     * @return 前 precision 个字段相同时相同的值
+     */
+    private static long bucket(int precision, long local) {
+        switch (precision) {
+            case ParseContext.YEAR:
+            case ParseContext.MONTH:
+                long date = EpochCalendar.date(Math.floorDiv(local, EpochCalendar.SECONDS_PER_DAY));
+                return precision == ParseContext.YEAR ? EpochCalendar.year(date) : EpochCalendar.year(date) * 12L + EpochCalendar.month(date);
+            case ParseContext.DAY:
+                return Math.floorDiv(local, EpochCalendar.SECONDS_PER_DAY);
+            case ParseContext.HOUR:
+                return Math.floorDiv(local, 3600);
+            default:
+                return Math.floorDiv(local, 60);
+        }
+    }
+
+    /**
+     * 当前时钟的本地小时数，见 {@link ParseContext#clockHour}
+     */
+    static long clockHour(EpochCalendar calendar) {
+        return Math.floorDiv(calendar.toLocal(System.currentTimeMillis() / 1000), 3600);
+    }
+
+    private final class Segment extends LinkedHashMap<Key, Entry> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Key {
+        private final String text;
+        private final ZoneId zone;
+        private final boolean isDefaultRelative;
+        private final int hash;
+
+        Key(String text, ZoneId zone, boolean isDefaultRelative) {
+            this.text = text;
+            this.zone = zone;
+            this.isDefaultRelative = isDefaultRelative;
+            this.hash = (text.hashCode() * 31 + zone.hashCode()) * 31 + (isDefaultRelative ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hash == key.hash && isDefaultRelative == key.isDefaultRelative && text.equals(key.text) && zone.equals(key.zone);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * 不可变，命中时复制到解析用的数组
+     */
+    static final class Entry {
+        /**
+         * 年、月、日、时、分、秒，解析失败时为 null
+         */
+        private final int[] fields;
+        private final Cycle cycle;
+        private final int precision;
+        /**
+         * 相对时间前 precision 个字段和 UTC 偏移，同一个本地时间在夏令时结束时有两个偏移
+         */
+        private final long bucket;
+        private final long offset;
+        private final long clockHour;
+
+        Entry(int[] fields, Cycle cycle, EpochCalendar calendar, long relative, int precision, long clockHour) {
+            this.fields = fields == null ? null : fields.clone();
+            this.cycle = cycle == null ? null : new Cycle(cycle.getType());
+            this.precision = precision;
+            long local = calendar.toLocal(relative);
+            this.bucket = precision == ParseContext.NONE ? 0 : bucket(precision, local);
+            this.offset = precision == ParseContext.NONE ? 0 : local - relative;
+            this.clockHour = clockHour;
+        }
+
+        private boolean validFor(EpochCalendar calendar, long relative) {
+            if (precision != ParseContext.NONE) {
+                long local = calendar.toLocal(relative);
+                if (local - relative != offset || bucket(precision, local) != bucket) {
+                    return false;
+                }
+            }
+            return clockHour == Long.MIN_VALUE || clockHour(calendar) == clockHour;
+        }
+
+        /**
+         * @param arr        解析用的字段数组
+         * @param timeEntity 设置 Cycle
+         * @return 是否解析成功
+         */
+        boolean apply(int[] arr, TimeEntity timeEntity) {
+            if (fields == null) {
+                return false;
+            }
+            System.arraycopy(fields, 0, arr, 0, fields.length);
+            if (cycle != null) {
+                timeEntity.setCycle(new Cycle(cycle.getType()));
+            }
+            return true;
+        }
+    }
+}
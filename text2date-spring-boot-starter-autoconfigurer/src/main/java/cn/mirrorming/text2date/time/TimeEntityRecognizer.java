@@ -23,16 +23,27 @@
  */
 package cn.mirrorming.text2date.time;
 
+import lombok.AccessLevel;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.WeekFields;
 import java.util.List;
 import java.util.TimeZone;
 
+import cn.mirrorming.text2date.engine.Prefilter;
+import cn.mirrorming.text2date.engine.RegexEngine;
+import cn.mirrorming.text2date.engine.RegexEngineFactory;
+import cn.mirrorming.text2date.engine.RegexEngineType;
+import cn.mirrorming.text2date.engine.RuleAnalyzer;
+import cn.mirrorming.text2date.engine.RuleMatcher;
 import cn.mirrorming.text2date.number.ChineseNumbers;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.stereotype.Component;
 
 import java.io.FileInputStream;
 import java.io.InputStream;
@@ -46,21 +57,68 @@ import java.util.stream.Collectors;
  * 时间实体识别器 主要工作类
  */
 @Slf4j
-@Component
 public class TimeEntityRecognizer {
-    private static final TimeZone CHINA_TIME_ZONE = TimeZone.getTimeZone("Asia/Shanghai");
-    private Pattern pattern;
+    private static final ZoneId CHINA_ZONE = ZoneId.of("Asia/Shanghai");
+    /**
+     * 与 Calendar.getInstance() 一样取默认区域的设置，计算当月的周数
+     */
+    private static final int MINIMAL_DAYS_IN_FIRST_WEEK = WeekFields.of(Locale.getDefault(Locale.Category.FORMAT)).getMinimalDaysInFirstWeek();
+    private RegexEngine engine;
+    /**
+     * 触发字符预过滤，文本中没有触发字符时不用匹配
+     */
+    private Prefilter prefilter;
+    /**
+     * 规则下标 -> 可能用到的字段解析器
+     */
+    private int[] ruleSlots;
+    /**
+     * 是否按 ruleSlots 跳过用不到的字段解析器，关掉时每个实体运行全部解析器，用于对照
+     */
+    @Setter(AccessLevel.PACKAGE)
+    private boolean dispatch = true;
     private List<String> regexList;
+    /**
+     * 是否用 {@link TimeFieldTransducer} 单遍提取字段，代替预处理和逐个字段的正则
+     */
+    @Setter
+    private boolean transducer;
+    /**
+     * 实体解析结果缓存，为 null 时不缓存
+     */
+    @Setter
+    private TimeEntityCache cache;
+    /**
+     * 规则和节日都没有命中的文本，为 null 时不记录
+     */
+    @Setter
+    private NegativeTextFilter negativeFilter;
+    /**
+     * 解析“三个工作日后”“下个工作日”用到的工作日日历
+     */
+    @Setter
+    private WorkdayCalendar workdayCalendar = WorkdayCalendar.defaults();
 
     public TimeEntityRecognizer() {
         this(TimeEntityRecognizer.class.getResourceAsStream("/time.regex"));
     }
 
+    /**
+     * @param engineFactory 匹配引擎，如 {@link RegexEngineType#DFA}
+     */
+    public TimeEntityRecognizer(RegexEngineFactory engineFactory) {
+        this(TimeEntityRecognizer.class.getResourceAsStream("/time.regex"), engineFactory);
+    }
+
     public TimeEntityRecognizer(String file) throws IOException {
         this(new FileInputStream(file));
     }
 
     public TimeEntityRecognizer(InputStream in) {
+        this(in, RegexEngineType.JDK);
+    }
+
+    public TimeEntityRecognizer(InputStream in, RegexEngineFactory engineFactory) {
         try {
             regexList = IOUtils.readLines(in, "UTF-8")
                     .stream()
@@ -77,20 +135,37 @@ public class TimeEntityRecognizer {
         }
         long start = System.currentTimeMillis();
         //读取pattern
-        this.pattern = Pattern.compile(regexList.stream()
-                .map(item -> "(" + item + ")")
-                .collect(Collectors.joining("|")));
+        this.engine = engineFactory.create(regexList);
+        this.prefilter = Prefilter.of(regexList);
+        this.ruleSlots = regexList.stream().mapToInt(TimeEntityRecognizer::slotsOf).toArray();
+        log.debug("prefilter initialized for {} trigger chars", prefilter.triggerCount());
 
         long end = System.currentTimeMillis();
 //        log.info("pattern initialized for {} patterns, time used(ms):{}", regexList.size(), (end - start));
     }
 
+    /**
+     * 文本中是否包含时间表达，只做匹配不做解析
+     *
+     * @param text 文本
+     * @return boolean
+     */
+    public boolean containsTime(CharSequence text) {
+        if (!prefilter.mayMatch(text)) {
+            return false;
+        }
+        ParseContext context = ParseContext.local();
+        boolean found = context.ruleMatcher(engine, text).find();
+        context.release();
+        return found;
+    }
+
     /**
      * @param text 需要解析的文本
      * @return List<TimeEntity>
      */
     public List<TimeEntity> parse(String text) {
-        return parse(text, CHINA_TIME_ZONE);
+        return parse(text, CHINA_ZONE, Instant.now());
     }
 
     /**
@@ -99,68 +174,102 @@ public class TimeEntityRecognizer {
      * @return List<TimeEntity>
      */
     public List<TimeEntity> parse(String text, TimeZone timeZone) {
-        return parse(text, timeZone, Calendar.getInstance(timeZone).getTime());
+        return parse(text, timeZone.toZoneId(), Instant.now());
     }
 
     /**
+     * 同 {@link #parse(CharSequence, ZoneId, Instant)}
+     *
      * @param text     解析文本
      * @param timeZone timeZone
      * @param relative relative
      * @return List<TimeEntity>
      */
     public List<TimeEntity> parse(String text, TimeZone timeZone, Date relative) {
+        return parse(text, timeZone.toZoneId(), relative.toInstant());
+    }
+
+    /**
+     * 时间计算见 {@link EpochCalendar}，结果同时给出 {@link TimeEntity#getDateTime()} 和 {@link TimeEntity#getValue()}
+     *
+     * @param text     解析文本
+     * @param zone     时区
+     * @param relative 相对时间
+     * @return List<TimeEntity>
+     */
+    public List<TimeEntity> parse(CharSequence text, ZoneId zone, Instant relative) {
+        return parse(text, zone, relative, ParseContext.local());
+    }
+
+    /**
+     * @param context 可复用的对象，同一时间只能用于一次解析
+     * @see #parse(CharSequence, ZoneId, Instant)
+     */
+    List<TimeEntity> parse(CharSequence text, ZoneId zone, Instant relative, ParseContext context) {
         List<TimeEntity> result = new ArrayList<>();
-        int offset;
-        Matcher match = pattern.matcher(text);
-        /**
-         * 匹配时间信息，连续的时间信息merge到一个实体中
-         */
+        if (!prefilter.mayMatch(text)) {
+            return result;
+        }
+        NegativeTextFilter negativeFilter = this.negativeFilter;
+        if (negativeFilter != null && negativeFilter.contains(text)) {
+            return result;
+        }
+        //匹配时间信息，连续的时间信息merge到一个实体中，同时记录每个实体可能用到的字段解析器，由命中的规则决定；
+        //节日按位置穿插其中，与规则命中的文本重叠时合并，实体记下其中的节日
+        context.entityCount = 0;
+        HolidayScanner.scan(text, context);
+        int holidaySlots = dispatch ? 0 : ALL_SLOTS;
+        int h = 0;
+        RuleMatcher match = context.ruleMatcher(engine, text);
         while (match.find()) {
-            TimeEntity lastEntity = result.isEmpty() ? null : result.get(result.size() - 1);
-            offset = match.start();
-            String matchedText = match.group();
-            if (lastEntity != null && offset == lastEntity.getOffset() + lastEntity.getOriginal().length()) {
-                lastEntity.setOriginal(lastEntity.getOriginal() + matchedText);
-            } else {
-                TimeEntity timeEntity = new TimeEntity(matchedText, offset);
-                result.add(timeEntity);
+            for (; h < context.holidayCount && context.holidayStarts[h] < match.start(); h++) {
+                context.addEntity(context.holidayStarts[h], context.holidayEnds[h], holidaySlots, context.holidayWords[h]);
             }
-        }
-        Iterator<TimeEntity> iterator = result.iterator();
-        Date lastRelative = relative;
-        while (iterator.hasNext()) {
-            TimeEntity timeEntity = iterator.next();
-            Date date = parseTime(
+            int rule = match.rule();
+            context.addEntity(match.start(), match.end(), rule < 0 || !dispatch ? ALL_SLOTS : ruleSlots[rule], -1);
+        }
+        for (; h < context.holidayCount; h++) {
+            context.addEntity(context.holidayStarts[h], context.holidayEnds[h], holidaySlots, context.holidayWords[h]);
+        }
+        context.release();
+        EpochCalendar calendar = EpochCalendar.of(zone);
+        //与 Date 一样精确到毫秒
+        long relativeMillis = relative.toEpochMilli();
+        long lastRelative = relativeMillis;
+        for (int k = 0; k < context.entityCount; k++) {
+            int offset = context.entityStarts[k];
+            int end = context.entityEnds[k];
+            TimeEntity timeEntity = new TimeEntity(text.subSequence(offset, end).toString(), offset);
+            boolean parsed = parseTime(
                     timeEntity.getOriginal(),
-                    timeZone,
-                    lastRelative,
-                    lastRelative.equals(relative),
-                    timeEntity);
-
-            if (null != date) {
-                lastRelative = date;
+                    calendar,
+                    Math.floorDiv(lastRelative, 1000),
+                    lastRelative == relativeMillis,
+                    timeEntity,
+                    context.entitySlots[k],
+                    context.entityHolidays[k],
+                    context);
+
+            if (parsed) {
+                result.add(timeEntity);
+                lastRelative = timeEntity.getValue().getTime();
                 //识别时间循环，放到这里因为要考虑实体字符串的上下文，而时间实体中只是有识别出的时间字符串，缺乏上下文信息
-                offset = timeEntity.getOffset();
                 if (offset > 1 && text.charAt(offset - 1) == '到') {
                     timeEntity.setStart(false);
                     timeEntity.setEnd(true);
-                } else if (offset + timeEntity.getOriginal().length() < text.length()
-                        && text.charAt(offset + timeEntity.getOriginal().length()) == '到') {
+                } else if (end < text.length() && text.charAt(end) == '到') {
                     timeEntity.setStart(true);
                     timeEntity.setEnd(false);
                 }
-            } else {
-                iterator.remove();
             }
         }
         //double check time start and end, 比如5点到我这里来，5点会被设置为start=true，需要纠正过来
-        iterator = result.iterator();
         TimeEntity prev = null;
-        while (iterator.hasNext()) {
-            TimeEntity timeEntity = iterator.next();
+        for (int k = 0; k < result.size(); k++) {
+            TimeEntity timeEntity = result.get(k);
             if (timeEntity.isEnd() && prev == null) {
                 timeEntity.setEnd(false);
-            } else if (timeEntity.isStart() && !iterator.hasNext()) {
+            } else if (timeEntity.isStart() && k == result.size() - 1) {
                 timeEntity.setStart(false);
             }
             //每月三号上午8点到10点,对于这样的时间cycle，修正10点这个实体不带cycle属性的问题
@@ -169,50 +278,189 @@ public class TimeEntityRecognizer {
                     timeEntity.setCycle(prev.getCycle());
                 }
                 if (prev.getValue().getTime() > timeEntity.getValue().getTime()) {
-                    timeEntity.setValue(new Date(timeEntity.getValue().getTime() + 12 * 60 * 60 * 1000));
+                    setTime(timeEntity, timeEntity.getValue().getTime() / 1000 + 12 * 60 * 60, zone);
                 }
             }
             prev = timeEntity;
         }
+        //只记录没有任何命中的文本，命中了但解析失败的结果可能与相对时间有关
+        if (negativeFilter != null && context.entityCount == 0 && context.holidayCount == 0) {
+            negativeFilter.add(text);
+        }
         return result;
     }
 
     /**
-     * 参考StringPreHandlingModule, 将中文表达的日期、时间转化为数字表达
+     * 节假日直接解析为年、月、日，年份取相对时间所在的年
+     *
+     * @param holiday 节日编号
+     * @param arr     写入年月日，时分秒为 -1
+     * @return 当年有没有这个节日
+     */
+    private static boolean resolveHoliday(int holiday, EpochCalendar calendar, long relative, int[] arr, ParseContext context) {
+        if (!resolveHoliday(holiday, -1, calendar, relative, arr, context)) {
+            return false;
+        }
+        arr[3] = -1;
+        arr[4] = -1;
+        arr[5] = -1;
+        return true;
+    }
+
+    /**
+     * 节假日的年、月、日写入 arr，不改变时分秒
+     *
+     * @param year 公历年份，不大于 0 时取相对时间所在的年
+     * @return 当年有没有这个节日
+     */
+    private static boolean resolveHoliday(int holiday, int year, EpochCalendar calendar, long relative, int[] arr, ParseContext context) {
+        if (year <= 0) {
+            context.dependsOn(ParseContext.YEAR);
+            year = EpochCalendar.year(EpochCalendar.date(Math.floorDiv(calendar.toLocal(relative), EpochCalendar.SECONDS_PER_DAY)));
+        }
+        int date = HolidayCalendar.date(year, holiday);
+        if (date == 0) {
+            return false;
+        }
+        arr[0] = date / 10000;
+        arr[1] = date / 100 % 100;
+        arr[2] = date % 100;
+        return true;
+    }
+
+    /**
+     * 紧跟在节日后面的天数偏移：前三天、后2天、三天前、3天以后
      */
-    private static final Pattern NUMBER_P = Pattern.compile("[一二两三四五六七八九十]+");
+    private static final Pattern HOLIDAY_OFFSET_PATTERN = Pattern.compile("([前后])([0-9零一二两三四五六七八九十百千万]+)天|([0-9零一二两三四五六七八九十百千万]+)天[以之]?([前后])");
 
     /**
-     * 字符串预处理
+     * @param text        实体原文
+     * @param holidayWord 实体中的第一个节日
+     * @return 节日后面的天数偏移，之前为负；没有时为 Integer.MIN_VALUE
+     */
+    private static int holidayOffset(String text, int holidayWord, ParseContext context) {
+        int end = text.indexOf(HolidayScanner.word(holidayWord)) + HolidayScanner.length(holidayWord);
+        Matcher match = context.matcher(HOLIDAY_OFFSET_PATTERN, text);
+        match.region(end, text.length());
+        if (!match.lookingAt()) {
+            return Integer.MIN_VALUE;
+        }
+        int group = match.start(2) >= 0 ? 2 : 3;
+        int days = ChineseNumbers.chineseNumberToInt(text, match.start(group), match.end(group));
+        return text.charAt(match.start(group == 2 ? 1 : 4)) == '前' ? -days : days;
+    }
+
+    private static final String LUNAR_DAY = "(初[一二三四五六七八九十]|廿[一二三四五六七八九]|卅|二十[一二三四五六七八九]?|三十|十[一二三四五六七八九]?|[一二三四五六七八九]|[12][0-9]|30|[1-9])";
+    /**
+     * 农历/阴历、闰、月、日，与 time.regex 中的农历规则一致
+     */
+    private static final Pattern LUNAR_DATE_PATTERN = Pattern.compile("(农历|阴历)?(闰)?(十[一二]?|[正冬腊一二三四五六七八九]|1[0-2]|[1-9])月" + LUNAR_DAY + "?");
+
+    /**
+     * 农历日期换算为公历，覆盖 arr 中的年月日。农历日期是指以农历/阴历开头、闰月、正月/冬月/腊月，
+     * 或者日为初一、廿三、卅这样的写法，“八月十五”仍按公历
+     * <p>
+     * 年份取文本中的年份(包括“明年”“2年后”这样算出的年份)，没有时取相对时间所在的农历年；
+     * 当年没有这个闰月时按平月，日超出月末时取月末
+     *
+     * @param text 实体原文
+     * @param arr  年、月、日
+     */
+    private static void resolveLunar(String text, EpochCalendar calendar, long relative, int[] arr, ParseContext context) {
+        Matcher match = context.matcher(LUNAR_DATE_PATTERN, text);
+        while (match.find()) {
+            char monthChar = text.charAt(match.start(3));
+            char dayChar = match.start(4) < 0 ? 0 : text.charAt(match.start(4));
+            if (match.start(1) < 0 && match.start(2) < 0 && "正冬腊".indexOf(monthChar) < 0 && "初廿卅".indexOf(dayChar) < 0) {
+                continue;
+            }
+            int month = lunarNumber(text, match.start(3), match.end(3));
+            int day = match.start(4) < 0 ? 1 : lunarNumber(text, match.start(4), match.end(4));
+            int year = arr[0];
+            if (year <= 0) {
+                long epochDay = Math.floorDiv(calendar.toLocal(relative), EpochCalendar.SECONDS_PER_DAY);
+                if (!LunarCalendar.isSupported(epochDay)) {
+                    return;
+                }
+                context.dependsOn(ParseContext.DAY);
+                year = LunarCalendar.year(LunarCalendar.date(epochDay));
+            }
+            if (year < LunarCalendar.MIN_YEAR || year > LunarCalendar.MAX_YEAR || month < 1 || month > 12 || day < 1) {
+                return;
+            }
+            boolean leap = match.start(2) >= 0 && LunarGregorianConverter.leapMonth(year) == month;
+            day = Math.min(day, LunarCalendar.lengthOfMonth(year, month, leap));
+            long date = EpochCalendar.date(LunarCalendar.epochDay(year, month, day, leap));
+            arr[0] = EpochCalendar.year(date);
+            arr[1] = EpochCalendar.month(date);
+            arr[2] = EpochCalendar.day(date);
+            return;
+        }
+    }
+
+    /**
+     * 与 time.regex 中的工作日规则一致
+     */
+    private static final Pattern WORKDAY_PATTERN = Pattern.compile("(下一?个?|([0-9零一二两三四五六七八九十百千万]+)个?)工作日([以之]?([后前内]))?");
+
+    /**
+     * “三个工作日后”“两个工作日内”“下个工作日”按 {@link WorkdayCalendar} 换算为相对时间所在日期之后(“前”为之前)的第 n 个工作日，
+     * 覆盖 arr 中的年月日
+     *
+     * @param text 实体原文
+     * @param arr  年、月、日
+     */
+    private void resolveWorkday(String text, EpochCalendar calendar, long relative, int[] arr, ParseContext context) {
+        Matcher match = context.matcher(WORKDAY_PATTERN, text);
+        if (!match.find()) {
+            return;
+        }
+        int n = match.start(2) < 0 ? 1 : ChineseNumbers.chineseNumberToInt(text, match.start(2), match.end(2));
+        if (n <= 0) {
+            return;
+        }
+        if (match.start(4) >= 0 && text.charAt(match.start(4)) == '前') {
+            n = -n;
+        }
+        context.dependsOn(ParseContext.DAY);
+        long epochDay = Math.floorDiv(calendar.toLocal(relative), EpochCalendar.SECONDS_PER_DAY);
+        long date = EpochCalendar.date(workdayCalendar.nthWorkdayAfter(epochDay, n));
+        arr[0] = EpochCalendar.year(date);
+        arr[1] = EpochCalendar.month(date);
+        arr[2] = EpochCalendar.day(date);
+    }
+
+    /**
+     * @return 农历的月、日：正月、冬月、腊月、初X、廿X、卅，其余为中文或阿拉伯数字
+     */
+    private static int lunarNumber(String text, int start, int end) {
+        switch (text.charAt(start)) {
+            case '正':
+                return 1;
+            case '冬':
+                return 11;
+            case '腊':
+                return 12;
+            case '卅':
+                return 30;
+            case '初':
+                return ChineseNumbers.chineseNumberToInt(text, start + 1, end);
+            case '廿':
+                return 20 + ChineseNumbers.chineseNumberToInt(text, start + 1, end);
+            default:
+                return ChineseNumbers.chineseNumberToInt(text, start, end);
+        }
+    }
+
+    /**
+     * 字符串预处理，参考StringPreHandlingModule, 将中文表达的日期、时间转化为数字表达
      *
      * @param text 文本
-     * @return String 处理后的
+     * @return 处理后的文本，即 context 中的缓冲区
+     * @see TimeTextNormalizer
      */
-    private String normalizeTimeString(String text) {
-        //节假日转换
-        String holidayRes = Holiday2StringConverter.holidayDate(text);
-        if (null != holidayRes) {
-            text = holidayRes;
-        }
-        text = text.replace("礼拜", "星期");
-        text = text.replace("今儿", "今天");
-        text = text.replace("周日", "周7").replace("：", ":");
-        text = text.replace("周天", "周7");
-        text = text.replace("星期日", "星期7");
-        text = text.replace("星期天", "星期7");
-
-
-        Matcher m = NUMBER_P.matcher(text);
-        StringBuffer sb = new StringBuffer();
-        boolean result = m.find();
-        while (result) {
-            String group = m.group();
-            Number number = ChineseNumbers.chineseNumberToEnglish(group);
-            m.appendReplacement(sb, String.valueOf(number.intValue()));
-            result = m.find();
-        }
-        m.appendTail(sb);
-        return sb.toString();
+    private CharSequence normalizeTimeString(String text, ParseContext context) {
+        return context.normalizer.normalize(text);
     }
 
     /**
@@ -220,7 +468,10 @@ public class TimeEntityRecognizer {
      * @return res
      */
     private boolean validTime(int[] arr) {
-        int sum = Arrays.stream(arr).sum();
+        int sum = 0;
+        for (int value : arr) {
+            sum += value;
+        }
         //month
         if (arr[1] > 12) {
             return false;
@@ -245,55 +496,202 @@ public class TimeEntityRecognizer {
     }
 
     /**
-     * @param text 需要解析的文本
-     * @return res
+     * 字段解析器，每个解析器的正则只有在文本中出现对应的关键字符时才可能匹配
      */
-    private Date parseTime(String text, TimeZone timeZone, Date relative, boolean isDefaultRelative, TimeEntity timeEntity) {
-        text = normalizeTimeString(text);
-        int year = parseYear(text);
-        int month = parseMonth(text);
-        int day = parseDay(text);
-        int hour = parseHour(text);
-        int minute = parseMinute(text);
-        int second = parseSecond(text);
-        int[] arr = {year, month, day, hour, minute, second};
-        String cycle = parseCycle(text);
-        if (null != cycle) {
-            timeEntity.setCycle(Cycle.parseCycle(cycle));
-        }
-        overallParse(text, arr);
-        parseRelative(text, timeZone, relative, arr);
-        parseCurrentRelative(text, timeZone, relative, arr);
-        if (!validTime(arr)) {
-            return null;
+    private static final int YEAR_SLOT = 1;
+    private static final int MONTH_SLOT = 1 << 1;
+    private static final int DAY_SLOT = 1 << 2;
+    private static final int HOUR_SLOT = 1 << 3;
+    private static final int MINUTE_SLOT = 1 << 4;
+    private static final int SECOND_SLOT = 1 << 5;
+    private static final int CYCLE_SLOT = 1 << 6;
+    private static final int OVERALL_SLOT = 1 << 7;
+    private static final int RELATIVE_SLOT = 1 << 8;
+    private static final int CURRENT_RELATIVE_SLOT = 1 << 9;
+    private static final int LUNAR_SLOT = 1 << 10;
+    private static final int WORKDAY_SLOT = 1 << 11;
+    private static final int ALL_SLOTS = (1 << 12) - 1;
+    /**
+     * 与上面的解析器一一对应的关键字符
+     */
+    private static final String[] SLOT_KEY_CHARS = {
+            "年", "月", "日号月", "点时凌早午mM傍晚", "分点时", "秒分", "每", ":午mM晚-/.", "前后天", "年月天昨今明周星", "农阴闰正冬腊初廿卅", "工"};
+    private static final String HOLIDAY_CHARS = String.join("", Holiday2StringConverter.HOLIDAY) + "感恩父亲母节";
+
+    /**
+     * 规则命中的文本经过 normalizeTimeString 之后可能用到哪些字段解析器
+     *
+     * @param rule 规则
+     * @return slots
+     */
+    private static int slotsOf(String rule) {
+        BitSet chars = RuleAnalyzer.alphabet(rule);
+        if (chars == null) {
+            return ALL_SLOTS;
         }
-        normalize(text, arr, timeZone, relative, isDefaultRelative);
-        Calendar calendar = Calendar.getInstance(timeZone);
-        calendar.clear();
+        //normalizeTimeString 替换后新出现的字符
+        if (HOLIDAY_CHARS.chars().anyMatch(chars::get)) {
+            "年月日".chars().forEach(chars::set);
+        }
+        if (chars.get('礼')) {
+            "星期".chars().forEach(chars::set);
+        }
+        if (chars.get('儿')) {
+            chars.set('天');
+        }
+        if (chars.get('：')) {
+            chars.set(':');
+        }
+        int slots = 0;
+        for (int i = 0; i < SLOT_KEY_CHARS.length; i++) {
+            if (SLOT_KEY_CHARS[i].chars().anyMatch(chars::get)) {
+                slots |= 1 << i;
+            }
+        }
+        return slots;
+    }
 
-        final int[] fields = {
-                Calendar.YEAR,
-                Calendar.MONTH,
-                Calendar.DAY_OF_MONTH,
-                Calendar.HOUR_OF_DAY,
-                Calendar.MINUTE,
-                Calendar.SECOND
-        };
+    /**
+     * 用各字段的正则提取
+     *
+     * @param text  normalizeTimeString 之后的文本
+     * @param slots 需要运行的字段解析器
+     * @return TimeFields
+     */
+    private TimeFields parseFields(CharSequence text, int slots, ParseContext context) {
+        TimeFields fields = context.fields;
+        fields.reset();
+        if ((slots & YEAR_SLOT) != 0) {
+            fields.setYear(parseYear(text, context));
+        }
+        if ((slots & MONTH_SLOT) != 0) {
+            fields.setMonth(parseMonth(text, context));
+        }
+        if ((slots & DAY_SLOT) != 0) {
+            fields.setDay(parseDay(text, context));
+        }
+        if ((slots & HOUR_SLOT) != 0) {
+            fields.setHour(parseHour(text, context));
+        }
+        if ((slots & MINUTE_SLOT) != 0) {
+            fields.setMinute(parseMinute(text, context));
+        }
+        if ((slots & SECOND_SLOT) != 0) {
+            fields.setSecond(parseSecond(text, context));
+        }
+        if ((slots & CYCLE_SLOT) != 0) {
+            fields.setCycle(parseCycle(text, context));
+        }
+        if ((slots & OVERALL_SLOT) != 0) {
+            overallParse(text, fields, context);
+        }
+        if ((slots & RELATIVE_SLOT) != 0) {
+            parseRelative(text, fields, context);
+        }
+        if ((slots & CURRENT_RELATIVE_SLOT) != 0) {
+            parseCurrentRelative(text, fields, context);
+        }
+        fields.setTimeModifier(context.matcher(TIME_MODIFIER_PATTERN, text).find());
+        return fields;
+    }
 
-        for (int i = 0; i < arr.length; i++) {
-            if (arr[i] > 0) {
-                calendar.set(fields[i], arr[i]);
+    /**
+     * @param text  需要解析的文本
+     * @param slots       需要运行的字段解析器
+     * @param holidayWord 实体中的第一个节日在 {@link HolidayScanner} 词典中的下标，没有时为 -1
+     * @return res
+     */
+    private boolean parseTime(String text, EpochCalendar calendar, long relative, boolean isDefaultRelative, TimeEntity timeEntity, int slots,
+                              int holidayWord, ParseContext context) {
+        int[] arr = context.arr;
+        TimeEntityCache cache = this.cache;
+        TimeEntityCache.Entry cached = cache == null ? null : cache.get(text, calendar, relative, isDefaultRelative);
+        if (cached != null) {
+            if (!cached.apply(arr, timeEntity)) {
+                return false;
+            }
+        } else {
+            context.resetDependencies();
+            boolean resolved = resolveFields(text, calendar, relative, isDefaultRelative, timeEntity, slots, holidayWord, context);
+            if (cache != null) {
+                cache.put(text, calendar, relative, isDefaultRelative, resolved ? arr : null, timeEntity.getCycle(), context);
+            }
+            if (!resolved) {
+                return false;
             }
         }
-        if (arr[1] > 0) {
-            calendar.set(Calendar.MONTH, arr[1] - 1);
-        }
-        Date ret = calendar.getTime();
-        timeEntity.setValue(calendar.getTime());
+        //没有的字段取 1970-01-01 00:00:00，日、时超出范围时顺延
+        long epochDay = EpochCalendar.epochDay(arr[0] > 0 ? arr[0] : 1970, arr[1] > 0 ? arr[1] : 1, arr[2] > 0 ? arr[2] : 1);
+        long secondOfDay = Math.max(arr[3], 0) * 3600L + Math.max(arr[4], 0) * 60L + Math.max(arr[5], 0);
+        setTime(timeEntity, calendar.toEpochSecond(epochDay * EpochCalendar.SECONDS_PER_DAY + secondOfDay), calendar.zone());
         if (arr[3] + arr[4] + arr[5] <= -3) {//没有时间信息
             timeEntity.setDateOnly(true);
         }
-        return ret;
+        return true;
+    }
+
+    /**
+     * 解析出年月日时分秒，写入 context.arr，同时记录用到的相对时间
+     * <p>
+     * 实体只是一个节日时直接取节日的日期；节日带着其他时间信息时(如“明年国庆节上午9点”)，先解析其他字段，
+     * 没有月、日时再用节日在解析出的年份(没有时取相对时间所在的年)的日期；
+     * 节日后面紧跟着天数偏移时(如“春节前三天”)，日期取节日加减天数，不按相对时间加减
+     *
+     * @param holidayWord 实体中的第一个节日在 {@link HolidayScanner} 词典中的下标，没有时为 -1
+     * @return 是否是有效的时间
+     */
+    private boolean resolveFields(String text, EpochCalendar calendar, long relative, boolean isDefaultRelative, TimeEntity timeEntity, int slots,
+                                  int holidayWord, ParseContext context) {
+        if (holidayWord >= 0 && text.length() == HolidayScanner.length(holidayWord)) {
+            return resolveHoliday(HolidayScanner.holiday(holidayWord), calendar, relative, context.arr, context);
+        }
+        TimeFields fields = transducer ? context.transducer.scan(text) : parseFields(normalizeTimeString(text, context), slots, context);
+        int[] arr = context.arr;
+        arr[0] = fields.getYear();
+        arr[1] = fields.getMonth();
+        arr[2] = fields.getDay();
+        arr[3] = fields.getHour();
+        arr[4] = fields.getMinute();
+        arr[5] = fields.getSecond();
+        if (null != fields.getCycle()) {
+            timeEntity.setCycle(Cycle.parseCycle(fields.getCycle()));
+        }
+        int holidayOffset = holidayWord < 0 ? Integer.MIN_VALUE : holidayOffset(text, holidayWord, context);
+        if (holidayOffset != Integer.MIN_VALUE) {
+            fields.setDaysBefore(-1);
+            fields.setDaysAfter(-1);
+        }
+        applyOverall(fields, arr);
+        applyRelative(fields, calendar, relative, arr, context);
+        applyCurrentRelative(fields, calendar, relative, arr, context);
+        if ((slots & LUNAR_SLOT) != 0) {
+            resolveLunar(text, calendar, relative, arr, context);
+        }
+        if ((slots & WORKDAY_SLOT) != 0) {
+            resolveWorkday(text, calendar, relative, arr, context);
+        }
+        if (holidayWord >= 0 && (holidayOffset != Integer.MIN_VALUE || arr[1] < 0 && arr[2] < 0)) {
+            if (!resolveHoliday(HolidayScanner.holiday(holidayWord), arr[0], calendar, relative, arr, context)) {
+                return false;
+            }
+            if (holidayOffset != Integer.MIN_VALUE) {
+                long date = EpochCalendar.date(EpochCalendar.epochDay(arr[0], arr[1], arr[2]) + holidayOffset);
+                arr[0] = EpochCalendar.year(date);
+                arr[1] = EpochCalendar.month(date);
+                arr[2] = EpochCalendar.day(date);
+            }
+        }
+        if (!validTime(arr)) {
+            return false;
+        }
+        normalize(fields.isTimeModifier(), arr, calendar, relative, isDefaultRelative, context);
+        return true;
+    }
+
+    private static void setTime(TimeEntity timeEntity, long epochSecond, ZoneId zone) {
+        Instant instant = Instant.ofEpochSecond(epochSecond);
+        timeEntity.setDateTime(ZonedDateTime.ofInstant(instant, zone));
+        timeEntity.setValue(Date.from(instant));
     }
 
     /**
@@ -304,13 +702,13 @@ public class TimeEntityRecognizer {
     /**
      * 对于arr数组中头部==-1的元素，用相对时间替换，同时对于当天已经是过去的时间表达，偏移到当天12小时之后
      *
-     * @param text              解析文本
+     * @param timeModifier      是否有 早上/下午/晚上 之类的修饰
      * @param arr               arr
      * @param timeZone          t
      * @param relative          t
      * @param isDefaultRelative t
      */
-    private void normalize(String text, int[] arr, TimeZone timeZone, Date relative, boolean isDefaultRelative) {
+    private void normalize(boolean timeModifier, int[] arr, EpochCalendar calendar, long relative, boolean isDefaultRelative, ParseContext context) {
         int j = 0;
         for (int i = 0; i < arr.length; i++) {
             if (arr[i] >= 0) {
@@ -318,33 +716,33 @@ public class TimeEntityRecognizer {
                 break;
             }
         }
-        Calendar calender = Calendar.getInstance(timeZone);
 
         //如果没有相对日期约束，时间又是过去的时间，并且当前识别的hour<=12, 设置为当天最近的一个未来时间
-        Matcher matcher = TIME_MODIFIER_PATTERN.matcher(text);
-        if (!matcher.find() && isDefaultRelative && arr[2] < 0 && arr[3] < calender.get(Calendar.HOUR_OF_DAY) &&
-                arr[3] <= 12) {
-            arr[3] += 12;
+        if (!timeModifier && isDefaultRelative && arr[2] < 0 && arr[3] <= 12) {
+            context.clockHour = TimeEntityCache.clockHour(calendar);
+            if (arr[3] < Math.floorMod(context.clockHour, 24)) {
+                arr[3] += 12;
+            }
         }
+        if (j == 0) {
+            return;
+        }
+        context.dependsOn(j);
 
-        calender.setTime(relative);
-
-        final int[] fields = {
-                Calendar.YEAR,
-                Calendar.MONTH,
-                Calendar.DAY_OF_MONTH,
-                Calendar.HOUR_OF_DAY,
-                Calendar.MINUTE,
-                Calendar.SECOND
-        };
+        long local = calendar.toLocal(relative);
+        long date = EpochCalendar.date(Math.floorDiv(local, EpochCalendar.SECONDS_PER_DAY));
+        int secondOfDay = (int) Math.floorMod(local, EpochCalendar.SECONDS_PER_DAY);
+        int[] relativeFields = context.relativeFields;
+        relativeFields[0] = EpochCalendar.year(date);
+        relativeFields[1] = EpochCalendar.month(date);
+        relativeFields[2] = EpochCalendar.day(date);
+        relativeFields[3] = secondOfDay / 3600;
+        relativeFields[4] = secondOfDay / 60 % 60;
+        relativeFields[5] = secondOfDay % 60;
 
         for (int i = 0; i < j; i++) {
             if (arr[i] < 0) {
-                if (i == 1) {
-                    arr[i] = calender.get(Calendar.MONTH) + 1;
-                } else {
-                    arr[i] = calender.get(fields[i]);
-                }
+                arr[i] = relativeFields[i];
             }
         }
     }
@@ -352,19 +750,19 @@ public class TimeEntityRecognizer {
     private static final Pattern YEAR_2_DIGIT_PATTERN = Pattern.compile("[0-9]{2}(?=年)");
     private static final Pattern YEAR_4_DIGIT_PATTERN = Pattern.compile("[0-9]?[0-9]{3}(?=年)");
 
-    private int parseYear(String text) {
+    private int parseYear(CharSequence text, ParseContext context) {
         int year = -1;
         /*
          * 不仅局限于支持1XXX年和2XXX年的识别，可识别三位数和四位数表示的年份
          */
-        Matcher match = YEAR_4_DIGIT_PATTERN.matcher(text);
+        Matcher match = context.matcher(YEAR_4_DIGIT_PATTERN, text);
         if (match.find()) {
-            year = Integer.parseInt(match.group());
+            year = number(text, match.start(), match.end());
         } else {
-            match = YEAR_2_DIGIT_PATTERN.matcher(text);
+            match = context.matcher(YEAR_2_DIGIT_PATTERN, text);
             if (match.find()) {
                 //注意这里逻辑上是不严格的，更多是从当前时间节点上大家的输入习惯
-                year = Integer.parseInt(match.group());
+                year = number(text, match.start(), match.end());
                 if (year >= 0 && year < 100) {
                     if (year < 30) {
                         year += 2000;
@@ -380,10 +778,10 @@ public class TimeEntityRecognizer {
 
     private static final Pattern MONTH_PATTERN = Pattern.compile("((?<!\\d))((10)|(11)|(12)|([1-9]))(?=月)");
 
-    private int parseMonth(String text) {
-        Matcher match = MONTH_PATTERN.matcher(text);
+    private int parseMonth(CharSequence text, ParseContext context) {
+        Matcher match = context.matcher(MONTH_PATTERN, text);
         if (match.find()) {
-            return Integer.parseInt(match.group());
+            return number(text, match.start(), match.end());
         }
         return -1;
     }
@@ -391,15 +789,15 @@ public class TimeEntityRecognizer {
     private static final Pattern DAY_PATTERN = Pattern.compile("(((?<!\\d))([0-3][0-9]|[1-9])(?=(日|号)))|((?<=月)([0-3][0-9]|[1-9])(?=(日|号))?)");
 //    private static final Pattern MONTH_DAY_PATTERN = Pattern.compile("(?<=月)([0-3][0-9]|[1-9])(?=(日|号))?");
 
-    private int parseDay(String text) {
-        Matcher match = DAY_PATTERN.matcher(text);
+    private int parseDay(CharSequence text, ParseContext context) {
+        Matcher match = context.matcher(DAY_PATTERN, text);
         if (match.find()) {
 //            int g = match.groupCount();
 //            for (int i = 0; i < g; i++) {
 //                String group = match.group(i);
 //                LOGGER.debug("group {}, str:{}", i, group);
 //            }
-            return Integer.parseInt(match.group());
+            return number(text, match.start(), match.end());
         }
         return -1;
     }
@@ -429,30 +827,30 @@ public class TimeEntityRecognizer {
      * @param text 需要解析的文本
      * @return res
      */
-    private int parseHour(String text) {
+    private int parseHour(CharSequence text, ParseContext context) {
         /*
          * 清除只能识别11-99时的bug
          */
 
         int hour = -1;
-        Matcher match = HOUR_PATTERN.matcher(text);
+        Matcher match = context.matcher(HOUR_PATTERN, text);
         if (match.find()) {
-            hour = Integer.parseInt(match.group());
+            hour = number(text, match.start(), match.end());
         }
-        match = EARLY_MORNING_PATTERN.matcher(text);
+        match = context.matcher(EARLY_MORNING_PATTERN, text);
         if (match.find()) {
             if (hour < 0) {
                 hour = 1;
             }
         }
 
-        match = MORNING_PATTERN.matcher(text);
+        match = context.matcher(MORNING_PATTERN, text);
         if (match.find()) {
             if (hour < 0) {
                 hour = 6;
             }
         }
-        match = FORENOON_PATTERN.matcher(text);
+        match = context.matcher(FORENOON_PATTERN, text);
         if (match.find()) {
             if (hour < 0) {
                 hour = 9;
@@ -468,7 +866,7 @@ public class TimeEntityRecognizer {
          *
          * add by 曹零
          */
-        match = NOON_PATTERN.matcher(text);
+        match = context.matcher(NOON_PATTERN, text);
         if (match.find()) {
             if (hour >= 0 && hour <= 10) {
                 hour += 12;
@@ -477,7 +875,7 @@ public class TimeEntityRecognizer {
             }
         }
 
-        match = AFTERNOON_PATTERN.matcher(text);
+        match = context.matcher(AFTERNOON_PATTERN, text);
         if (match.find()) {
             if (hour >= 0 && hour <= 11) {
                 hour += 12;
@@ -486,7 +884,7 @@ public class TimeEntityRecognizer {
             }
         }
 
-        match = EVENING_PATTERN.matcher(text);
+        match = context.matcher(EVENING_PATTERN, text);
         if (match.find()) {
             if (hour > 0 && hour < 11) {
                 hour += 12;
@@ -494,7 +892,7 @@ public class TimeEntityRecognizer {
                 hour = 18;
             }
         } else {
-            match = NIGHT_PATTERN.matcher(text);
+            match = context.matcher(NIGHT_PATTERN, text);
             if (match.find()) {
                 if (hour >= 1 && hour <= 11) {
                     hour += 12;
@@ -517,32 +915,32 @@ public class TimeEntityRecognizer {
      * @param text 解析文本
      * @return res
      */
-    private int parseMinute(String text) {
+    private int parseMinute(CharSequence text, ParseContext context) {
         /*
          * 添加了省略“分”说法的时间
          * 如17点15
          */
         int minute = -1;
-        Matcher match = MINUTE_PATTERN.matcher(text);
+        Matcher match = context.matcher(MINUTE_PATTERN, text);
         if (match.find()) {
-            minute = Integer.parseInt(match.group());
+            minute = number(text, match.start(), match.end());
         }
         /*
          * 添加对一刻，半，3刻的正确识别（1刻为15分，半为30分，3刻为45分）
          *
          * add by 曹零
          */
-        match = ONE_QUARTER_PATTERN.matcher(text);
+        match = context.matcher(ONE_QUARTER_PATTERN, text);
         if (match.find()) {
             minute = 15;
         }
 
-        match = TWO_QUARTER_PATTERN.matcher(text);
+        match = context.matcher(TWO_QUARTER_PATTERN, text);
         if (match.find()) {
             minute = 30;
         }
 
-        match = THREE_QUARTER_PATTERN.matcher(text);
+        match = context.matcher(THREE_QUARTER_PATTERN, text);
         if (match.find()) {
             minute = 45;
         }
@@ -551,14 +949,14 @@ public class TimeEntityRecognizer {
 
     private static final Pattern SECOND_PATTERN = Pattern.compile("([0-5]?[0-9](?=秒))|((?<=分)[0-5]?[0-9])");
 
-    private int parseSecond(String text) {
+    private int parseSecond(CharSequence text, ParseContext context) {
         /*
          * 添加了省略“分”说法的时间
          * 如17点15分32
          */
-        Matcher match = SECOND_PATTERN.matcher(text);
+        Matcher match = context.matcher(SECOND_PATTERN, text);
         if (match.find()) {
-            return Integer.parseInt(match.group());
+            return number(text, match.start(), match.end());
         }
         return -1;
     }
@@ -573,26 +971,60 @@ public class TimeEntityRecognizer {
 
     private static final Pattern DOT_YEAR_MONTH_DAY = Pattern.compile("[0-9]?[0-9]?[0-9]{2}\\.((10)|(11)|(12)|([1-9]))\\.((?<!\\d))([0-3][0-9]|[1-9])");
 
-    private void overallParse(String text, int[] arr) {
+    private void overallParse(CharSequence text, TimeFields fields, ParseContext context) {
         /*
          * 修改了函数中所有的匹配规则使之更为严格
          */
-        Matcher match = HOUR_MINUTE_SECOND_PATTERN.matcher(text);
+        Matcher match = context.matcher(HOUR_MINUTE_SECOND_PATTERN, text);
         if (match.find()) {
-            String[] splits = match.group().split(":");
-            arr[3] = Integer.parseInt(splits[0]);
-            arr[4] = Integer.parseInt(splits[1]);
-            arr[5] = Integer.parseInt(splits[2]);
+            int colon = indexOf(text, ':', match.start());
+            int colon2 = indexOf(text, ':', colon + 1);
+            fields.setClockHour(number(text, match.start(), colon));
+            fields.setClockMinute(number(text, colon + 1, colon2));
+            fields.setClockSecond(number(text, colon2 + 1, match.end()));
         } else {
             /*
              * 添加了省略秒的:固定形式的时间规则匹配
              * add by 曹零
              */
-            match = HOUR_MINUTE_PATTERN.matcher(text);
+            match = context.matcher(HOUR_MINUTE_PATTERN, text);
             if (match.find()) {
-                String[] splits = match.group().split(":");
-                arr[3] = Integer.parseInt(splits[0]);
-                arr[4] = Integer.parseInt(splits[1]);
+                int colon = indexOf(text, ':', match.start());
+                fields.setClockHour(number(text, match.start(), colon));
+                fields.setClockMinute(number(text, colon + 1, match.end()));
+            }
+        }
+        fields.setNoon(context.matcher(NOON_PATTERN, text).find());
+        fields.setAfternoon(context.matcher(AFTERNOON_PATTERN, text).find());
+        fields.setNight(context.matcher(NIGHT_PATTERN, text).find());
+
+        match = context.matcher(DASH_YEAR_MONTH_DAY, text);
+        if (match.find()) {
+            fields.setDashDate(splitDate(text, match.start(), match.end(), '-'));
+        }
+
+        match = context.matcher(SLASH_YEAR_MONTH_DAY, text);
+        if (match.find()) {
+            int[] date = splitDate(text, match.start(), match.end(), '/');
+            fields.setSlashDate(new int[]{date[2], date[0], date[1]});
+        }
+
+        /*
+         * 增加了:固定形式时间表达式 年.月.日 的正确识别
+         * add by 曹零
+         */
+        match = context.matcher(DOT_YEAR_MONTH_DAY, text);
+        if (match.find()) {
+            fields.setDotDate(splitDate(text, match.start(), match.end(), '.'));
+        }
+    }
+
+    private void applyOverall(TimeFields fields, int[] arr) {
+        if (fields.getClockHour() >= 0) {
+            arr[3] = fields.getClockHour();
+            arr[4] = fields.getClockMinute();
+            if (fields.getClockSecond() >= 0) {
+                arr[5] = fields.getClockSecond();
             }
         }
         /*
@@ -600,22 +1032,19 @@ public class TimeEntityRecognizer {
          * 中午,午间,下午,午后,晚上,傍晚,晚间,晚,pm,PM
          * 的正确时间计算，规约同上
          */
-        match = NOON_PATTERN.matcher(text);
-        if (match.find()) {
+        if (fields.isNoon()) {
             if (arr[3] >= 0 && arr[3] <= 10) {
                 arr[3] += 12;
             }
         }
 
-        match = AFTERNOON_PATTERN.matcher(text);
-        if (match.find()) {
+        if (fields.isAfternoon()) {
             if (arr[3] >= 0 && arr[3] <= 11) {
                 arr[3] += 12;
             }
         }
 
-        match = NIGHT_PATTERN.matcher(text);
-        if (match.find()) {
+        if (fields.isNight()) {
             if (arr[3] >= 1 && arr[3] <= 11) {
                 arr[3] += 12;
             } else if (arr[3] == 12) {
@@ -623,33 +1052,16 @@ public class TimeEntityRecognizer {
             }
         }
 
+        applyDate(fields.getDashDate(), arr);
+        applyDate(fields.getSlashDate(), arr);
+        applyDate(fields.getDotDate(), arr);
+    }
 
-        match = DASH_YEAR_MONTH_DAY.matcher(text);
-        if (match.find()) {
-            String[] splits = match.group().split("-");
-            arr[0] = Integer.parseInt(splits[0]);
-            arr[1] = Integer.parseInt(splits[1]);
-            arr[2] = Integer.parseInt(splits[2]);
-        }
-
-        match = SLASH_YEAR_MONTH_DAY.matcher(text);
-        if (match.find()) {
-            String[] splits = match.group().split("/");
-            arr[1] = Integer.parseInt(splits[0]);
-            arr[2] = Integer.parseInt(splits[1]);
-            arr[0] = Integer.parseInt(splits[2]);
-        }
-
-        /*
-         * 增加了:固定形式时间表达式 年.月.日 的正确识别
-         * add by 曹零
-         */
-        match = DOT_YEAR_MONTH_DAY.matcher(text);
-        if (match.find()) {
-            String[] splits = match.group().split("\\.");
-            arr[0] = Integer.parseInt(splits[0]);
-            arr[1] = Integer.parseInt(splits[1]);
-            arr[2] = Integer.parseInt(splits[2]);
+    private static void applyDate(int[] date, int[] arr) {
+        if (date != null) {
+            arr[0] = date[0];
+            arr[1] = date[1];
+            arr[2] = date[2];
         }
     }
 
@@ -668,153 +1080,207 @@ public class TimeEntityRecognizer {
     private static final Pattern YEAR_BEFORE_PATTERN = Pattern.compile("\\d+(?=年[以之]?前)");
     private static final Pattern YEAR_AFTER_PATTERN = Pattern.compile("\\d+(?=年[以之]?后)");
 
-    private void parseRelative(String text, TimeZone timeZone, Date relative, int[] arr) {
+    private void parseRelative(CharSequence text, TimeFields fields, ParseContext context) {
+        fields.setHoursBefore(findNumber(HOURS_BEFORE_PATTERN, text, context));
+        fields.setHoursAfter(findNumber(HOURS_AFTER_PATTERN, text, context));
+
+        //匹配xx个半小时前/后
+        Matcher match = context.matcher(HALF_AN_HOUR_BEFORE_PATTERN, text);
+        if (match.find()) {
+            fields.setHalfHourBefore(match.group());
+        }
+        match = context.matcher(HALF_AN_HOUR_AFTER_PATTERN, text);
+        if (match.find()) {
+            fields.setHalfHourAfter(match.group());
+        }
+
+        fields.setMinutesBefore(findNumber(MINUTE_BEFORE_PATTERN, text, context));
+        fields.setMinutesAfter(findNumber(MINUTE_AFTER_PATTERN, text, context));
+        fields.setDaysBefore(findNumber(DAYS_BEFORE_PATTERN, text, context));
+        fields.setDaysAfter(findNumber(DAYS_AFTER_PATTERN, text, context));
+        fields.setMonthsBefore(findNumber(MONTH_BEFORE_PATTERN, text, context));
+        fields.setMonthsAfter(findNumber(MONTH_AFTER_PATTERN, text, context));
+        fields.setYearsBefore(findNumber(YEAR_BEFORE_PATTERN, text, context));
+        fields.setYearsAfter(findNumber(YEAR_AFTER_PATTERN, text, context));
+    }
 
-        Calendar calendar = Calendar.getInstance(timeZone);
-        calendar.setFirstDayOfWeek(Calendar.MONDAY);
-        calendar.setTime(relative);
+    /**
+     * @return 第一个匹配的数值，没有匹配时返回 -1
+     */
+    private static int findNumber(Pattern pattern, CharSequence text, ParseContext context) {
+        Matcher match = context.matcher(pattern, text);
+        return match.find() ? number(text, match.start(), match.end()) : -1;
+    }
+
+    /**
+     * 同 Integer.parseInt(text.subSequence(start, end))，不创建字符串
+     */
+    private static int number(CharSequence text, int start, int end) {
+        if (start >= end) {
+            throw new NumberFormatException("For input string: \"\"");
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(text.charAt(i), 10);
+            if (digit < 0 || value > (Integer.MAX_VALUE - digit) / 10) {
+                throw new NumberFormatException("For input string: \"" + text.subSequence(start, end) + "\"");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int indexOf(CharSequence text, char c, int from) {
+        for (int i = from; i < text.length(); i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean contains(CharSequence text, String s) {
+        for (int i = 0, last = text.length() - s.length(); i <= last; i++) {
+            int j = 0;
+            while (j < s.length() && text.charAt(i + j) == s.charAt(j)) {
+                j++;
+            }
+            if (j == s.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 以 separator 分隔的三个数
+     */
+    private static int[] splitDate(CharSequence text, int start, int end, char separator) {
+        int first = indexOf(text, separator, start);
+        int second = indexOf(text, separator, first + 1);
+        return new int[]{number(text, start, first), number(text, first + 1, second), number(text, second + 1, end)};
+    }
+
+    private void applyRelative(TimeFields fields, EpochCalendar calendar, long relative, int[] arr, ParseContext context) {
+        //时、分按时刻加减，天、月、年保持钟点
+        long time = relative;
         //年，月，日，小时，分钟
-        boolean[] flag = {false, false, false, false, false};
+        boolean[] flag = context.flags;
+        Arrays.fill(flag, false);
 
-        Matcher match = HOURS_BEFORE_PATTERN.matcher(text);
-        if (match.find()) {
-            int hour = Integer.parseInt(match.group());
-            calendar.add(Calendar.HOUR_OF_DAY, -hour);
+        if (fields.getHoursBefore() >= 0) {
+            time -= fields.getHoursBefore() * 3600L;
             flag[3] = true;
             flag[4] = true;
         }
-        match = HOURS_AFTER_PATTERN.matcher(text);
-        if (match.find()) {
-            int hour = Integer.parseInt(match.group());
-            calendar.add(Calendar.HOUR_OF_DAY, hour);
+        if (fields.getHoursAfter() >= 0) {
+            time += fields.getHoursAfter() * 3600L;
             flag[3] = true;
             flag[4] = true;
         }
 
         //匹配xx个半小时前
-        match = HALF_AN_HOUR_BEFORE_PATTERN.matcher(text);
-        if (match.find()) {
-
-            String group = match.group();
+        if (fields.getHalfHourBefore() != null) {
+            String group = fields.getHalfHourBefore();
             if (group.startsWith("半")) {
-                calendar.add(Calendar.MINUTE, -30);
+                time -= 30 * 60;
                 flag[4] = true;
             } else {
-                calendar.add(Calendar.HOUR_OF_DAY, -Integer.parseInt(group.substring(0, 1)));
-                calendar.add(Calendar.MINUTE, -30);
+                time -= Integer.parseInt(group.substring(0, 1)) * 3600L;
+                time -= 30 * 60;
                 flag[3] = true;
                 flag[4] = true;
             }
         }
 
         //匹配xx个半小时后
-        match = HALF_AN_HOUR_AFTER_PATTERN.matcher(text);
-        if (match.find()) {
-            String group = match.group();
+        if (fields.getHalfHourAfter() != null) {
+            String group = fields.getHalfHourAfter();
             if (group.startsWith("半")) {
-                calendar.add(Calendar.MINUTE, 30);
+                time += 30 * 60;
                 flag[4] = true;
             } else {
-                calendar.add(Calendar.HOUR_OF_DAY, Integer.parseInt(group.substring(0, 1)));
-                calendar.add(Calendar.MINUTE, 30);
+                time += Integer.parseInt(group.substring(0, 1)) * 3600L;
+                time += 30 * 60;
                 flag[3] = true;
                 flag[4] = true;
             }
         }
 
-        match = MINUTE_BEFORE_PATTERN.matcher(text);
-        if (match.find()) {
-            int minute = Integer.parseInt(match.group());
-            calendar.add(Calendar.MINUTE, -minute);
+        if (fields.getMinutesBefore() >= 0) {
+            time -= fields.getMinutesBefore() * 60L;
             flag[4] = true;
         }
 
-        match = MINUTE_AFTER_PATTERN.matcher(text);
-        if (match.find()) {
-            int minute = Integer.parseInt(match.group());
-            calendar.add(Calendar.MINUTE, minute);
+        if (fields.getMinutesAfter() >= 0) {
+            time += fields.getMinutesAfter() * 60L;
             flag[4] = true;
         }
 
-//        match = HALF_AN_HOUR_PATTERN.matcher(text);
-//        if (match.find()) {
-//            int day = Integer.parseInt(match.group());
-//            calendar.add(Calendar.MINUTE, -30);
-//            flag[4] = true;
-//        }
-
-        match = DAYS_BEFORE_PATTERN.matcher(text);
-        if (match.find()) {
-            int day = Integer.parseInt(match.group());
-            calendar.add(Calendar.DATE, -day);
+        if (fields.getDaysBefore() >= 0) {
+            time = calendar.plusDays(time, -fields.getDaysBefore());
             flag[2] = true;
             flag[3] = true;
             flag[4] = true;
         }
 
-
-        match = DAYS_AFTER_PATTERN.matcher(text);
-        if (match.find()) {
-            int day = Integer.parseInt(match.group());
-            calendar.add(Calendar.DATE, day);
+        if (fields.getDaysAfter() >= 0) {
+            time = calendar.plusDays(time, fields.getDaysAfter());
             flag[2] = true;
             flag[3] = true;
             flag[4] = true;
         }
 
-        match = MONTH_BEFORE_PATTERN.matcher(text);
-        if (match.find()) {
-            int month = Integer.parseInt(match.group());
-            calendar.add(Calendar.MONTH, -month);
+        if (fields.getMonthsBefore() >= 0) {
+            time = calendar.plusMonths(time, -fields.getMonthsBefore());
             flag[1] = true;
         }
 
-        match = MONTH_AFTER_PATTERN.matcher(text);
-        if (match.find()) {
-            int month = Integer.parseInt(match.group());
-            calendar.add(Calendar.MONTH, month);
+        if (fields.getMonthsAfter() >= 0) {
+            time = calendar.plusMonths(time, fields.getMonthsAfter());
             flag[1] = true;
         }
 
-        match = YEAR_BEFORE_PATTERN.matcher(text);
-        if (match.find()) {
-            int year = Integer.parseInt(match.group());
-            calendar.add(Calendar.YEAR, -year);
+        if (fields.getYearsBefore() >= 0) {
+            time = calendar.plusMonths(time, -12L * fields.getYearsBefore());
             flag[0] = true;
         }
 
-        match = YEAR_AFTER_PATTERN.matcher(text);
-        if (match.find()) {
-            int year = Integer.parseInt(match.group());
-            calendar.add(Calendar.YEAR, year);
+        if (fields.getYearsAfter() >= 0) {
+            time = calendar.plusMonths(time, 12L * fields.getYearsAfter());
             flag[0] = true;
         }
-//        if (!relative.equals(calendar.getTime())) {
-//            arr[0] = calendar.get(Calendar.YEAR);
-//            arr[1] = calendar.get(Calendar.MONTH) + 1;
-//            arr[2] = calendar.get(Calendar.DAY_OF_MONTH);
-//        }
-        if (flag[0] || flag[1] || flag[2] || flag[3] || flag[4]) {
-            arr[0] = calendar.get(Calendar.YEAR);
+        if (!(flag[0] || flag[1] || flag[2] || flag[3] || flag[4])) {
+            return;
         }
+        //时、分、日按时刻加减，精确到分钟
+        context.dependsOn(flag[2] || flag[3] || flag[4] ? ParseContext.MINUTE : flag[1] ? ParseContext.MONTH : ParseContext.YEAR);
+        long local = calendar.toLocal(time);
+        long date = EpochCalendar.date(Math.floorDiv(local, EpochCalendar.SECONDS_PER_DAY));
+        int secondOfDay = (int) Math.floorMod(local, EpochCalendar.SECONDS_PER_DAY);
+        arr[0] = EpochCalendar.year(date);
         if (flag[1] || flag[2] || flag[3] || flag[4]) {
-            arr[1] = calendar.get(Calendar.MONTH) + 1;
+            arr[1] = EpochCalendar.month(date);
         }
         if (flag[2] || flag[3] || flag[4]) {
-            arr[2] = calendar.get(Calendar.DAY_OF_MONTH);
+            arr[2] = EpochCalendar.day(date);
         }
         if (flag[3] || flag[4]) {
-            arr[3] = calendar.get(Calendar.HOUR_OF_DAY);
+            arr[3] = secondOfDay / 3600;
         }
         if (flag[4]) {
-            arr[4] = calendar.get(Calendar.MINUTE);
+            arr[4] = secondOfDay / 60 % 60;
         }
     }
 
     private static final Pattern CYCLE_UNIT_PATTERN = Pattern.compile("((每天)|(每周[1-7])|(每月[1-31]号?)|每年)");
 
     public String parseCycle(String text) {
-        Matcher match = CYCLE_UNIT_PATTERN.matcher(text);
+        return parseCycle(text, ParseContext.local());
+    }
+
+    private String parseCycle(CharSequence text, ParseContext context) {
+        Matcher match = context.matcher(CYCLE_UNIT_PATTERN, text);
         if (match.find()) {
             return match.group();
         }
@@ -833,6 +1299,9 @@ public class TimeEntityRecognizer {
     private static final Pattern LAST_WEEKDAY_PATTERN = Pattern.compile("(?<=((?<!上)上(周|星期)))[1-7]");
     private static final Pattern NEXT_WEEKDAY_PATTERN = Pattern.compile("(?<=((?<!下)下(周|星期)))[1-7]");
     private static final Pattern NEXT_NEXT_WEEKDAY_PATTERN = Pattern.compile("(?<=(下下(周|星期)))[1-7]");
+    private static final int[] YEAR_SHIFTS = {-2, -1, 0, 1, 2};
+    private static final int[] MONTH_SHIFTS = {-1, 0, 1};
+    private static final int[] WEEK_SHIFTS = {-2, -1, 1, 2, 0};
     private static final Pattern THIS_WEEKDAY_PATTERN = Pattern.compile("(?<=((?<!(上|下))(周|星期)))[1-7]");
 
     /**
@@ -844,182 +1313,154 @@ public class TimeEntityRecognizer {
      * @param arr      arr
      */
     public void parseCurrentRelative(String text, TimeZone timeZone, Date relative, int[] arr) {
-        Calendar calendar = Calendar.getInstance(timeZone);
-        calendar.setFirstDayOfWeek(Calendar.MONDAY);
-        calendar.setTime(relative);
-        //观察时间表达式是否因当前相关时间表达式而改变时间
-        boolean[] flag = {false, false, false};
-
-        if (text.contains("前年")) {
-            calendar.add(Calendar.YEAR, -2);
-            flag[0] = true;
-        }
-
-        if (text.contains("去年")) {
-            calendar.add(Calendar.YEAR, -1);
-            flag[0] = true;
-        }
-
-        if (text.contains("今年")) {
-            calendar.add(Calendar.YEAR, 0);
-            flag[0] = true;
-        }
-
-        if (text.contains("明年")) {
-            calendar.add(Calendar.YEAR, 1);
-            flag[0] = true;
-        }
-
-        if (text.contains("后年")) {
-            calendar.add(Calendar.YEAR, 2);
-            flag[0] = true;
-        }
-
-        Matcher match = LAST_MONTH_PATTERN.matcher(text);
-        if (match.find()) {
-            calendar.add(Calendar.MONTH, -1);
-            flag[1] = true;
-        }
-
-        match = THIS_MONTH_PATTERN.matcher(text);
-        if (match.find()) {
-            calendar.add(Calendar.MONTH, 0);
-            flag[1] = true;
-        }
-
-        match = NEXT_MONTH_PATTERN.matcher(text);
-        if (match.find()) {
-            calendar.add(Calendar.MONTH, 1);
-            flag[1] = true;
-        }
-
-        if (text.contains("大大前天")) {
-            calendar.add(Calendar.DATE, -4);
-            flag[2] = true;
-        } else if (text.contains("大前天")) {
-            calendar.add(Calendar.DATE, -3);
-            flag[2] = true;
-        }
-
-        match = DAY_BEFORE_YESTERDAY_PATTERN.matcher(text);
-        if (match.find()) {
-            calendar.add(Calendar.DATE, -2);
-            flag[2] = true;
-        }
-
-        if (text.contains("昨")) {
-            calendar.add(Calendar.DATE, -1);
-            flag[2] = true;
-        }
-
-        match = TODAY_PATTERN.matcher(text);
-        if (match.find()) {
-            flag[2] = true;
-        }
-
-        match = TOMORROW_PATTERN.matcher(text);
-        if (match.find()) {
-            calendar.add(Calendar.DATE, 1);
-            flag[2] = true;
-        }
-
-        match = DAY_AFTER_TOMORROW_PATTERN.matcher(text);
-        if (match.find()) {
-            calendar.add(Calendar.DATE, 2);
-            flag[2] = true;
-        }
+        ParseContext context = ParseContext.local();
+        TimeFields fields = new TimeFields();
+        parseCurrentRelative(text, fields, context);
+        applyCurrentRelative(fields, EpochCalendar.of(timeZone.toZoneId()), Math.floorDiv(relative.getTime(), 1000), arr, context);
+    }
 
-        if (text.contains("大大后天")) {
-            calendar.add(Calendar.DATE, 4);
-            flag[2] = true;
-        } else if (text.contains("大后天")) {
-            calendar.add(Calendar.DATE, 3);
-            flag[2] = true;
-        }
+    private void parseCurrentRelative(CharSequence text, TimeFields fields, ParseContext context) {
+        fields.setYearBeforeLast(contains(text, "前年"));
+        fields.setLastYear(contains(text, "去年"));
+        fields.setThisYear(contains(text, "今年"));
+        fields.setNextYear(contains(text, "明年"));
+        fields.setYearAfterNext(contains(text, "后年"));
+
+        fields.setLastMonth(context.matcher(LAST_MONTH_PATTERN, text).find());
+        fields.setThisMonth(context.matcher(THIS_MONTH_PATTERN, text).find());
+        fields.setNextMonth(context.matcher(NEXT_MONTH_PATTERN, text).find());
+
+        int dayShift = 0;
+        boolean dayMentioned = false;
+        if (contains(text, "大大前天")) {
+            dayShift -= 4;
+            dayMentioned = true;
+        } else if (contains(text, "大前天")) {
+            dayShift -= 3;
+            dayMentioned = true;
+        }
+        if (context.matcher(DAY_BEFORE_YESTERDAY_PATTERN, text).find()) {
+            dayShift -= 2;
+            dayMentioned = true;
+        }
+        if (contains(text, "昨")) {
+            dayShift -= 1;
+            dayMentioned = true;
+        }
+        if (context.matcher(TODAY_PATTERN, text).find()) {
+            dayMentioned = true;
+        }
+        if (context.matcher(TOMORROW_PATTERN, text).find()) {
+            dayShift += 1;
+            dayMentioned = true;
+        }
+        if (context.matcher(DAY_AFTER_TOMORROW_PATTERN, text).find()) {
+            dayShift += 2;
+            dayMentioned = true;
+        }
+        if (contains(text, "大大后天")) {
+            dayShift += 4;
+            dayMentioned = true;
+        } else if (contains(text, "大后天")) {
+            dayShift += 3;
+            dayMentioned = true;
+        }
+        fields.setDayShift(dayShift);
+        fields.setDayMentioned(dayMentioned);
+
+        fields.setBeforeLastWeekday(findNumber(BEFORE_LAST_WEEKDAY_PATTERN, text, context));
+        fields.setLastWeekday(findNumber(LAST_WEEKDAY_PATTERN, text, context));
+        fields.setNextWeekday(findNumber(NEXT_WEEKDAY_PATTERN, text, context));
+        fields.setNextNextWeekday(findNumber(NEXT_NEXT_WEEKDAY_PATTERN, text, context));
+        fields.setThisWeekday(findNumber(THIS_WEEKDAY_PATTERN, text, context));
+    }
 
-        match = BEFORE_LAST_WEEKDAY_PATTERN.matcher(text);
-        if (match.find()) {
-            int week = Integer.parseInt(match.group());
-            if (week == 7) { // 周日=1，周二=2，。。。， 周六=7
-                week = 1;
-            } else {
-                week++;
+    private void applyCurrentRelative(TimeFields fields, EpochCalendar calendar, long relative, int[] arr, ParseContext context) {
+        long time = relative;
+        //Calendar 加减年、月之后紧接着设置星期几时，用的是加减之前那一天在当月的周数，见下面的周x
+        long weekOf = relative;
+        //观察时间表达式是否因当前相关时间表达式而改变时间：年，月，日
+        boolean[] flag = context.flags;
+        Arrays.fill(flag, false);
+
+        boolean[] years = context.shifts;
+        years[0] = fields.isYearBeforeLast();
+        years[1] = fields.isLastYear();
+        years[2] = fields.isThisYear();
+        years[3] = fields.isNextYear();
+        years[4] = fields.isYearAfterNext();
+        for (int i = 0; i < YEAR_SHIFTS.length; i++) {
+            if (years[i]) {
+                if (YEAR_SHIFTS[i] != 0) {
+                    weekOf = time;
+                }
+                time = calendar.plusMonths(time, 12L * YEAR_SHIFTS[i]);
+                flag[0] = true;
             }
-            calendar.add(Calendar.WEEK_OF_MONTH, -2);
-            calendar.set(Calendar.DAY_OF_WEEK, week);
-            flag[2] = true;
         }
 
-        match = LAST_WEEKDAY_PATTERN.matcher(text);
-        if (match.find()) {
-            int week = Integer.parseInt(match.group());
-            if (week == 7) {
-                week = 1;
-            } else {
-                week++;
+        boolean[] months = context.shifts;
+        months[0] = fields.isLastMonth();
+        months[1] = fields.isThisMonth();
+        months[2] = fields.isNextMonth();
+        for (int i = 0; i < MONTH_SHIFTS.length; i++) {
+            if (months[i]) {
+                if (MONTH_SHIFTS[i] != 0) {
+                    weekOf = time;
+                }
+                time = calendar.plusMonths(time, MONTH_SHIFTS[i]);
+                flag[1] = true;
             }
-            calendar.add(Calendar.WEEK_OF_MONTH, -1);
-            calendar.set(Calendar.DAY_OF_WEEK, week);
-            flag[2] = true;
         }
 
-//        rule = "(?<=((?<!下)下(周|星期)))[1-7]";
-        match = NEXT_WEEKDAY_PATTERN.matcher(text);
-        if (match.find()) {
-            int week = Integer.parseInt(match.group());
-            if (week == 7) {
-                week = 1;
-            } else {
-                week++;
+        if (fields.isDayMentioned()) {
+            time = calendar.plusDays(time, fields.getDayShift());
+            if (fields.getDayShift() != 0) {
+                weekOf = time;
             }
-            calendar.add(Calendar.WEEK_OF_MONTH, 1);
-            calendar.set(Calendar.DAY_OF_WEEK, week);
             flag[2] = true;
-
         }
 
-//        rule = "(?<=(下下(周|星期)))[1-7]";
-        match = NEXT_NEXT_WEEKDAY_PATTERN.matcher(text);
-        if (match.find()) {
-            int week = Integer.parseInt(match.group());
-            if (week == 7) {
-                week = 1;
-            } else {
-                week++;
+        //上上周x、上周x、下周x、下下周x、周x，一周从周一开始
+        int[] weekdays = context.weekdays;
+        weekdays[0] = fields.getBeforeLastWeekday();
+        weekdays[1] = fields.getLastWeekday();
+        weekdays[2] = fields.getNextWeekday();
+        weekdays[3] = fields.getNextNextWeekday();
+        weekdays[4] = fields.getThisWeekday();
+        for (int i = 0; i < WEEK_SHIFTS.length; i++) {
+            int week = weekdays[i];
+            if (week < 0) {
+                continue;
             }
-            calendar.add(Calendar.WEEK_OF_MONTH, 2);
-            calendar.set(Calendar.DAY_OF_WEEK, week);
-            flag[2] = true;
-
-        }
-
-//        rule = "(?<=((?<!(上|下))(周|星期)))[1-7]";
-        match = THIS_WEEKDAY_PATTERN.matcher(text);
-        if (match.find()) {
-            int week = Integer.parseInt(match.group());
-            if (week == 7) {
-                week = 1;
-            } else {
-                week++;
+            if (WEEK_SHIFTS[i] != 0) {
+                time = calendar.plusDays(time, 7L * WEEK_SHIFTS[i]);
+                weekOf = time;
             }
-//            calendar.add(Calendar.WEEK_OF_MONTH, 0);
-            calendar.set(Calendar.DAY_OF_WEEK, week);
+            long local = calendar.toLocal(time);
+            long epochDay = Math.floorDiv(local, EpochCalendar.SECONDS_PER_DAY);
+            long date = EpochCalendar.date(epochDay);
+            long firstWeek = EpochCalendar.firstWeekOfMonth(epochDay - EpochCalendar.day(date) + 1, MINIMAL_DAYS_IN_FIRST_WEEK);
+            //周数取自 weekOf 那一天，没有加减年、月时就是 time 所在的一周
+            long weekOfDay = Math.floorDiv(calendar.toLocal(weekOf), EpochCalendar.SECONDS_PER_DAY);
+            long weekOfDate = EpochCalendar.date(weekOfDay);
+            long weekOfFirstWeek = EpochCalendar.firstWeekOfMonth(weekOfDay - EpochCalendar.day(weekOfDate) + 1, MINIMAL_DAYS_IN_FIRST_WEEK);
+            long target = firstWeek + Math.floorDiv(weekOfDay - weekOfFirstWeek, 7) * 7 + week - 1;
+            time = calendar.toEpochSecond(local + (target - epochDay) * EpochCalendar.SECONDS_PER_DAY);
+            weekOf = time;
             flag[2] = true;
         }
-//        if (!relative.equals(calendar.getTime()) || text.contains("今")) {
-//            arr[0] = calendar.get(Calendar.YEAR);
-//            arr[1] = calendar.get(Calendar.MONTH) + 1;
-//            arr[2] = calendar.get(Calendar.DAY_OF_MONTH);
-//        }
-//        String s = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss").format(calendar.getTime());
-        if (flag[0] || flag[1] || flag[2]) {
-            arr[0] = calendar.get(Calendar.YEAR);
+        if (!(flag[0] || flag[1] || flag[2])) {
+            return;
         }
+        context.dependsOn(flag[2] ? ParseContext.DAY : flag[1] ? ParseContext.MONTH : ParseContext.YEAR);
+        long date = EpochCalendar.date(Math.floorDiv(calendar.toLocal(time), EpochCalendar.SECONDS_PER_DAY));
+        arr[0] = EpochCalendar.year(date);
         if (flag[1] || flag[2]) {
-            arr[1] = calendar.get(Calendar.MONTH) + 1;
+            arr[1] = EpochCalendar.month(date);
         }
         if (flag[2]) {
-            arr[2] = calendar.get(Calendar.DAY_OF_MONTH);
+            arr[2] = EpochCalendar.day(date);
         }
     }
 }
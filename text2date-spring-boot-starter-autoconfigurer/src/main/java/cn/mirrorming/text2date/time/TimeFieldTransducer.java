@@ -0,0 +1,726 @@
+package cn.mirrorming.text2date.time;
+
+import java.util.Arrays;
+
+/**
+ * 时间字段转换器：把 {@link TimeEntityRecognizer} 的预处理和逐个字段的正则编译成手写的状态转移，
+ * 预处理一遍、提取一遍，每个位置只做常数次字符比较
+ * <p>
+ * 每个字段取第一个匹配，回溯的结果按正则的贪婪/最左语义展开，和正则实现的结果一致
+ * <p>
+ * 每个 {@link ParseContext} 一个实例，每次 scan 重置状态
+ */
+final class TimeFieldTransducer {
+    private final TimeTextNormalizer normalizer;
+    /**
+     * 预处理后的文本，有效长度为 n
+     */
+    private char[] t;
+    private int n;
+    private final TimeFields fields = new TimeFields();
+
+    private int year4 = -1;
+    private int year2 = -1;
+    private int hour = -1;
+    private int minute = -1;
+    private int[] clock3;
+    private int[] clock2;
+    /**
+     * 凌晨、早上、上午、中午、下午、傍晚、晚
+     */
+    private boolean earlyMorning;
+    private boolean morning;
+    private boolean forenoon;
+    private boolean evening;
+    /**
+     * 点/时 之后的 1刻、半、3刻
+     */
+    private boolean oneQuarter;
+    private boolean twoQuarter;
+    private boolean threeQuarter;
+    /**
+     * 大大前天、大前天、前天、昨、今、明、后天、大后天、大大后天
+     */
+    private final boolean[] days = new boolean[9];
+    private static final int[] DAY_SHIFTS = {-4, -3, -2, -1, 0, 1, 2, 3, 4};
+
+    TimeFieldTransducer(TimeTextNormalizer normalizer) {
+        this.normalizer = normalizer;
+    }
+
+    /**
+     * @param text 时间实体原文，不是节日名(节日由调用方直接解析)
+     * @return TimeFields，在下一次 scan 之前有效
+     */
+    TimeFields scan(String text) {
+        normalizer.normalize(text);
+        t = normalizer.buffer();
+        n = normalizer.length();
+        reset();
+        run();
+        return fields;
+    }
+
+    private void reset() {
+        fields.reset();
+        year4 = -1;
+        year2 = -1;
+        hour = -1;
+        minute = -1;
+        clock3 = null;
+        clock2 = null;
+        earlyMorning = false;
+        morning = false;
+        forenoon = false;
+        evening = false;
+        oneQuarter = false;
+        twoQuarter = false;
+        threeQuarter = false;
+        Arrays.fill(days, false);
+    }
+
+    private void run() {
+        int runEnd = -1;
+        for (int i = 0; i < n; i++) {
+            char c = t[i];
+            if (isDigit(c) && i >= runEnd) {
+                runEnd = i;
+                while (runEnd < n && isDigit(t[runEnd])) {
+                    runEnd++;
+                }
+                relative(i, runEnd);
+            }
+            if (year4 < 0) {
+                year4 = year4(i);
+            }
+            if (year2 < 0) {
+                year2 = year2(i);
+            }
+            if (fields.getMonth() < 0) {
+                fields.setMonth(month(i));
+            }
+            if (fields.getDay() < 0) {
+                fields.setDay(day(i));
+            }
+            if (hour < 0) {
+                hour = hour(i);
+            }
+            if (minute < 0) {
+                minute = minute(i);
+            }
+            if (fields.getSecond() < 0) {
+                fields.setSecond(second(i));
+            }
+            if (fields.getCycle() == null && c == '每') {
+                fields.setCycle(cycle(i));
+            }
+            if (clock3 == null) {
+                clock3 = clock(i, true);
+            }
+            if (clock2 == null) {
+                clock2 = clock(i, false);
+            }
+            if (fields.getDashDate() == null) {
+                fields.setDashDate(yearFirstDate(i, '-'));
+            }
+            if (fields.getSlashDate() == null) {
+                fields.setSlashDate(slashDate(i));
+            }
+            if (fields.getDotDate() == null) {
+                fields.setDotDate(yearFirstDate(i, '.'));
+            }
+            if (fields.getHalfHourBefore() == null) {
+                fields.setHalfHourBefore(halfHour(i, '前'));
+            }
+            if (fields.getHalfHourAfter() == null) {
+                fields.setHalfHourAfter(halfHour(i, '后'));
+            }
+            if (c >= '1' && c <= '7') {
+                weekday(i);
+            }
+            keywords(i, c);
+        }
+
+        fields.setYear(year4 >= 0 ? year4 : year2 < 0 ? -1 : year2 < 30 ? year2 + 2000 : year2 + 1900);
+        fields.setHour(periodHour());
+        if (oneQuarter) {
+            minute = 15;
+        }
+        if (twoQuarter) {
+            minute = 30;
+        }
+        if (threeQuarter) {
+            minute = 45;
+        }
+        fields.setMinute(minute);
+        int[] clock = clock3 != null ? clock3 : clock2;
+        if (clock != null) {
+            fields.setClockHour(clock[0]);
+            fields.setClockMinute(clock[1]);
+            fields.setClockSecond(clock.length > 2 ? clock[2] : -1);
+        }
+        int dayShift = 0;
+        for (int i = 0; i < days.length; i++) {
+            if (days[i] && !(i == 1 && days[0]) && !(i == 7 && days[8])) {
+                dayShift += DAY_SHIFTS[i];
+                fields.setDayMentioned(true);
+            }
+        }
+        fields.setDayShift(dayShift);
+    }
+
+    /**
+     * 与 TimeEntityRecognizer#parseHour 相同的 凌晨/早上/中午/下午/晚上 规约
+     */
+    private int periodHour() {
+        int h = hour;
+        if ((earlyMorning || morning || forenoon) && h < 0) {
+            h = earlyMorning ? 1 : morning ? 6 : 9;
+        }
+        if (fields.isNoon()) {
+            if (h >= 0 && h <= 10) {
+                h += 12;
+            } else if (h < 0) {
+                h = 12;
+            }
+        }
+        if (fields.isAfternoon()) {
+            if (h >= 0 && h <= 11) {
+                h += 12;
+            } else if (h < 1) {
+                h = 14;
+            }
+        }
+        if (evening) {
+            if (h > 0 && h < 11) {
+                h += 12;
+            } else if (h < 1) {
+                h = 18;
+            }
+        } else if (fields.isNight()) {
+            if (h >= 1 && h <= 11) {
+                h += 12;
+            } else if (h == 12) {
+                h += 12;
+            } else if (h < 0) {
+                h = 20;
+            }
+        }
+        return h;
+    }
+
+    /**
+     * [0-9]?[0-9]{3}(?=年)
+     */
+    private int year4(int i) {
+        if (digits(i, 4) && at(i + 4) == '年') {
+            return number(i, i + 4);
+        }
+        if (digits(i, 3) && at(i + 3) == '年') {
+            return number(i, i + 3);
+        }
+        return -1;
+    }
+
+    /**
+     * [0-9]{2}(?=年)
+     */
+    private int year2(int i) {
+        return digits(i, 2) && at(i + 2) == '年' ? number(i, i + 2) : -1;
+    }
+
+    /**
+     * (?<!\d)(10|11|12|[1-9])(?=月)
+     */
+    private int month(int i) {
+        return isDigit(at(i - 1)) ? -1 : monthOf(i, '月');
+    }
+
+    /**
+     * (?<!\d)([0-3][0-9]|[1-9])(?=(日|号)) | (?<=月)([0-3][0-9]|[1-9])
+     */
+    private int day(int i) {
+        if (!isDigit(at(i - 1))) {
+            if (in(at(i), '0', '3') && isDigit(at(i + 1)) && isDayUnit(at(i + 2))) {
+                return number(i, i + 2);
+            }
+            if (in(at(i), '1', '9') && isDayUnit(at(i + 1))) {
+                return number(i, i + 1);
+            }
+        }
+        if (at(i - 1) == '月') {
+            if (in(at(i), '0', '3') && isDigit(at(i + 1))) {
+                return number(i, i + 2);
+            }
+            if (in(at(i), '1', '9')) {
+                return number(i, i + 1);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * (?<!(周|星期))([0-2]?[0-9])(?=(点|时))
+     */
+    private int hour(int i) {
+        if (weekBefore(i)) {
+            return -1;
+        }
+        if (in(at(i), '0', '2') && isDigit(at(i + 1)) && isClockUnit(at(i + 2))) {
+            return number(i, i + 2);
+        }
+        if (isDigit(at(i)) && isClockUnit(at(i + 1))) {
+            return number(i, i + 1);
+        }
+        return -1;
+    }
+
+    /**
+     * [0-5]?[0-9](?=分(?!钟)) | (?<=(?<!(周|星期|\d))[0-2]?[0-9](点|时))[0-5]?[0-9](?!刻)
+     */
+    private int minute(int i) {
+        if (in(at(i), '0', '5') && isDigit(at(i + 1)) && at(i + 2) == '分' && at(i + 3) != '钟') {
+            return number(i, i + 2);
+        }
+        if (isDigit(at(i)) && at(i + 1) == '分' && at(i + 2) != '钟') {
+            return number(i, i + 1);
+        }
+        if (isClockUnit(at(i - 1))
+                && ((in(at(i - 3), '0', '2') && isDigit(at(i - 2)) && !weekBefore(i - 3) && !isDigit(at(i - 4)))
+                || (isDigit(at(i - 2)) && !weekBefore(i - 2) && !isDigit(at(i - 3))))) {
+            if (in(at(i), '0', '5') && isDigit(at(i + 1)) && at(i + 2) != '刻') {
+                return number(i, i + 2);
+            }
+            if (isDigit(at(i)) && at(i + 1) != '刻') {
+                return number(i, i + 1);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * [0-5]?[0-9](?=秒) | (?<=分)[0-5]?[0-9]
+     */
+    private int second(int i) {
+        if (in(at(i), '0', '5') && isDigit(at(i + 1)) && at(i + 2) == '秒') {
+            return number(i, i + 2);
+        }
+        if (isDigit(at(i)) && at(i + 1) == '秒') {
+            return number(i, i + 1);
+        }
+        if (at(i - 1) == '分') {
+            if (in(at(i), '0', '5') && isDigit(at(i + 1))) {
+                return number(i, i + 2);
+            }
+            if (isDigit(at(i))) {
+                return number(i, i + 1);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 每天 | 每周[1-7] | 每月[1-31]号? | 每年
+     */
+    private String cycle(int i) {
+        char c = at(i + 1);
+        if (c == '天' || c == '年') {
+            return new String(t, i, 2);
+        }
+        if (c == '周' && in(at(i + 2), '1', '7')) {
+            return new String(t, i, 3);
+        }
+        if (c == '月' && in(at(i + 2), '1', '3')) {
+            return new String(t, i, at(i + 3) == '号' ? 4 : 3);
+        }
+        return null;
+    }
+
+    /**
+     * (?<!(周|星期))([0-2]?[0-9]):[0-5]?[0-9](:[0-5]?[0-9])?
+     *
+     * @param withSecond 是否带秒
+     * @return {时, 分[, 秒]}
+     */
+    private int[] clock(int i, boolean withSecond) {
+        if (weekBefore(i)) {
+            return null;
+        }
+        int h = in(at(i), '0', '2') && isDigit(at(i + 1)) && at(i + 2) == ':' ? 2
+                : isDigit(at(i)) && at(i + 1) == ':' ? 1 : 0;
+        if (h == 0) {
+            return null;
+        }
+        int j = i + h + 1;
+        if (!withSecond) {
+            int m = sexagesimal(j);
+            return m == 0 ? null : new int[]{number(i, i + h), number(j, j + m)};
+        }
+        int m = in(at(j), '0', '5') && isDigit(at(j + 1)) && at(j + 2) == ':' ? 2
+                : isDigit(at(j)) && at(j + 1) == ':' ? 1 : 0;
+        if (m == 0) {
+            return null;
+        }
+        int k = j + m + 1;
+        int s = sexagesimal(k);
+        return s == 0 ? null : new int[]{number(i, i + h), number(j, j + m), number(k, k + s)};
+    }
+
+    /**
+     * [0-9]?[0-9]?[0-9]{2}-(10|11|12|[1-9])-([0-3][0-9]|[1-9])，分隔符为 - 或 .
+     *
+     * @return {年, 月, 日}
+     */
+    private int[] yearFirstDate(int i, char separator) {
+        int y = 0;
+        while (y <= 4 && isDigit(at(i + y))) {
+            y++;
+        }
+        if (y < 2 || y > 4 || at(i + y) != separator) {
+            return null;
+        }
+        int m = i + y + 1;
+        int month = monthOf(m, separator);
+        if (month < 0) {
+            return null;
+        }
+        int d = m + (month >= 10 ? 3 : 2);
+        int day;
+        if (in(at(d), '0', '3') && isDigit(at(d + 1))) {
+            day = number(d, d + 2);
+        } else if (in(at(d), '1', '9')) {
+            day = number(d, d + 1);
+        } else {
+            return null;
+        }
+        return new int[]{number(i, i + y), month, day};
+    }
+
+    /**
+     * (10|11|12|[1-9])/([0-3][0-9]|[1-9])/[0-9]?[0-9]?[0-9]{2}
+     *
+     * @return {年, 月, 日}
+     */
+    private int[] slashDate(int i) {
+        int month = monthOf(i, '/');
+        if (month < 0) {
+            return null;
+        }
+        int d = i + (month >= 10 ? 3 : 2);
+        int day;
+        int y;
+        if (in(at(d), '0', '3') && isDigit(at(d + 1)) && at(d + 2) == '/') {
+            day = number(d, d + 2);
+            y = d + 3;
+        } else if (in(at(d), '1', '9') && at(d + 1) == '/') {
+            day = number(d, d + 1);
+            y = d + 2;
+        } else {
+            return null;
+        }
+        int length = 0;
+        while (length < 4 && isDigit(at(y + length))) {
+            length++;
+        }
+        return length < 2 ? null : new int[]{number(y, y + length), month, day};
+    }
+
+    /**
+     * \d?+个?+半+个?+(小时|钟头)[以之]?(前|后)
+     *
+     * @return 匹配的原文
+     */
+    private String halfHour(int i, char direction) {
+        int p = i;
+        if (isDigit(at(p))) {
+            p++;
+        }
+        if (at(p) == '个') {
+            p++;
+        }
+        if (at(p) != '半') {
+            return null;
+        }
+        while (at(p) == '半') {
+            p++;
+        }
+        if (at(p) == '个') {
+            p++;
+        }
+        if (!startsWith(p, "小时") && !startsWith(p, "钟头")) {
+            return null;
+        }
+        p += 2;
+        if (at(p) == '以' || at(p) == '之') {
+            p++;
+        }
+        return at(p) == direction ? new String(t, i, p + 1 - i) : null;
+    }
+
+    /**
+     * 以数字开头的相对时间：xx小时前/后、xx分钟前/后、xx天前/后、xx个月前/后、xx年前/后，以及 提前xx小时/分钟
+     *
+     * @param start 数字开始
+     * @param end   数字结束
+     */
+    private void relative(int start, int end) {
+        boolean ahead = startsWith(start - 2, "提前");
+        if (fields.getHoursBefore() < 0 && (followedBy(end, true, "小时", '前')
+                || (ahead && startsWith(at(end) == '个' ? end + 1 : end, "小时")))) {
+            fields.setHoursBefore(number(start, end));
+        }
+        if (fields.getHoursAfter() < 0 && followedBy(end, true, "小时", '后')) {
+            fields.setHoursAfter(number(start, end));
+        }
+        if (fields.getMinutesBefore() < 0 && (followedBy(end, false, "分钟", '前') || (ahead && startsWith(end, "分钟")))) {
+            fields.setMinutesBefore(number(start, end));
+        }
+        if (fields.getMinutesAfter() < 0 && followedBy(end, false, "分钟", '后')) {
+            fields.setMinutesAfter(number(start, end));
+        }
+        if (fields.getDaysBefore() < 0 && at(end) == '天') {
+            fields.setDaysBefore(number(start, end));
+        }
+        if (fields.getDaysAfter() < 0 && followedBy(end, false, "天", '后')) {
+            fields.setDaysAfter(number(start, end));
+        }
+        if (fields.getMonthsBefore() < 0 && followedBy(end, true, "月", '前')) {
+            fields.setMonthsBefore(number(start, end));
+        }
+        if (fields.getMonthsAfter() < 0 && followedBy(end, true, "月", '后')) {
+            fields.setMonthsAfter(number(start, end));
+        }
+        if (fields.getYearsBefore() < 0 && followedBy(end, false, "年", '前')) {
+            fields.setYearsBefore(number(start, end));
+        }
+        if (fields.getYearsAfter() < 0 && followedBy(end, false, "年", '后')) {
+            fields.setYearsAfter(number(start, end));
+        }
+    }
+
+    /**
+     * 上上周x、上周x、下周x、下下周x、周x，周也可以是星期
+     */
+    private void weekday(int i) {
+        int week = at(i - 1) == '周' ? 1 : startsWith(i - 2, "星期") ? 2 : 0;
+        if (week == 0) {
+            return;
+        }
+        int value = t[i] - '0';
+        char prefix = at(i - week - 1);
+        char prefix2 = at(i - week - 2);
+        if (prefix == '上') {
+            if (prefix2 == '上') {
+                if (fields.getBeforeLastWeekday() < 0) {
+                    fields.setBeforeLastWeekday(value);
+                }
+            } else if (fields.getLastWeekday() < 0) {
+                fields.setLastWeekday(value);
+            }
+        } else if (prefix == '下') {
+            if (prefix2 == '下') {
+                if (fields.getNextNextWeekday() < 0) {
+                    fields.setNextNextWeekday(value);
+                }
+            } else if (fields.getNextWeekday() < 0) {
+                fields.setNextWeekday(value);
+            }
+        } else if (fields.getThisWeekday() < 0) {
+            fields.setThisWeekday(value);
+        }
+    }
+
+    /**
+     * 只需要判断是否出现的关键词
+     */
+    private void keywords(int i, char c) {
+        char next = at(i + 1);
+        switch (c) {
+            case '凌':
+                earlyMorning |= next == '晨';
+                fields.setTimeModifier(fields.isTimeModifier() || next == '晨');
+                break;
+            case '早':
+                morning |= next == '上' || next == '晨';
+                fields.setTimeModifier(true);
+                break;
+            case '上':
+                forenoon |= next == '午';
+                fields.setTimeModifier(fields.isTimeModifier() || next == '午');
+                fields.setLastMonth(fields.isLastMonth() || next == '月' || startsWith(i + 1, "个月"));
+                break;
+            case 'a':
+            case 'A':
+                forenoon |= next == (c == 'a' ? 'm' : 'M');
+                break;
+            case '中':
+                fields.setNoon(fields.isNoon() || next == '午');
+                fields.setTimeModifier(fields.isTimeModifier() || next == '午');
+                break;
+            case '午':
+                fields.setNoon(fields.isNoon() || next == '间');
+                fields.setAfternoon(fields.isAfternoon() || next == '后');
+                fields.setTimeModifier(fields.isTimeModifier() || next == '后');
+                break;
+            case '下':
+                fields.setAfternoon(fields.isAfternoon() || next == '午');
+                fields.setTimeModifier(fields.isTimeModifier() || next == '午');
+                fields.setNextMonth(fields.isNextMonth() || next == '月' || startsWith(i + 1, "个月"));
+                break;
+            case 'p':
+            case 'P':
+                boolean pm = next == (c == 'p' ? 'm' : 'M');
+                fields.setAfternoon(fields.isAfternoon() || pm);
+                fields.setTimeModifier(fields.isTimeModifier() || pm);
+                break;
+            case '傍':
+                evening |= next == '晚';
+                fields.setTimeModifier(fields.isTimeModifier() || next == '晚');
+                break;
+            case '晚':
+                fields.setNight(fields.isNight() || at(i - 1) != '傍');
+                fields.setTimeModifier(fields.isTimeModifier() || next == '上' || next == '间');
+                break;
+            case '夜':
+                fields.setTimeModifier(true);
+                break;
+            case '点':
+            case '时':
+                oneQuarter |= (next == '1' || next == '一') && at(i + 2) == '刻' && at(i + 3) != '钟';
+                twoQuarter |= next == '半';
+                threeQuarter |= (next == '3' || next == '三') && at(i + 2) == '刻' && at(i + 3) != '钟';
+                break;
+            case '本':
+                fields.setThisMonth(fields.isThisMonth() || next == '月');
+                break;
+            case '这':
+                fields.setThisMonth(fields.isThisMonth() || startsWith(i + 1, "个月"));
+                break;
+            case '前':
+                fields.setYearBeforeLast(fields.isYearBeforeLast() || next == '年');
+                days[2] |= next == '天' && at(i - 1) != '大';
+                break;
+            case '去':
+                fields.setLastYear(fields.isLastYear() || next == '年');
+                break;
+            case '今':
+                fields.setThisYear(fields.isThisYear() || next == '年');
+                days[4] |= next != '年';
+                break;
+            case '明':
+                fields.setNextYear(fields.isNextYear() || next == '年');
+                days[5] |= next != '年';
+                break;
+            case '后':
+                fields.setYearAfterNext(fields.isYearAfterNext() || next == '年');
+                days[6] |= next == '天' && at(i - 1) != '大';
+                break;
+            case '昨':
+                days[3] = true;
+                break;
+            case '大':
+                days[0] |= startsWith(i, "大大前天");
+                days[1] |= startsWith(i, "大前天");
+                days[7] |= startsWith(i, "大后天");
+                days[8] |= startsWith(i, "大大后天");
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * (10|11|12|[1-9]) 后面紧跟 follow
+     */
+    private int monthOf(int i, char follow) {
+        if (at(i) == '1' && in(at(i + 1), '0', '2') && at(i + 2) == follow) {
+            return number(i, i + 2);
+        }
+        if (in(at(i), '1', '9') && at(i + 1) == follow) {
+            return number(i, i + 1);
+        }
+        return -1;
+    }
+
+    /**
+     * [0-5]?[0-9] 的长度，不匹配时为 0
+     */
+    private int sexagesimal(int i) {
+        if (in(at(i), '0', '5') && isDigit(at(i + 1))) {
+            return 2;
+        }
+        return isDigit(at(i)) ? 1 : 0;
+    }
+
+    /**
+     * 数字之后是否为 (个)?单位[以之]?前/后
+     */
+    private boolean followedBy(int p, boolean measureWord, String unit, char direction) {
+        if (measureWord && at(p) == '个') {
+            p++;
+        }
+        if (!startsWith(p, unit)) {
+            return false;
+        }
+        p += unit.length();
+        if (at(p) == '以' || at(p) == '之') {
+            p++;
+        }
+        return at(p) == direction;
+    }
+
+    /**
+     * (?<=(周|星期))
+     */
+    private boolean weekBefore(int i) {
+        return at(i - 1) == '周' || startsWith(i - 2, "星期");
+    }
+
+    private boolean startsWith(int i, String word) {
+        if (i < 0 || i + word.length() > n) {
+            return false;
+        }
+        for (int j = 0; j < word.length(); j++) {
+            if (t[i + j] != word.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean digits(int i, int length) {
+        for (int j = 0; j < length; j++) {
+            if (!isDigit(at(i + j))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int number(int start, int end) {
+        return Integer.parseInt(new String(t, start, end - start));
+    }
+
+    /**
+     * @return 越界时返回 0
+     */
+    private char at(int i) {
+        return i >= 0 && i < n ? t[i] : 0;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean in(char c, char min, char max) {
+        return c >= min && c <= max;
+    }
+
+    private static boolean isDayUnit(char c) {
+        return c == '日' || c == '号';
+    }
+
+    private static boolean isClockUnit(char c) {
+        return c == '点' || c == '时';
+    }
+}
@@ -0,0 +1,137 @@
+package cn.mirrorming.text2date.time;
+
+import lombok.Data;
+
+/**
+ * 从一个时间实体中提取出的原始字段，-1 / null / false 表示没有出现
+ * <p>
+ * 只记录文本里出现了什么，换算成具体时间由 {@link TimeEntityRecognizer} 统一完成
+ */
+@Data
+class TimeFields {
+    private int year = -1;
+    private int month = -1;
+    private int day = -1;
+    private int hour = -1;
+    private int minute = -1;
+    private int second = -1;
+    private String cycle;
+
+    /**
+     * HH:mm:ss / HH:mm
+     */
+    private int clockHour = -1;
+    private int clockMinute = -1;
+    private int clockSecond = -1;
+    /**
+     * 中午/午间、下午/午后/pm、晚
+     */
+    private boolean noon;
+    private boolean afternoon;
+    private boolean night;
+    /**
+     * yyyy-MM-dd、MM/dd/yyyy、yyyy.MM.dd，统一为 {年, 月, 日}
+     */
+    private int[] dashDate;
+    private int[] slashDate;
+    private int[] dotDate;
+
+    /**
+     * xx小时前/后、x个半小时前/后、xx分钟前/后 ...
+     */
+    private int hoursBefore = -1;
+    private int hoursAfter = -1;
+    private String halfHourBefore;
+    private String halfHourAfter;
+    private int minutesBefore = -1;
+    private int minutesAfter = -1;
+    private int daysBefore = -1;
+    private int daysAfter = -1;
+    private int monthsBefore = -1;
+    private int monthsAfter = -1;
+    private int yearsBefore = -1;
+    private int yearsAfter = -1;
+
+    /**
+     * 前年、去年、今年、明年、后年
+     */
+    private boolean yearBeforeLast;
+    private boolean lastYear;
+    private boolean thisYear;
+    private boolean nextYear;
+    private boolean yearAfterNext;
+    /**
+     * 上个月、本月、下个月
+     */
+    private boolean lastMonth;
+    private boolean thisMonth;
+    private boolean nextMonth;
+    /**
+     * 大前天、前天、昨天、今天、明天、后天、大后天 等相对今天的天数
+     */
+    private int dayShift;
+    private boolean dayMentioned;
+    /**
+     * 上上周x、上周x、下周x、下下周x、周x
+     */
+    private int beforeLastWeekday = -1;
+    private int lastWeekday = -1;
+    private int nextWeekday = -1;
+    private int nextNextWeekday = -1;
+    private int thisWeekday = -1;
+
+    /**
+     * 是否有 早上/下午/晚上 之类的修饰
+     */
+    private boolean timeModifier;
+
+    /**
+     * 恢复为初始值，{@link ParseContext} 复用同一个实例
+     */
+    void reset() {
+        year = -1;
+        month = -1;
+        day = -1;
+        hour = -1;
+        minute = -1;
+        second = -1;
+        cycle = null;
+        clockHour = -1;
+        clockMinute = -1;
+        clockSecond = -1;
+        noon = false;
+        afternoon = false;
+        night = false;
+        dashDate = null;
+        slashDate = null;
+        dotDate = null;
+        hoursBefore = -1;
+        hoursAfter = -1;
+        halfHourBefore = null;
+        halfHourAfter = null;
+        minutesBefore = -1;
+        minutesAfter = -1;
+        daysBefore = -1;
+        daysAfter = -1;
+        monthsBefore = -1;
+        monthsAfter = -1;
+        yearsBefore = -1;
+        yearsAfter = -1;
+        yearBeforeLast = false;
+        lastYear = false;
+        thisYear = false;
+        nextYear = false;
+        yearAfterNext = false;
+        lastMonth = false;
+        thisMonth = false;
+        nextMonth = false;
+        dayShift = 0;
+        dayMentioned = false;
+        beforeLastWeekday = -1;
+        lastWeekday = -1;
+        nextWeekday = -1;
+        nextNextWeekday = -1;
+        thisWeekday = -1;
+        timeModifier = false;
+    }
+}
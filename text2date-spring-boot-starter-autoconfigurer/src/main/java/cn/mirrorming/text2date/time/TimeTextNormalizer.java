@@ -0,0 +1,228 @@
+package cn.mirrorming.text2date.time;
+
+import cn.mirrorming.text2date.number.ChineseNumbers;
+
+import java.util.Arrays;
+
+/**
+ * 时间文本预处理：礼拜->星期，今儿->今天，周日/周天/星期日/星期天->7，全角冒号，中文数字->阿拉伯数字
+ * <p>
+ * 按字符表一遍扫描写入复用的缓冲区，结果与依次 replace 再替换中文数字相同；每个 {@link ParseContext} 一个实例，
+ * 本身就是结果的 CharSequence，正则可以直接在缓冲区上匹配
+ * <p>
+ * 中文数字见 {@link ChineseNumbers#chineseNumberToInt(CharSequence, int, int)}
+ */
+final class TimeTextNormalizer implements CharSequence {
+    /**
+     * 字符 -> 类别：1-9 为数字，其余见下面的常量，0 原样输出
+     */
+    private static final byte[] KIND = new byte[Character.MAX_VALUE + 1];
+    private static final byte TEN = 10;
+    private static final byte LI = 11;
+    private static final byte JIN = 12;
+    private static final byte ZHOU = 13;
+    private static final byte XING = 14;
+    private static final byte COLON = 15;
+
+    static {
+        String digits = "一二三四五六七八九";
+        for (int i = 0; i < digits.length(); i++) {
+            KIND[digits.charAt(i)] = (byte) (i + 1);
+        }
+        KIND['两'] = 2;
+        KIND['十'] = TEN;
+        KIND['礼'] = LI;
+        KIND['今'] = JIN;
+        KIND['周'] = ZHOU;
+        KIND['星'] = XING;
+        KIND['：'] = COLON;
+    }
+
+    private char[] chars = new char[64];
+    private int length;
+
+    TimeTextNormalizer() {
+    }
+
+    /**
+     * @return 当前线程的实例，结果在下一次 normalize 之前有效
+     */
+    static TimeTextNormalizer local() {
+        return ParseContext.local().normalizer;
+    }
+
+    /**
+     * @param s 文本
+     * @return this
+     */
+    TimeTextNormalizer normalize(CharSequence s) {
+        length = 0;
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+            byte kind = KIND[c];
+            if (kind == 0) {
+                append(c);
+                i++;
+                continue;
+            }
+            switch (kind) {
+                case LI:
+                    if (i + 1 < n && s.charAt(i + 1) == '拜') {
+                        append('星', '期');
+                        i += 2;
+                        if (i < n && isSunday(s.charAt(i))) {
+                            append('7');
+                            i++;
+                        }
+                        continue;
+                    }
+                    break;
+                case JIN:
+                    if (i + 1 < n && s.charAt(i + 1) == '儿') {
+                        append('今', '天');
+                        i += 2;
+                        continue;
+                    }
+                    break;
+                case ZHOU:
+                    if (i + 1 < n && isSunday(s.charAt(i + 1))) {
+                        append('周', '7');
+                        i += 2;
+                        continue;
+                    }
+                    break;
+                case XING:
+                    if (i + 2 < n && s.charAt(i + 1) == '期' && isSunday(s.charAt(i + 2))) {
+                        append('星', '期');
+                        append('7');
+                        i += 3;
+                        continue;
+                    }
+                    break;
+                case COLON:
+                    append(':');
+                    i++;
+                    continue;
+                default:
+                    i = appendNumber(s, i);
+                    continue;
+            }
+            append(c);
+            i++;
+        }
+        return this;
+    }
+
+    /**
+     * 只把中文数字替换为阿拉伯数字，时长和时间段的预处理
+     *
+     * @param s 文本
+     * @return this
+     */
+    TimeTextNormalizer foldNumbers(CharSequence s) {
+        length = 0;
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+            if (isNumeral(c)) {
+                i = appendNumber(s, i);
+            } else {
+                append(c);
+                i++;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return 缓冲区，有效长度见 {@link #length()}
+     */
+    char[] buffer() {
+        return chars;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index >= length) {
+            throw new StringIndexOutOfBoundsException(index);
+        }
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new StringIndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+        return new String(chars, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * [一二两三四五六七八九十]
+     */
+    private static boolean isNumeral(char c) {
+        return KIND[c] > 0 && KIND[c] <= TEN;
+    }
+
+    /**
+     * @return 中文数字之后的位置
+     */
+    private int appendNumber(CharSequence s, int start) {
+        int end = start + 1;
+        while (end < s.length() && isNumeral(s.charAt(end))) {
+            end++;
+        }
+        appendInt(ChineseNumbers.chineseNumberToInt(s, start, end));
+        return end;
+    }
+
+    private static boolean isSunday(char c) {
+        return c == '日' || c == '天';
+    }
+
+    private void append(char c) {
+        if (length == chars.length) {
+            chars = Arrays.copyOf(chars, length * 2);
+        }
+        chars[length++] = c;
+    }
+
+    private void append(char c1, char c2) {
+        append(c1);
+        append(c2);
+    }
+
+    /**
+     * 超长的数字串溢出时可能为负数
+     */
+    private void appendInt(int value) {
+        long v = value;
+        if (v < 0) {
+            append('-');
+            v = -v;
+        }
+        if (v < 10) {
+            append((char) ('0' + v));
+            return;
+        }
+        for (long rest = v; rest > 0; rest /= 10) {
+            append('0');
+        }
+        for (int i = length - 1; v > 0; i--, v /= 10) {
+            chars[i] = (char) ('0' + v % 10);
+        }
+    }
+}
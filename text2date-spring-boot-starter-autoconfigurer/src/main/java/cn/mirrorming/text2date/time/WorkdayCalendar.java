@@ -0,0 +1,324 @@
+package cn.mirrorming.text2date.time;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 工作日日历：法定节假日放假、调休上班，其余按周一至周五上班
+ * <p>
+ * 每年一个位图，一天一位(1 为工作日)，另存每 64 天之前的工作日数，
+ * 判断工作日是一次位运算，两个日期之间的工作日数是两次前缀计数(popcount)相减，
+ * 第 n 个工作日先按各年的总数跳过整年，再在当年的前缀计数中二分查找
+ * <p>
+ * 节假日安排来自文本资源(默认 classpath 下的 workday.txt，格式见该文件)，可以自行更新；
+ * 没有列出的年份第一次用到时按周末生成。实例创建后不可变，可以在线程之间共享
+ */
+@Slf4j
+public final class WorkdayCalendar {
+    /**
+     * classpath 根目录下的资源名
+     */
+    static final String RESOURCE = "/workday.txt";
+    /**
+     * 文件格式变化时加一
+     */
+    private static final int FORMAT_VERSION = 1;
+    /**
+     * 一年最多 366 天，6 个 long
+     */
+    private static final int WORDS = 6;
+
+    private static volatile WorkdayCalendar defaults;
+
+    /**
+     * 数据版本，即资源中的 version
+     */
+    private final String version;
+    /**
+     * 资源中列出的年份
+     */
+    private final Map<Integer, Year> listed;
+    /**
+     * 按周末生成的年份
+     */
+    private final Map<Integer, Year> generated = new ConcurrentHashMap<>();
+
+    private WorkdayCalendar(String version, Map<Integer, Year> listed) {
+        this.version = version;
+        this.listed = listed;
+    }
+
+    /**
+     * @return 随 jar 发布的 workday.txt，读取失败时只按周末
+     */
+    public static WorkdayCalendar defaults() {
+        WorkdayCalendar calendar = defaults;
+        if (calendar == null) {
+            synchronized (WorkdayCalendar.class) {
+                calendar = defaults;
+                if (calendar == null) {
+                    calendar = loadDefaults();
+                    defaults = calendar;
+                }
+            }
+        }
+        return calendar;
+    }
+
+    private static WorkdayCalendar loadDefaults() {
+        try (InputStream in = WorkdayCalendar.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                WorkdayCalendar calendar = load(in);
+                log.debug("workday calendar {} loaded for {} years", calendar.version, calendar.listed.size());
+                return calendar;
+            }
+            log.warn("no workday calendar, counting weekends only");
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("can not read workday calendar, counting weekends only: {}", e.toString());
+        }
+        return new WorkdayCalendar("", new HashMap<>());
+    }
+
+    /**
+     * @param in 与 workday.txt 格式相同的 UTF-8 文本，读完不关闭
+     * @return 工作日日历
+     * @throws IOException              读取失败
+     * @throws IllegalArgumentException 格式错误
+     */
+    public static WorkdayCalendar load(InputStream in) throws IOException {
+        List<String> lines = IOUtils.readLines(in, "UTF-8");
+        String version = null;
+        boolean formatChecked = false;
+        Map<Integer, Year> years = new HashMap<>();
+        for (int n = 0; n < lines.size(); n++) {
+            String line = StringUtils.strip(lines.get(n));
+            if (StringUtils.isEmpty(line) || line.startsWith("#")) {
+                continue;
+            }
+            String[] tokens = StringUtils.split(line);
+            if ("format".equals(tokens[0])) {
+                if (tokens.length != 2 || !String.valueOf(FORMAT_VERSION).equals(tokens[1])) {
+                    throw new IllegalArgumentException("unsupported workday calendar format at line " + (n + 1) + ": " + line);
+                }
+                formatChecked = true;
+                continue;
+            }
+            if (!formatChecked) {
+                throw new IllegalArgumentException("workday calendar must start with format " + FORMAT_VERSION);
+            }
+            if ("version".equals(tokens[0]) && tokens.length == 2) {
+                version = tokens[1];
+                continue;
+            }
+            if (tokens.length < 2 || !StringUtils.isNumeric(tokens[0]) || !("休".equals(tokens[1]) || "班".equals(tokens[1]))) {
+                throw new IllegalArgumentException("invalid workday calendar line " + (n + 1) + ": " + line);
+            }
+            int year = Integer.parseInt(tokens[0]);
+            long[] words = years.containsKey(year) ? years.get(year).words : weekdays(year);
+            boolean workday = "班".equals(tokens[1]);
+            for (int i = 2; i < tokens.length; i++) {
+                int dash = tokens[i].indexOf('-');
+                int from = dayOfYear(year, dash < 0 ? tokens[i] : tokens[i].substring(0, dash), n);
+                int to = dash < 0 ? from : dayOfYear(year, tokens[i].substring(dash + 1), n);
+                for (int day = from; day <= to; day++) {
+                    if (workday) {
+                        words[day >>> 6] |= 1L << day;
+                    } else {
+                        words[day >>> 6] &= ~(1L << day);
+                    }
+                }
+            }
+            years.put(year, new Year(words));
+        }
+        if (version == null) {
+            throw new IllegalArgumentException("workday calendar has no version");
+        }
+        return new WorkdayCalendar(version, years);
+    }
+
+    /**
+     * @param mmdd MMdd
+     * @return 在当年的第几天，从 0 开始
+     */
+    private static int dayOfYear(int year, String mmdd, int line) {
+        if (mmdd.length() != 4 || !StringUtils.isNumeric(mmdd)) {
+            throw new IllegalArgumentException("invalid date " + mmdd + " at line " + (line + 1));
+        }
+        int month = Integer.parseInt(mmdd.substring(0, 2));
+        int day = Integer.parseInt(mmdd.substring(2));
+        if (month < 1 || month > 12 || day < 1 || day > EpochCalendar.lengthOfMonth(year, month)) {
+            throw new IllegalArgumentException("invalid date " + mmdd + " at line " + (line + 1));
+        }
+        return (int) (EpochCalendar.epochDay(year, month, day) - EpochCalendar.epochDay(year, 1, 1));
+    }
+
+    /**
+     * @return 周一至周五为工作日的位图
+     */
+    private static long[] weekdays(int year) {
+        long[] words = new long[WORDS];
+        long first = EpochCalendar.epochDay(year, 1, 1);
+        int length = EpochCalendar.isLeapYear(year) ? 366 : 365;
+        for (int day = 0; day < length; day++) {
+            if (EpochCalendar.dayOfWeek(first + day) <= 5) {
+                words[day >>> 6] |= 1L << day;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * @return 数据版本
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @param date 日期
+     * @return 是否是工作日
+     */
+    public boolean isWorkday(LocalDate date) {
+        return isWorkday(date.toEpochDay());
+    }
+
+    /**
+     * @param date 日期
+     * @param n    正数往后、负数往前数，0 时返回 date
+     * @return date 之后(不含 date)的第 n 个工作日，n 为负数时是之前的第 -n 个
+     */
+    public LocalDate nthWorkdayAfter(LocalDate date, int n) {
+        return LocalDate.ofEpochDay(nthWorkdayAfter(date.toEpochDay(), n));
+    }
+
+    /**
+     * @param from 开始(含)
+     * @param to   结束(不含)
+     * @return [from, to) 中的工作日数，from 在 to 之后时为负数
+     */
+    public long workdaysBetween(LocalDate from, LocalDate to) {
+        return workdaysBetween(from.toEpochDay(), to.toEpochDay());
+    }
+
+    /**
+     * @param epochDay epoch 天
+     * @return 是否是工作日
+     */
+    boolean isWorkday(long epochDay) {
+        int year = EpochCalendar.year(EpochCalendar.date(epochDay));
+        int day = (int) (epochDay - EpochCalendar.epochDay(year, 1, 1));
+        return (year(year).words[day >>> 6] & 1L << day) != 0;
+    }
+
+    /**
+     * @see #nthWorkdayAfter(LocalDate, int)
+     */
+    long nthWorkdayAfter(long epochDay, int n) {
+        if (n == 0) {
+            return epochDay;
+        }
+        int year = EpochCalendar.year(EpochCalendar.date(epochDay));
+        int day = (int) (epochDay - EpochCalendar.epochDay(year, 1, 1));
+        //要找的是当年的第 index 个工作日(从 0 开始)，超出当年时跳过整年
+        long index = n > 0 ? (long) year(year).rank(day + 1) + n - 1 : (long) year(year).rank(day) + n;
+        while (index < 0) {
+            year--;
+            index += year(year).total();
+        }
+        while (index >= year(year).total()) {
+            index -= year(year).total();
+            year++;
+        }
+        return EpochCalendar.epochDay(year, 1, 1) + year(year).select((int) index);
+    }
+
+    /**
+     * @see #workdaysBetween(LocalDate, LocalDate)
+     */
+    long workdaysBetween(long from, long to) {
+        if (from > to) {
+            return -workdaysBetween(to, from);
+        }
+        int fromYear = EpochCalendar.year(EpochCalendar.date(from));
+        int toYear = EpochCalendar.year(EpochCalendar.date(to));
+        long count = -year(fromYear).rank((int) (from - EpochCalendar.epochDay(fromYear, 1, 1)));
+        for (int year = fromYear; year < toYear; year++) {
+            count += year(year).total();
+        }
+        return count + year(toYear).rank((int) (to - EpochCalendar.epochDay(toYear, 1, 1)));
+    }
+
+    private Year year(int year) {
+        Year result = listed.get(year);
+        if (result == null) {
+            result = generated.get(year);
+            if (result == null) {
+                result = generated.computeIfAbsent(year, y -> new Year(weekdays(y)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 一年的位图和前缀计数
+     */
+    private static final class Year {
+        final long[] words;
+        /**
+         * ranks[i]：第 i 个 long 之前的工作日数，ranks[WORDS] 为全年的工作日数
+         */
+        final int[] ranks = new int[WORDS + 1];
+
+        Year(long[] words) {
+            this.words = words;
+            for (int i = 0; i < WORDS; i++) {
+                ranks[i + 1] = ranks[i] + Long.bitCount(words[i]);
+            }
+        }
+
+        int total() {
+            return ranks[WORDS];
+        }
+
+        /**
+         * @param day 当年的第几天，从 0 开始，可以等于全年的天数
+         * @return 之前的工作日数
+         */
+        int rank(int day) {
+            int word = day >>> 6;
+            return ranks[word] + Long.bitCount(words[word] & ((1L << day) - 1));
+        }
+
+        /**
+         * @param index 第几个工作日，从 0 开始，小于全年的工作日数
+         * @return 当年的第几天，从 0 开始
+         */
+        int select(int index) {
+            int low = 0;
+            int high = WORDS - 1;
+            //最后一个 ranks[word] <= index 的 word
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (ranks[mid] <= index) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            long bits = words[low];
+            for (int i = index - ranks[low]; i > 0; i--) {
+                bits &= bits - 1;
+            }
+            return (low << 6) + Long.numberOfTrailingZeros(bits);
+        }
+    }
+}
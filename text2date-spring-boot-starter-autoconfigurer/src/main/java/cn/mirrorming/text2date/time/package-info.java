@@ -0,0 +1,8 @@
+/**
+ * 时间、时间段、时长实体识别
+ */
+@RuleFiles({"time.regex", "timedelta.regex", "duration.regex"})
+@HolidayYears(from = 1901, to = 2100)
+package cn.mirrorming.text2date.time;
+
+import cn.mirrorming.text2date.engine.RuleFiles;
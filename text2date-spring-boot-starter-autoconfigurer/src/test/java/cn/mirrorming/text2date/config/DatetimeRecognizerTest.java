@@ -0,0 +1,160 @@
+package cn.mirrorming.text2date.config;
+
+import cn.mirrorming.text2date.engine.RegexEngineTest;
+import cn.mirrorming.text2date.engine.RegexEngineType;
+import cn.mirrorming.text2date.time.TimeEntity;
+import cn.mirrorming.text2date.time.TimeFieldTransducerTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * {@link DatetimeRecognizer#parseAll(List, ZoneId, Instant)} 的结果顺序，以及 {@link DatetimeRecognizer#stop()} 对线程池的处理
+ */
+public class DatetimeRecognizerTest {
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+    private static final Instant RELATIVE = Instant.parse("2019-12-09T02:15:30Z");
+    private static final String BATCH_THREAD = "text2date-batch-";
+
+    /**
+     * 并行解析的结果与逐条解析相同，并且与输入顺序一致
+     */
+    @Test
+    public void parseAll() throws IOException {
+        DatetimeRecognizer recognizer = new DatetimeRecognizer(RegexEngineType.JDK);
+        recognizer.setBatchParallelism(4);
+        try {
+            List<String> texts = new ArrayList<>(RegexEngineTest.testCaseTexts());
+            Random random = new Random(20191209L);
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 5000; i++) {
+                text.setLength(0);
+                for (int n = 1 + random.nextInt(6); n > 0; n--) {
+                    text.append(TimeFieldTransducerTest.WORDS[random.nextInt(TimeFieldTransducerTest.WORDS.length)]);
+                }
+                texts.add(text.toString());
+            }
+            List<List<TimeEntity>> results = recognizer.parseAll(texts, ZONE, RELATIVE);
+            Assert.assertEquals(texts.size(), results.size());
+            for (int i = 0; i < texts.size(); i++) {
+                Assert.assertEquals(texts.get(i), recognizer.parse(texts.get(i), ZONE, RELATIVE), results.get(i));
+            }
+            Assert.assertTrue(recognizer.parseAll(new ArrayList<String>(), ZONE, RELATIVE).isEmpty());
+        } finally {
+            recognizer.stop();
+        }
+    }
+
+    /**
+     * 文本较少时在调用线程解析，不启动工作线程；较多时交给线程池
+     */
+    @Test
+    public void smallBatch() {
+        AtomicInteger threads = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(2, factoryPool -> {
+            threads.incrementAndGet();
+            return ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(factoryPool);
+        }, null, false);
+        DatetimeRecognizer recognizer = new DatetimeRecognizer(RegexEngineType.JDK);
+        recognizer.setBatchPool(pool);
+        try {
+            List<String> texts = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                texts.add(i + "天后下午" + (i + 1) + "点");
+            }
+            List<List<TimeEntity>> results = recognizer.parseAll(texts, ZONE, RELATIVE);
+            for (int i = 0; i < texts.size(); i++) {
+                Assert.assertEquals(texts.get(i), results.get(i).get(0).getOriginal());
+            }
+            Assert.assertEquals(0, threads.get());
+            for (int i = 10; i < 1000; i++) {
+                texts.add(i + "天后下午" + (i % 12 + 1) + "点");
+            }
+            results = recognizer.parseAll(texts, ZONE, RELATIVE);
+            for (int i = 0; i < texts.size(); i++) {
+                Assert.assertEquals(texts.get(i), results.get(i).get(0).getOriginal());
+            }
+            Assert.assertTrue(threads.get() > 0);
+        } finally {
+            recognizer.stop();
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 按并行度创建的线程池在 stop() 时关闭，之后再用时重新创建
+     */
+    @Test
+    public void stopOwnedPool() throws InterruptedException {
+        DatetimeRecognizer recognizer = new DatetimeRecognizer(RegexEngineType.JDK);
+        recognizer.setBatchParallelism(2);
+        for (int round = 0; round < 2; round++) {
+            recognizer.start();
+            recognizer.parseAll(batch(), ZONE, RELATIVE);
+            Set<Thread> workers = batchThreads();
+            Assert.assertFalse(workers.isEmpty());
+            recognizer.stop();
+            for (Thread worker : workers) {
+                worker.join(10000);
+                Assert.assertFalse(worker.getName(), worker.isAlive());
+            }
+        }
+        //修改并行度时关闭旧的线程池
+        recognizer.parseAll(batch(), ZONE, RELATIVE);
+        Set<Thread> workers = batchThreads();
+        recognizer.setBatchParallelism(3);
+        for (Thread worker : workers) {
+            worker.join(10000);
+            Assert.assertFalse(worker.getName(), worker.isAlive());
+        }
+        recognizer.stop();
+    }
+
+    /**
+     * 调用方传入的线程池由调用方管理，stop() 和更换线程池时都不关闭
+     */
+    @Test
+    public void stopCallerPool() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        DatetimeRecognizer recognizer = new DatetimeRecognizer(RegexEngineType.JDK);
+        try {
+            recognizer.setBatchPool(pool);
+            recognizer.start();
+            Assert.assertEquals(batch().size(), recognizer.parseAll(batch(), ZONE, RELATIVE).size());
+            recognizer.stop();
+            Assert.assertFalse(pool.isShutdown());
+            recognizer.setBatchParallelism(2);
+            Assert.assertFalse(pool.isShutdown());
+            recognizer.setBatchPool(pool);
+            Assert.assertEquals(batch().size(), recognizer.parseAll(batch(), ZONE, RELATIVE).size());
+        } finally {
+            recognizer.stop();
+            pool.shutdown();
+        }
+    }
+
+    private static List<String> batch() {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            texts.add("明天下午" + (i % 12 + 1) + "点开会");
+        }
+        return texts;
+    }
+
+    private static Set<Thread> batchThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread instanceof ForkJoinWorkerThread && thread.getName().startsWith(BATCH_THREAD))
+                .collect(Collectors.toSet());
+    }
+}
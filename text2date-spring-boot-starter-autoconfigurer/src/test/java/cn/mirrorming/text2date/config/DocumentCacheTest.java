@@ -0,0 +1,161 @@
+package cn.mirrorming.text2date.config;
+
+import cn.mirrorming.text2date.engine.RegexEngineType;
+import cn.mirrorming.text2date.time.Cycle;
+import cn.mirrorming.text2date.time.TimeEntity;
+import cn.mirrorming.text2date.time.TimeEntityRecognizer;
+import cn.mirrorming.text2date.time.TimeFieldTransducerTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link DocumentCache} 的结果等于按截断后的相对时间解析，缓存项按时钟过期，返回的是副本
+ */
+public class DocumentCacheTest {
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+    private static final String[] ZONES = {"UTC", "Asia/Shanghai", "America/New_York", "Europe/London", "Australia/Sydney"};
+
+    /**
+     * 从 1000 条随机文本中抽取，相对时间在几个时刻之后的 20 分钟内，同一文本、同一分钟会重复出现
+     */
+    @Test
+    public void randomText() {
+        DatetimeRecognizer recognizer = new DatetimeRecognizer(RegexEngineType.JDK);
+        recognizer.setDocumentCache(100000, Duration.ofMinutes(1));
+        TimeEntityRecognizer expected = new TimeEntityRecognizer();
+        long[] centers = {
+                Instant.parse("2019-12-09T02:15:30Z").getEpochSecond(),
+                Instant.parse("2024-02-29T15:59:59Z").getEpochSecond(),
+                //纽约夏令时结束
+                Instant.parse("2019-11-03T05:50:00Z").getEpochSecond(),
+        };
+        Random random = new Random(20191209L);
+        String[] texts = new String[1000];
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < texts.length; i++) {
+            text.setLength(0);
+            for (int n = 1 + random.nextInt(4); n > 0; n--) {
+                text.append(TimeFieldTransducerTest.WORDS[random.nextInt(TimeFieldTransducerTest.WORDS.length)]);
+            }
+            texts[i] = text.toString();
+        }
+        for (int i = 0; i < 300000; i++) {
+            String s = texts[random.nextInt(texts.length)];
+            ZoneId zone = ZoneId.of(ZONES[random.nextInt(ZONES.length)]);
+            Instant relative = Instant.ofEpochSecond(centers[random.nextInt(centers.length)] + random.nextInt(20 * 60));
+            long clockHour = clockHour(zone);
+            List<TimeEntity> actual = recognizer.parse(s, zone, relative);
+            List<TimeEntity> parsed = expected.parse(s, zone, truncate(relative, zone, 60));
+            //两次解析之间时钟跨过了整点时，过去的钟点可能按不同的小时顺延
+            if (clockHour == clockHour(zone)) {
+                Assert.assertEquals(s + " " + zone + " @ " + relative, parsed, actual);
+            }
+        }
+        DocumentCache cache = recognizer.getDocumentCache();
+        Assert.assertTrue(cache.toString(), cache.getHitCount() > 30000);
+    }
+
+    @Test
+    public void expiry() throws InterruptedException {
+        DocumentCache cache = new DocumentCache(100, Duration.ofSeconds(1));
+        AtomicInteger parses = new AtomicInteger();
+        Instant relative = Instant.parse("2019-12-09T02:15:30Z");
+        cache.get("明天", ZONE, relative, start -> parse(parses));
+        cache.get("明天", ZONE, relative, start -> parse(parses));
+        Assert.assertEquals(1, parses.get());
+        Assert.assertEquals(1, cache.getHitCount());
+
+        //时钟进入下一秒后过期
+        Thread.sleep(1100);
+        cache.get("明天", ZONE, relative, start -> parse(parses));
+        Assert.assertEquals(2, parses.get());
+        Assert.assertEquals(1, cache.getExpirationCount());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    /**
+     * 粒度大于 1 小时时，缓存项也在下一个整点过期
+     */
+    @Test
+    public void expiresAt() {
+        long now = Instant.parse("2019-12-09T02:15:30.250Z").toEpochMilli();
+        Assert.assertEquals(Instant.parse("2019-12-09T02:15:31Z").toEpochMilli(), new DocumentCache(1, Duration.ofSeconds(1)).expiresAt(ZONE, now));
+        Assert.assertEquals(Instant.parse("2019-12-09T02:16:00Z").toEpochMilli(), new DocumentCache(1, Duration.ofMinutes(1)).expiresAt(ZONE, now));
+        Assert.assertEquals(Instant.parse("2019-12-09T03:00:00Z").toEpochMilli(), new DocumentCache(1, Duration.ofHours(6)).expiresAt(ZONE, now));
+        Assert.assertEquals(Instant.parse("2019-12-09T03:00:00Z").toEpochMilli(), new DocumentCache(1, Duration.ofDays(1)).expiresAt(ZONE, now));
+        //半小时偏移的时区按本地整点
+        Assert.assertEquals(Instant.parse("2019-12-09T02:30:00Z").toEpochMilli(),
+                new DocumentCache(1, Duration.ofDays(1)).expiresAt(ZoneId.of("Asia/Kolkata"), now));
+    }
+
+    /**
+     * 无论命中与否，修改返回的列表和实体都不影响缓存内容
+     */
+    @Test
+    public void copies() {
+        DocumentCache cache = new DocumentCache(100, Duration.ofHours(1));
+        Instant relative = Instant.parse("2019-12-09T02:15:30Z");
+        List<TimeEntity> miss = cache.get("每天八点", ZONE, relative, start -> parse(new AtomicInteger()));
+        modify(miss);
+        List<TimeEntity> hit = cache.get("每天八点", ZONE, relative, start -> Collections.emptyList());
+        Assert.assertEquals(parse(new AtomicInteger()), hit);
+        modify(hit);
+        Assert.assertEquals(parse(new AtomicInteger()), cache.get("每天八点", ZONE, relative, start -> Collections.emptyList()));
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertTrue(cache.getEstimatedBytes() > 0);
+
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getEstimatedBytes());
+    }
+
+    @Test
+    public void eviction() {
+        DocumentCache cache = new DocumentCache(16, Duration.ofHours(1));
+        Instant relative = Instant.parse("2019-12-09T02:15:30Z");
+        for (int i = 0; i < 100; i++) {
+            cache.get("text" + i, ZONE, relative, start -> Collections.emptyList());
+        }
+        Assert.assertTrue(cache.size() <= 16);
+        Assert.assertEquals(100 - cache.size(), cache.getEvictionCount());
+    }
+
+    private static List<TimeEntity> parse(AtomicInteger parses) {
+        parses.incrementAndGet();
+        TimeEntity entity = new TimeEntity("每天八点", 0);
+        entity.setValue(new Date(Instant.parse("2019-12-10T00:00:00Z").toEpochMilli()));
+        entity.setCycle(new Cycle(Cycle.CYCLE_TYPE_DAY));
+        List<TimeEntity> entities = new ArrayList<>();
+        entities.add(entity);
+        return entities;
+    }
+
+    private static void modify(List<TimeEntity> entities) {
+        TimeEntity entity = entities.get(0);
+        entity.setOriginal("改");
+        entity.getValue().setTime(0);
+        entity.getCycle().setType(Cycle.CYCLE_TYPE_YEAR);
+        entity.setEnd(true);
+        entities.add(new TimeEntity("多", 1));
+    }
+
+    private static Instant truncate(Instant relative, ZoneId zone, long granularity) {
+        long offset = zone.getRules().getOffset(relative).getTotalSeconds();
+        return Instant.ofEpochSecond(Math.floorDiv(relative.getEpochSecond() + offset, granularity) * granularity - offset);
+    }
+
+    private static long clockHour(ZoneId zone) {
+        Instant now = Instant.now();
+        return Math.floorDiv(now.getEpochSecond() + zone.getRules().getOffset(now).getTotalSeconds(), 3600);
+    }
+}
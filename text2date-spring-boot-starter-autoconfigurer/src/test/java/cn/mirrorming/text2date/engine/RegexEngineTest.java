@@ -0,0 +1,154 @@
+package cn.mirrorming.text2date.engine;
+
+import cn.mirrorming.text2date.time.TimeEntity;
+import cn.mirrorming.text2date.time.TimeEntityRecognizer;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * DFA、LINEAR、GENERATED 与 JDK 引擎的差分测试：规则按书写顺序最左优先，
+ * 示例工程的测试用例和随机文本上每次匹配的位置、规则以及最终的解析结果都必须与 JDK 相同
+ */
+public class RegexEngineTest {
+    private static final String[] RULE_FILES = {"/time.regex", "/timedelta.regex", "/duration.regex"};
+    private static final RegexEngineType[] ENGINES = {RegexEngineType.DFA, RegexEngineType.LINEAR, RegexEngineType.GENERATED};
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+    private static final Instant RELATIVE = Instant.parse("2019-12-09T02:15:30Z");
+    private static final String[] WORDS = {
+            "今天", "明天", "后天", "大后天", "昨天", "前天", "今晚", "明早", "上午", "下午", "中午", "晚上", "晚", "上", "凌晨", "早上",
+            "星期", "周", "礼拜", "本周", "下周", "上周", "周末", "年", "月", "日", "号", "点", "时", "分", "秒", "半", "刻",
+            "今年", "明年", "去年", "本月", "下个月", "月底", "以后", "之后", "以前", "后", "前", "内", "个", "小时", "分钟",
+            "天", "到", "至", "-", ":", "：", "/", ".", "零", "一", "二", "两", "三", "四", "五", "八", "十", "十二", "二十",
+            "0", "1", "2", "5", "8", "10", "12", "20", "30", "2019", "国庆", "春节", "正月", "初一", "农历", "工作日",
+            "每天", "每周", "提醒我", "开会", "，", " ",
+    };
+
+    /**
+     * 规则文件 + 引擎 -> 引擎，构造 DFA 较慢，各个测试共用
+     */
+    private static final Map<String, RegexEngine> ENGINE_CACHE = new HashMap<>();
+
+    @Test
+    public void testCase() throws IOException {
+        List<String> texts = testCaseTexts();
+        for (String file : RULE_FILES) {
+            RegexEngine jdk = engine(RegexEngineType.JDK, file);
+            for (RegexEngineType type : ENGINES) {
+                RegexEngine engine = engine(type, file);
+                for (String text : texts) {
+                    Assert.assertEquals(type + " " + file + " " + text, matches(jdk, text), matches(engine, text));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void randomText() throws IOException {
+        for (String file : RULE_FILES) {
+            RegexEngine jdk = engine(RegexEngineType.JDK, file);
+            for (RegexEngineType type : ENGINES) {
+                RegexEngine engine = engine(type, file);
+                Random random = new Random(20191209L);
+                StringBuilder text = new StringBuilder();
+                for (int i = 0; i < 20000; i++) {
+                    text.setLength(0);
+                    for (int n = 1 + random.nextInt(10); n > 0; n--) {
+                        text.append(WORDS[random.nextInt(WORDS.length)]);
+                    }
+                    String s = text.toString();
+                    Assert.assertEquals(type + " " + file + " " + s, matches(jdk, s), matches(engine, s));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void parse() throws IOException {
+        List<String> texts = testCaseTexts();
+        TimeEntityRecognizer jdk = new TimeEntityRecognizer(RegexEngineType.JDK);
+        for (RegexEngineType type : ENGINES) {
+            TimeEntityRecognizer recognizer = new TimeEntityRecognizer(type);
+            for (String text : texts) {
+                Assert.assertEquals(type + " " + text, jdk.parse(text, ZONE, RELATIVE), recognizer.parse(text, ZONE, RELATIVE));
+            }
+        }
+    }
+
+    /**
+     * 规则内部的分支先后、规则之间的先后都按 JDK：国庆|国庆节 只匹配“国庆”，
+     * “星期五晚上八点”不会因为“星期五晚”更长而丢掉晚上，解析为一个 20 点的实体
+     */
+    @Test
+    public void ruleOrder() throws IOException {
+        for (RegexEngineType type : ENGINES) {
+            RegexEngine engine = engine(type, "/time.regex");
+            Assert.assertEquals(type.toString(), matches(engine(RegexEngineType.JDK, "/time.regex"), "星期五晚上八点"),
+                    matches(engine, "星期五晚上八点"));
+            RuleMatcher matcher = engine.matcher("国庆节");
+            Assert.assertTrue(type.toString(), matcher.find());
+            Assert.assertEquals(type.toString(), "国庆", matcher.group());
+
+            List<TimeEntity> entities = new TimeEntityRecognizer(type).parse("星期五晚上八点", ZONE, RELATIVE);
+            Assert.assertEquals(type.toString(), 1, entities.size());
+            Assert.assertEquals(type.toString(), "星期五晚上八点", entities.get(0).getOriginal());
+            Assert.assertEquals(type.toString(), 20, entities.get(0).getDateTime().getHour());
+        }
+    }
+
+    private static synchronized RegexEngine engine(RegexEngineType type, String file) throws IOException {
+        String key = file + type;
+        RegexEngine engine = ENGINE_CACHE.get(key);
+        if (engine == null) {
+            engine = type.create(rules(file));
+            ENGINE_CACHE.put(key, engine);
+        }
+        return engine;
+    }
+
+    /**
+     * @return 每次匹配的 开始-结束:规则
+     */
+    private static List<String> matches(RegexEngine engine, String text) {
+        List<String> result = new ArrayList<>();
+        RuleMatcher matcher = engine.matcher(text);
+        while (matcher.find()) {
+            result.add(matcher.start() + "-" + matcher.end() + ":" + matcher.rule());
+        }
+        return result;
+    }
+
+    private static List<String> rules(String file) throws IOException {
+        try (InputStream in = RegexEngineTest.class.getResourceAsStream(file)) {
+            return IOUtils.readLines(in, "UTF-8").stream()
+                    .map(StringUtils::stripToNull)
+                    .filter(item -> StringUtils.isNotEmpty(item) && !item.startsWith("#")).distinct()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @return 示例工程的测试用例，每行一条
+     */
+    public static List<String> testCaseTexts() throws IOException {
+        try (InputStream in = RegexEngineTest.class.getResourceAsStream("/testCase.txt")) {
+            Assert.assertNotNull("testCase.txt", in);
+            return IOUtils.readLines(in, "UTF-8").stream()
+                    .map(line -> StringUtils.strip(StringUtils.removeStart(line, "\uFEFF")))
+                    .filter(StringUtils::isNotEmpty)
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package cn.mirrorming.text2date.number;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * {@link ChineseNumbers#chineseNumberToInt(CharSequence, int, int)} 与 (int) chineseNumberToEnglish 的结果相同，
+ * 抛出的异常类型也相同
+ */
+public class ChineseNumbersTest {
+    private static final String CHARS = "零一二两三四五六七八九十百千万拾佰仟廿点分之负个0123456789";
+
+    @Test
+    public void randomText() {
+        Random random = new Random(20191209L);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3000000; i++) {
+            text.setLength(0);
+            int prefix = random.nextInt(3);
+            int length = 1 + random.nextInt(i % 10 == 0 ? 8 : 4);
+            int suffix = random.nextInt(3);
+            for (int n = prefix + length + suffix; n > 0; n--) {
+                //快速路径的字符多抽一些
+                text.append(CHARS.charAt(random.nextInt(random.nextBoolean() ? 14 : CHARS.length())));
+            }
+            assertSame(text, prefix, prefix + length);
+        }
+    }
+
+    @Test
+    public void knownNumbers() {
+        String[] texts = {"三", "十", "十二", "二十", "二十三", "一百", "一百零五", "三千二百", "两千零一十九", "2019", "12", "零", "廿三", "一万", "三点五"};
+        int[] expected = {3, 10, 12, 20, 23, 100, 105, 3200, 2019, 2019, 12, 0, 23, 10000, 3};
+        for (int i = 0; i < texts.length; i++) {
+            Assert.assertEquals(texts[i], expected[i], ChineseNumbers.chineseNumberToInt("第" + texts[i] + "天", 1, texts[i].length() + 1));
+            assertSame(texts[i], 0, texts[i].length());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void empty() {
+        ChineseNumbers.chineseNumberToInt("三天", 1, 1);
+    }
+
+    private static void assertSame(CharSequence text, int start, int end) {
+        String message = text + " " + start + "-" + end;
+        Object expected;
+        try {
+            expected = (int) ChineseNumbers.chineseNumberToEnglish(text.subSequence(start, end).toString());
+        } catch (RuntimeException e) {
+            expected = e.getClass();
+        }
+        Object actual;
+        try {
+            actual = ChineseNumbers.chineseNumberToInt(text, start, end);
+        } catch (RuntimeException e) {
+            actual = e.getClass();
+        }
+        Assert.assertEquals(message, expected, actual);
+    }
+}
@@ -0,0 +1,124 @@
+package cn.mirrorming.text2date.time;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * {@link EpochCalendar} 代替 Calendar 做时间计算，日期与 java.time 对照，时区内的加减与 GregorianCalendar 对照
+ */
+public class EpochCalendarTest {
+    /**
+     * 固定偏移、没有夏令时、有夏令时的南北半球、半小时偏移
+     */
+    private static final String[] ZONES = {
+            "UTC", "GMT+08:00", "Asia/Shanghai", "America/New_York", "Europe/London", "Australia/Sydney", "Asia/Kolkata",
+    };
+
+    @Test
+    public void dates() {
+        long first = LocalDate.of(1600, 1, 1).toEpochDay();
+        long last = LocalDate.of(2400, 12, 31).toEpochDay();
+        for (long epochDay = first; epochDay <= last; epochDay++) {
+            LocalDate expected = LocalDate.ofEpochDay(epochDay);
+            long date = EpochCalendar.date(epochDay);
+            Assert.assertEquals(expected.getYear(), EpochCalendar.year(date));
+            Assert.assertEquals(expected.getMonthValue(), EpochCalendar.month(date));
+            Assert.assertEquals(expected.getDayOfMonth(), EpochCalendar.day(date));
+            Assert.assertEquals(epochDay, EpochCalendar.epochDay(expected.getYear(), expected.getMonthValue(), expected.getDayOfMonth()));
+            Assert.assertEquals(expected.getDayOfWeek().getValue(), EpochCalendar.dayOfWeek(epochDay));
+        }
+        for (int year = 1600; year <= 2400; year++) {
+            Assert.assertEquals(Year.isLeap(year), EpochCalendar.isLeapYear(year));
+            for (int month = 1; month <= 12; month++) {
+                Assert.assertEquals(YearMonth.of(year, month).lengthOfMonth(), EpochCalendar.lengthOfMonth(year, month));
+            }
+        }
+        //超出月末时顺延
+        Assert.assertEquals(LocalDate.of(2024, 3, 1).toEpochDay(), EpochCalendar.epochDay(2024, 2, 30));
+    }
+
+    /**
+     * 1920 年之后的随机时刻，加减后也在 1910 年之后：避开 Calendar 的儒略历，
+     * 以及 TimeZone 不支持的地方平时(如上海 1901 年以前的 +08:05:43)
+     */
+    @Test
+    public void zones() {
+        Random random = new Random(20191209L);
+        long from = LocalDate.of(1920, 1, 1).toEpochDay() * EpochCalendar.SECONDS_PER_DAY;
+        long to = LocalDate.of(2100, 1, 1).toEpochDay() * EpochCalendar.SECONDS_PER_DAY;
+        for (String id : ZONES) {
+            ZoneId zone = ZoneId.of(id);
+            EpochCalendar calendar = EpochCalendar.of(zone);
+            GregorianCalendar expected = new GregorianCalendar(TimeZone.getTimeZone(zone));
+            for (int i = 0; i < 20000; i++) {
+                long epochSecond = from + (long) (random.nextDouble() * (to - from));
+                String message = id + " " + epochSecond;
+
+                expected.setTimeInMillis(epochSecond * 1000);
+                long local = calendar.toLocal(epochSecond);
+                Assert.assertEquals(message, expected.get(Calendar.ZONE_OFFSET) + expected.get(Calendar.DST_OFFSET),
+                        (local - epochSecond) * 1000);
+
+                int days = random.nextInt(800) - 400;
+                expected.setTimeInMillis(epochSecond * 1000);
+                expected.add(Calendar.DAY_OF_MONTH, days);
+                Assert.assertEquals(message + " +" + days + "d", expected.getTimeInMillis() / 1000, calendar.plusDays(epochSecond, days));
+
+                int months = random.nextInt(200) - 100;
+                expected.setTimeInMillis(epochSecond * 1000);
+                expected.add(Calendar.MONTH, months);
+                Assert.assertEquals(message + " +" + months + "M", expected.getTimeInMillis() / 1000, calendar.plusMonths(epochSecond, months));
+
+                //本地时间按 Calendar 的方式回到时刻，包括夏令时跳过和重复的钟点
+                LocalDate date = LocalDate.of(1910 + random.nextInt(190), 1 + random.nextInt(12), 1 + random.nextInt(28));
+                int seconds = random.nextInt(EpochCalendar.SECONDS_PER_DAY);
+                long expectedLocal = date.toEpochDay() * EpochCalendar.SECONDS_PER_DAY + seconds;
+                expected.clear();
+                expected.set(date.getYear(), date.getMonthValue() - 1, date.getDayOfMonth(), seconds / 3600, seconds / 60 % 60, seconds % 60);
+                Assert.assertEquals(id + " local " + expectedLocal, expected.getTimeInMillis() / 1000, calendar.toEpochSecond(expectedLocal));
+            }
+        }
+    }
+
+    /**
+     * 夏令时跳过和重复的钟点前后逐刻对照
+     */
+    @Test
+    public void transitions() {
+        for (String id : ZONES) {
+            ZoneId zone = ZoneId.of(id);
+            EpochCalendar calendar = EpochCalendar.of(zone);
+            GregorianCalendar expected = new GregorianCalendar(TimeZone.getTimeZone(zone));
+            ZoneOffsetTransition transition = zone.getRules().nextTransition(Instant.parse("1990-01-01T00:00:00Z"));
+            for (; transition != null && transition.getInstant().getEpochSecond() < 4102444800L;
+                 transition = zone.getRules().nextTransition(transition.getInstant())) {
+                long start = transition.getDateTimeBefore().toEpochSecond(ZoneOffset.UTC) - 7200;
+                for (long local = start; local <= start + 4 * 7200; local += 900) {
+                    LocalDateTime dateTime = LocalDateTime.ofEpochSecond(local, 0, ZoneOffset.UTC);
+                    expected.clear();
+                    expected.set(dateTime.getYear(), dateTime.getMonthValue() - 1, dateTime.getDayOfMonth(),
+                            dateTime.getHour(), dateTime.getMinute(), dateTime.getSecond());
+                    Assert.assertEquals(id + " " + dateTime, expected.getTimeInMillis() / 1000, calendar.toEpochSecond(local));
+
+                    long epochSecond = local - transition.getOffsetBefore().getTotalSeconds();
+                    expected.setTimeInMillis(epochSecond * 1000);
+                    expected.add(Calendar.DAY_OF_MONTH, 1);
+                    Assert.assertEquals(id + " " + dateTime + " +1d", expected.getTimeInMillis() / 1000, calendar.plusDays(epochSecond, 1));
+                }
+            }
+        }
+    }
+}
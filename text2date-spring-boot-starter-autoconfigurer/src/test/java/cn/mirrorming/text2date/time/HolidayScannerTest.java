@@ -0,0 +1,81 @@
+package cn.mirrorming.text2date.time;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link HolidayScanner} 找到的节日位置，以及节日与相邻的规则匹配合并后的解析结果
+ */
+public class HolidayScannerTest {
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+    private static final Instant RELATIVE = Instant.parse("2019-12-09T02:15:30Z");
+    private static final TimeEntityRecognizer RECOGNIZER = new TimeEntityRecognizer();
+
+    @Test
+    public void spans() {
+        //同一位置取最长的词
+        Assert.assertEquals("[0-3:国庆节]", spans("国庆节"));
+        Assert.assertEquals("[2-4:国庆]", spans("今年国庆去哪"));
+        Assert.assertEquals("[0-2:春节, 3-6:国庆节]", spans("春节和国庆节"));
+        Assert.assertEquals("[0-3:中秋节, 3-5:国庆]", spans("中秋节国庆"));
+        Assert.assertEquals("[]", spans("明天下午三点"));
+        Assert.assertEquals("[]", spans(""));
+    }
+
+    @Test
+    public void merge() {
+        Assert.assertEquals("[明年国庆节上午9点=2020-10-01T09:00]", parse("明年国庆节上午9点"));
+        Assert.assertEquals("[2020年春节=2020-01-25T00:00 d]", parse("2020年春节"));
+        Assert.assertEquals("[春节=2019-02-05T00:00 d, 国庆节=2019-10-01T00:00 d]", parse("春节和国庆节"));
+        Assert.assertEquals("[国庆节=2019-10-01T00:00 d]", parse("国庆节前后"));
+    }
+
+    /**
+     * 节日后面的天数偏移以节日当天为基准
+     */
+    @Test
+    public void offset() {
+        Assert.assertEquals("[春节前三天=2019-02-02T00:00 d]", parse("春节前三天"));
+        Assert.assertEquals("[春节后三天=2019-02-08T00:00 d]", parse("春节后三天"));
+        Assert.assertEquals("[春节三天后=2019-02-08T00:00 d]", parse("春节三天后"));
+        Assert.assertEquals("[国庆节3天前=2019-09-28T00:00 d]", parse("国庆节3天前"));
+        Assert.assertEquals("[中秋节前一天=2019-09-12T00:00 d]", parse("中秋节前一天"));
+        Assert.assertEquals("[2020年春节前三天=2020-01-22T00:00 d]", parse("2020年春节前三天"));
+        Assert.assertEquals("[国庆节前一天晚上8点=2019-09-30T20:00]", parse("国庆节前一天晚上8点"));
+        Assert.assertEquals("[国庆节后3天上午9点=2019-10-04T09:00]", parse("国庆节后3天上午9点"));
+        //没有节日时仍按相对时间
+        Assert.assertEquals("[前三天=2019-12-06T10:15]", parse("前三天"));
+    }
+
+    /**
+     * @return 每个节日的 开始-结束:词
+     */
+    private static String spans(String text) {
+        ParseContext context = new ParseContext();
+        HolidayScanner.scan(text, context);
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < context.holidayCount; i++) {
+            Assert.assertEquals(text, HolidayScanner.length(context.holidayWords[i]), context.holidayEnds[i] - context.holidayStarts[i]);
+            result.add(context.holidayStarts[i] + "-" + context.holidayEnds[i] + ":" + HolidayScanner.word(context.holidayWords[i]));
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return 每个实体的 原文=本地时间，只有日期时加 d
+     */
+    private static String parse(String text) {
+        List<String> result = new ArrayList<>();
+        for (TimeEntity entity : RECOGNIZER.parse(text, ZONE, RELATIVE)) {
+            LocalDateTime dateTime = LocalDateTime.ofInstant(entity.getValue().toInstant(), ZONE).withSecond(0);
+            result.add(entity.getOriginal() + "=" + dateTime + (entity.isDateOnly() ? " d" : ""));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,101 @@
+package cn.mirrorming.text2date.time;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+/**
+ * {@link LunarCalendar} 的查表结果与逐年、逐月累加天数的算法对照，并且公历、农历互相转换后不变
+ */
+public class LunarCalendarTest {
+
+    @Test
+    public void roundTrip() {
+        long first = LunarCalendar.MIN_EPOCH_DAY;
+        long epochDay = first;
+        for (; LunarCalendar.isSupported(epochDay); epochDay++) {
+            int date = LunarCalendar.date(epochDay);
+            int[] expected = walk(epochDay - first);
+            String message = LocalDate.ofEpochDay(epochDay).toString();
+            Assert.assertEquals(message, expected[0], LunarCalendar.year(date));
+            Assert.assertEquals(message, expected[1], LunarCalendar.month(date));
+            Assert.assertEquals(message, expected[2], LunarCalendar.day(date));
+            Assert.assertEquals(message, expected[3] == 1, LunarCalendar.isLeap(date));
+            Assert.assertEquals(message, epochDay, LunarCalendar.epochDay(LunarCalendar.year(date), LunarCalendar.month(date),
+                    LunarCalendar.day(date), LunarCalendar.isLeap(date)));
+            Assert.assertTrue(message, LunarCalendar.day(date) <= LunarCalendar.lengthOfMonth(LunarCalendar.year(date),
+                    LunarCalendar.month(date), LunarCalendar.isLeap(date)));
+            Assert.assertEquals(message, LocalDate.ofEpochDay(epochDay), LunarGregorianConverter.lunarToGregorian(LunarCalendar.year(date),
+                    LunarCalendar.month(date), LunarCalendar.day(date), LunarCalendar.isLeap(date)));
+        }
+        //数据表之后的一天是下一年正月初一
+        Assert.assertEquals(LunarCalendar.MAX_YEAR + 1, walk(epochDay - first)[0]);
+        Assert.assertFalse(LunarCalendar.isSupported(first - 1));
+    }
+
+    @Test
+    public void knownDates() {
+        assertLunar(LocalDate.of(1900, 1, 31), 1900, 1, 1, false);
+        assertLunar(LocalDate.of(2023, 3, 22), 2023, 2, 1, true);
+        assertLunar(LocalDate.of(2024, 2, 10), 2024, 1, 1, false);
+        assertLunar(LocalDate.of(2024, 2, 9), 2023, 12, 30, false);
+        assertLunar(LocalDate.of(2025, 1, 29), 2025, 1, 1, false);
+        assertLunar(LocalDate.of(2025, 7, 25), 2025, 6, 1, true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noSuchLeapMonth() {
+        LunarCalendar.epochDay(2024, 2, 1, true);
+    }
+
+    private static void assertLunar(LocalDate gregorian, int year, int month, int day, boolean leap) {
+        int date = LunarCalendar.date(gregorian.toEpochDay());
+        Assert.assertEquals(gregorian.toString(), year, LunarCalendar.year(date));
+        Assert.assertEquals(gregorian.toString(), month, LunarCalendar.month(date));
+        Assert.assertEquals(gregorian.toString(), day, LunarCalendar.day(date));
+        Assert.assertEquals(gregorian.toString(), leap, LunarCalendar.isLeap(date));
+        Assert.assertEquals(gregorian.toEpochDay(), LunarCalendar.epochDay(year, month, day, leap));
+    }
+
+    /**
+     * 与原来的 convert 相同：从农历 1900 年正月初一起逐年、逐月减去天数
+     *
+     * @param offset 距 1900-01-31 的天数
+     * @return 年、月、日、是否闰月(1 为闰月)
+     */
+    private static int[] walk(long offset) {
+        int year = LunarCalendar.MIN_YEAR;
+        while (year <= LunarCalendar.MAX_YEAR && offset >= daysOfYear(year)) {
+            offset -= daysOfYear(year);
+            year++;
+        }
+        if (year > LunarCalendar.MAX_YEAR) {
+            return new int[]{year, 1, (int) offset + 1, 0};
+        }
+        int leap = LunarGregorianConverter.leapMonth(year);
+        for (int month = 1; month <= 12; month++) {
+            int days = LunarGregorianConverter.monthDays(year, month);
+            if (offset < days) {
+                return new int[]{year, month, (int) offset + 1, 0};
+            }
+            offset -= days;
+            if (month == leap) {
+                days = LunarGregorianConverter.leapDays(year);
+                if (offset < days) {
+                    return new int[]{year, month, (int) offset + 1, 1};
+                }
+                offset -= days;
+            }
+        }
+        throw new AssertionError("offset out of year " + year);
+    }
+
+    private static int daysOfYear(int year) {
+        int days = LunarGregorianConverter.leapDays(year);
+        for (int month = 1; month <= 12; month++) {
+            days += LunarGregorianConverter.monthDays(year, month);
+        }
+        return days;
+    }
+}
@@ -0,0 +1,119 @@
+package cn.mirrorming.text2date.time;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * {@link NegativeTextFilter} 只跳过规则和节日都没有命中的文本，开启与关闭时解析结果相同
+ */
+public class NegativeTextFilterTest {
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    /**
+     * 关闭、容量足够、容量很小(不停覆盖)三种情况的结果相同；文本从 2000 条中抽取，会重复出现
+     */
+    @Test
+    public void randomText() {
+        TimeEntityRecognizer expected = new TimeEntityRecognizer();
+        TimeEntityRecognizer large = new TimeEntityRecognizer();
+        NegativeTextFilter largeFilter = new NegativeTextFilter(100000, Duration.ofHours(1));
+        large.setNegativeFilter(largeFilter);
+        TimeEntityRecognizer small = new TimeEntityRecognizer();
+        NegativeTextFilter smallFilter = new NegativeTextFilter(8, Duration.ofHours(1));
+        small.setNegativeFilter(smallFilter);
+
+        Random random = new Random(20191209L);
+        String[] texts = new String[2000];
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < texts.length; i++) {
+            text.setLength(0);
+            for (int n = 1 + random.nextInt(4); n > 0; n--) {
+                text.append(TimeFieldTransducerTest.WORDS[random.nextInt(TimeFieldTransducerTest.WORDS.length)]);
+            }
+            texts[i] = text.toString();
+        }
+        //不受过滤器影响的结果，每个文本、相对时间只解析一次
+        Map<String, List<TimeEntity>> results = new HashMap<>();
+        for (int i = 0; i < 300000; i++) {
+            String s = texts[random.nextInt(texts.length)];
+            Instant relative = TimeFieldTransducerTest.RELATIVES[random.nextInt(TimeFieldTransducerTest.RELATIVES.length)];
+            List<TimeEntity> result = results.computeIfAbsent(s + "@" + relative, key -> expected.parse(s, ZONE, relative));
+            Assert.assertEquals(s + " @ " + relative, result, large.parse(s, ZONE, relative));
+            Assert.assertEquals(s + " @ " + relative, result, small.parse(s, ZONE, relative));
+        }
+        Assert.assertTrue(largeFilter.toString(), largeFilter.getHitCount() > 10000);
+        Assert.assertTrue(smallFilter.toString(), smallFilter.getHitCount() < largeFilter.getHitCount());
+    }
+
+    /**
+     * 记录保留一到两个周期
+     */
+    @Test
+    public void rotation() throws InterruptedException {
+        NegativeTextFilter filter = new NegativeTextFilter(100, Duration.ofMillis(300));
+        filter.add("去北京开会");
+        Assert.assertTrue(filter.contains("去北京开会"));
+        Assert.assertFalse(filter.contains("去上海开会"));
+
+        Thread.sleep(350);
+        Assert.assertTrue(filter.contains("去北京开会"));
+        Assert.assertEquals(1, filter.getRotationCount());
+
+        Thread.sleep(350);
+        Assert.assertFalse(filter.contains("去北京开会"));
+        Assert.assertEquals(2, filter.getRotationCount());
+
+        filter.add("去北京开会");
+        filter.clear();
+        Assert.assertFalse(filter.contains("去北京开会"));
+    }
+
+    /**
+     * 桶满时覆盖旧的记录，内存固定，没有记录过的文本不会命中
+     */
+    @Test
+    public void overwrite() {
+        NegativeTextFilter filter = new NegativeTextFilter(8, Duration.ofHours(1));
+        long memory = filter.getMemoryBytes();
+        for (int i = 0; i < 1000; i++) {
+            filter.add("text" + i);
+        }
+        Assert.assertEquals(memory, filter.getMemoryBytes());
+        int remembered = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (filter.contains("text" + i)) {
+                remembered++;
+            }
+        }
+        Assert.assertTrue(remembered > 0 && remembered <= 8);
+        for (int i = 0; i < 100000; i++) {
+            Assert.assertFalse(filter.contains("other" + i));
+        }
+        Assert.assertEquals(remembered, filter.getHitCount());
+        Assert.assertEquals(1000, filter.getRecordCount());
+    }
+
+    /**
+     * 命中了但解析失败的文本不记录：农历数据表之外的年份没有春节，换个相对时间仍然可以解析
+     */
+    @Test
+    public void matchedButUnresolved() {
+        TimeEntityRecognizer recognizer = new TimeEntityRecognizer();
+        NegativeTextFilter filter = new NegativeTextFilter(100, Duration.ofHours(1));
+        recognizer.setNegativeFilter(filter);
+        Assert.assertTrue(recognizer.parse("春节", ZONE, Instant.parse("2200-06-01T00:00:00Z")).isEmpty());
+        Assert.assertEquals(1, recognizer.parse("春节", ZONE, Instant.parse("2019-06-01T00:00:00Z")).size());
+        Assert.assertEquals(0, filter.getRecordCount());
+
+        Assert.assertTrue(recognizer.parse("去北京开会", ZONE, Instant.parse("2019-06-01T00:00:00Z")).isEmpty());
+        Assert.assertEquals(1, filter.getRecordCount());
+    }
+}
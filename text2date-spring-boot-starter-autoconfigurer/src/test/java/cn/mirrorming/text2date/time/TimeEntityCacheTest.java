@@ -0,0 +1,151 @@
+package cn.mirrorming.text2date.time;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link TimeEntityCache} 开启与关闭时解析结果相同，缓存项只在用到的相对时间字段和 UTC 偏移都相同时有效
+ */
+public class TimeEntityCacheTest {
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+    private static final String[] ZONES = {
+            "UTC", "GMT+08:00", "Asia/Shanghai", "America/New_York", "Europe/London", "Australia/Sydney", "Asia/Kolkata",
+    };
+
+    /**
+     * 随机文本、集中在几个时刻附近的相对时间和不同时区，包括夏令时切换前后
+     */
+    @Test
+    public void randomText() {
+        TimeEntityRecognizer expected = new TimeEntityRecognizer();
+        TimeEntityRecognizer cached = new TimeEntityRecognizer();
+        TimeEntityCache cache = new TimeEntityCache(10000);
+        cached.setCache(cache);
+        long[] centers = {
+                Instant.parse("2019-12-09T02:15:30Z").getEpochSecond(),
+                Instant.parse("2024-02-29T15:59:59Z").getEpochSecond(),
+                //纽约夏令时结束、伦敦夏令时开始
+                Instant.parse("2019-11-03T05:30:00Z").getEpochSecond(),
+                Instant.parse("2024-03-31T00:30:00Z").getEpochSecond(),
+        };
+        Random random = new Random(20191209L);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 300000; i++) {
+            text.setLength(0);
+            for (int n = 1 + random.nextInt(4); n > 0; n--) {
+                text.append(TimeFieldTransducerTest.WORDS[random.nextInt(TimeFieldTransducerTest.WORDS.length)]);
+            }
+            ZoneId zone = ZoneId.of(ZONES[random.nextInt(ZONES.length)]);
+            //同一分钟、同一小时、同一天、几个月之内
+            long[] spreads = {60, 3600, 86400, 86400 * 100};
+            Instant relative = Instant.ofEpochSecond(centers[random.nextInt(centers.length)] + (long) (random.nextGaussian() * spreads[random.nextInt(spreads.length)]));
+            long clockHour = TimeEntityCache.clockHour(EpochCalendar.of(zone));
+            List<TimeEntity> actual = cached.parse(text, zone, relative);
+            List<TimeEntity> parsed = expected.parse(text, zone, relative);
+            //两次解析之间时钟跨过了整点时，过去的钟点可能按不同的小时顺延
+            if (clockHour == TimeEntityCache.clockHour(EpochCalendar.of(zone))) {
+                Assert.assertEquals(text + " " + zone + " @ " + relative, parsed, actual);
+            }
+        }
+        Assert.assertTrue(cache.toString(), cache.getHitCount() > 10000);
+        Assert.assertTrue(cache.toString(), cache.getInvalidationCount() > 10000);
+    }
+
+    @Test
+    public void validity() {
+        TimeEntityRecognizer expected = new TimeEntityRecognizer();
+        TimeEntityRecognizer recognizer = new TimeEntityRecognizer();
+        TimeEntityCache cache = new TimeEntityCache(100);
+        recognizer.setCache(cache);
+
+        //与相对时间无关
+        assertParse(expected, recognizer, "2020年3月5日上午9点", "2019-12-09T02:15:30Z");
+        assertParse(expected, recognizer, "2020年3月5日上午9点", "2031-06-01T12:00:00Z");
+        assertCounts(cache, 1, 1, 0);
+
+        //同一天内有效
+        assertParse(expected, recognizer, "明天下午三点", "2019-12-09T02:15:30Z");
+        assertParse(expected, recognizer, "明天下午三点", "2019-12-09T15:59:59Z");
+        assertCounts(cache, 2, 2, 0);
+        assertParse(expected, recognizer, "明天下午三点", "2019-12-09T16:00:00Z");
+        assertCounts(cache, 2, 3, 1);
+
+        //同一分钟内有效
+        assertParse(expected, recognizer, "半小时后", "2019-12-09T02:15:00Z");
+        assertParse(expected, recognizer, "半小时后", "2019-12-09T02:15:59Z");
+        assertCounts(cache, 3, 4, 1);
+        assertParse(expected, recognizer, "半小时后", "2019-12-09T02:16:00Z");
+        assertCounts(cache, 3, 5, 2);
+    }
+
+    /**
+     * 夏令时结束时同一个本地时间出现两次，偏移不同的相对时间不能共用缓存项
+     */
+    @Test
+    public void offset() {
+        ZoneId zone = ZoneId.of("America/New_York");
+        TimeEntityRecognizer expected = new TimeEntityRecognizer();
+        TimeEntityRecognizer cached = new TimeEntityRecognizer();
+        TimeEntityCache cache = new TimeEntityCache(100);
+        cached.setCache(cache);
+        //都是本地时间 2019-11-03 01:30，先是 EDT，后是 EST
+        Instant daylight = Instant.parse("2019-11-03T05:30:00Z");
+        Instant standard = Instant.parse("2019-11-03T06:30:00Z");
+        Assert.assertEquals(expected.parse("半小时后", zone, daylight), cached.parse("半小时后", zone, daylight));
+        Assert.assertEquals(expected.parse("半小时后", zone, standard), cached.parse("半小时后", zone, standard));
+        Assert.assertNotEquals(cached.parse("半小时后", zone, daylight), cached.parse("半小时后", zone, standard));
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertTrue(cache.getInvalidationCount() >= 3);
+    }
+
+    /**
+     * 解析时读取了时钟的缓存项，时钟换了小时就失效
+     */
+    @Test
+    public void clockHour() {
+        EpochCalendar calendar = EpochCalendar.of(ZONE);
+        long relative = Instant.parse("2019-12-09T02:15:30Z").getEpochSecond();
+        TimeEntityCache cache = new TimeEntityCache(100);
+        ParseContext context = new ParseContext();
+        int[] fields = {2019, 12, 9, 8, -1, -1};
+
+        context.resetDependencies();
+        context.clockHour = TimeEntityCache.clockHour(calendar) - 1;
+        cache.put("八点", calendar, relative, true, fields, null, context);
+        Assert.assertNull(cache.get("八点", calendar, relative, true));
+        Assert.assertEquals(1, cache.getInvalidationCount());
+
+        context.resetDependencies();
+        cache.put("八点", calendar, relative, true, fields, null, context);
+        Assert.assertNotNull(cache.get("八点", calendar, relative, true));
+    }
+
+    @Test
+    public void eviction() {
+        EpochCalendar calendar = EpochCalendar.of(ZONE);
+        TimeEntityCache cache = new TimeEntityCache(16);
+        ParseContext context = new ParseContext();
+        context.resetDependencies();
+        for (int i = 0; i < 100; i++) {
+            cache.put("text" + i, calendar, 0, true, new int[]{2020, 1, 1, -1, -1, -1}, null, context);
+        }
+        Assert.assertTrue(cache.size() <= 16);
+        Assert.assertEquals(100 - cache.size(), cache.getEvictionCount());
+    }
+
+    private static void assertParse(TimeEntityRecognizer expected, TimeEntityRecognizer cached, String text, String relative) {
+        Instant instant = Instant.parse(relative);
+        Assert.assertEquals(text + " @ " + relative, expected.parse(text, ZONE, instant), cached.parse(text, ZONE, instant));
+    }
+
+    private static void assertCounts(TimeEntityCache cache, long size, long misses, long invalidations) {
+        Assert.assertEquals(cache.toString(), size, cache.size());
+        Assert.assertEquals(cache.toString(), misses, cache.getMissCount());
+        Assert.assertEquals(cache.toString(), invalidations, cache.getInvalidationCount());
+    }
+}
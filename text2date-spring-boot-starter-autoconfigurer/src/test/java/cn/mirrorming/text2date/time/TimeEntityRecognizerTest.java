@@ -0,0 +1,118 @@
+package cn.mirrorming.text2date.time;
+
+import cn.mirrorming.text2date.engine.RegexEngineTest;
+import cn.mirrorming.text2date.engine.RegexEngineType;
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * {@link TimeEntityRecognizer} 的解析结果
+ */
+public class TimeEntityRecognizerTest {
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    /**
+     * 按命中的规则跳过字段解析器不能改变结果：与每个实体运行全部解析器对照
+     */
+    @Test
+    public void ruleSlots() throws IOException {
+        TimeEntityRecognizer dispatch = new TimeEntityRecognizer();
+        TimeEntityRecognizer all = new TimeEntityRecognizer();
+        all.setDispatch(false);
+        for (String text : RegexEngineTest.testCaseTexts()) {
+            for (Instant relative : TimeFieldTransducerTest.RELATIVES) {
+                Assert.assertEquals(text + " @ " + relative, all.parse(text, ZONE, relative), dispatch.parse(text, ZONE, relative));
+            }
+        }
+        Random random = new Random(20191209L);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            text.setLength(0);
+            for (int n = 1 + random.nextInt(8); n > 0; n--) {
+                text.append(TimeFieldTransducerTest.WORDS[random.nextInt(TimeFieldTransducerTest.WORDS.length)]);
+            }
+            Instant relative = TimeFieldTransducerTest.RELATIVES[random.nextInt(TimeFieldTransducerTest.RELATIVES.length)];
+            Assert.assertEquals(text + " @ " + relative, all.parse(text, ZONE, relative), dispatch.parse(text, ZONE, relative));
+        }
+    }
+
+    /**
+     * 所有引擎、正则和单遍提取两条路径的输出都与 baseline-parse.txt 中记录的最初版本的输出相同，
+     * 有意的改变在文件中逐行注明
+     */
+    @Test
+    public void baseline() throws IOException {
+        List<String> expected;
+        try (InputStream in = getClass().getResourceAsStream("/baseline-parse.txt")) {
+            expected = IOUtils.readLines(in, "UTF-8").stream().filter(line -> !line.startsWith("#")).collect(Collectors.toList());
+        }
+        Assert.assertTrue(expected.size() > 600);
+        for (RegexEngineType type : RegexEngineType.values()) {
+            for (boolean transducer : new boolean[]{false, true}) {
+                TimeEntityRecognizer recognizer = new TimeEntityRecognizer(type);
+                recognizer.setTransducer(transducer);
+                for (String line : expected) {
+                    String[] columns = line.split("\t", 3);
+                    Assert.assertEquals(type + (transducer ? " transducer" : ""), line, format(recognizer, columns[0], Instant.parse(columns[1])));
+                }
+            }
+        }
+    }
+
+    /**
+     * 同一个解析上下文连续解析 20 万条随机文本，每条的结果与使用新的上下文相同：上一次解析留下的状态不影响下一次
+     */
+    @Test
+    public void reuseContext() {
+        for (boolean transducer : new boolean[]{false, true}) {
+            TimeEntityRecognizer recognizer = new TimeEntityRecognizer();
+            recognizer.setTransducer(transducer);
+            ParseContext context = new ParseContext();
+            Random random = new Random(20191209L);
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 100000; i++) {
+                text.setLength(0);
+                for (int n = 1 + random.nextInt(8); n > 0; n--) {
+                    text.append(TimeFieldTransducerTest.WORDS[random.nextInt(TimeFieldTransducerTest.WORDS.length)]);
+                }
+                Instant relative = TimeFieldTransducerTest.RELATIVES[random.nextInt(TimeFieldTransducerTest.RELATIVES.length)];
+                Assert.assertEquals(text + " @ " + relative, recognizer.parse(text, ZONE, relative, new ParseContext()),
+                        recognizer.parse(text, ZONE, relative, context));
+            }
+        }
+    }
+
+    /**
+     * @return 文本、相对时间、每个实体的 位置:原文=本地时间 和标记，以制表符分隔
+     */
+    private static String format(TimeEntityRecognizer recognizer, String text, Instant relative) {
+        StringBuilder result = new StringBuilder(text).append('\t').append(relative);
+        for (TimeEntity entity : recognizer.parse(text, ZONE, relative)) {
+            result.append('\t').append(entity.getOffset()).append(':').append(entity.getOriginal()).append('=')
+                    .append(LocalDateTime.ofInstant(entity.getValue().toInstant(), ZONE));
+            if (entity.isDateOnly()) {
+                result.append(" date");
+            }
+            if (entity.isStart()) {
+                result.append(" start");
+            }
+            if (entity.isEnd()) {
+                result.append(" end");
+            }
+            if (entity.getCycle() != null) {
+                result.append(" cycle").append(entity.getCycle().getType());
+            }
+        }
+        return result.toString();
+    }
+}
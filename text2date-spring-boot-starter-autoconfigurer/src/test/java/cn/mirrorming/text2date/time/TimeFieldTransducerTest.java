@@ -0,0 +1,107 @@
+package cn.mirrorming.text2date.time;
+
+import cn.mirrorming.text2date.engine.RegexEngineType;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * {@link TimeFieldTransducer} 与预处理加逐个字段正则的两条路径必须给出相同结果，
+ * 改动 time.regex 或字段解析时用示例工程的测试用例和随机文本对照
+ */
+public class TimeFieldTransducerTest {
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+    /**
+     * 周一上午、闰日深夜、年末
+     */
+    static final Instant[] RELATIVES = {
+            Instant.parse("2019-12-09T02:15:30Z"),
+            Instant.parse("2024-02-29T15:59:59Z"),
+            Instant.parse("2025-12-31T00:00:00Z"),
+    };
+    public static final String[] WORDS = {
+            "今天", "明天", "后天", "大后天", "大大后天", "昨天", "前天", "大前天", "大大前天", "今儿", "明早", "今晚",
+            "上午", "下午", "中午", "晚上", "凌晨", "早上", "傍晚", "半夜",
+            "星期", "周", "礼拜", "本周", "下周", "上周", "下下周", "这周", "周末",
+            "年", "月", "日", "号", "点", "时", "分", "秒", "半", "刻", "一刻", "三刻",
+            "今年", "明年", "去年", "前年", "后年", "本月", "下个月", "上个月", "月底", "月初",
+            "以后", "之后", "以前", "之前", "后", "前", "内", "个", "到", "至", "-", ":", "：", "/", ".",
+            "零", "一", "二", "两", "三", "四", "五", "六", "七", "八", "九", "十", "十二", "二十", "三十",
+            "0", "1", "2", "3", "5", "8", "9", "10", "12", "15", "20", "23", "30", "59", "2019", "2024",
+            "国庆", "国庆节", "春节", "中秋", "元旦", "除夕", "正月", "初一", "腊月", "农历", "闰",
+            "工作日", "下个工作日", "每天", "每周", "每月", "每年",
+            "提醒我", "去北京开会", "吃饭", "，", "。", " ",
+    };
+
+    @Test
+    public void testCase() throws IOException {
+        List<String> lines;
+        try (InputStream in = getClass().getResourceAsStream("/testCase.txt")) {
+            Assert.assertNotNull("testCase.txt", in);
+            lines = IOUtils.readLines(in, "UTF-8");
+        }
+        for (RegexEngineType type : new RegexEngineType[]{RegexEngineType.JDK, RegexEngineType.DFA}) {
+            TimeEntityRecognizer regex = new TimeEntityRecognizer(type);
+            TimeEntityRecognizer transducer = new TimeEntityRecognizer(type);
+            transducer.setTransducer(true);
+            int count = 0;
+            for (String line : lines) {
+                String text = StringUtils.strip(StringUtils.removeStart(line, "\uFEFF"));
+                if (StringUtils.isEmpty(text)) {
+                    continue;
+                }
+                for (Instant relative : RELATIVES) {
+                    assertSame(regex, transducer, text, relative);
+                }
+                count++;
+            }
+            Assert.assertTrue(count > 200);
+        }
+    }
+
+    @Test
+    public void randomText() {
+        TimeEntityRecognizer regex = new TimeEntityRecognizer(RegexEngineType.DFA);
+        TimeEntityRecognizer transducer = new TimeEntityRecognizer(RegexEngineType.DFA);
+        transducer.setTransducer(true);
+        Random random = new Random(20191209L);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            text.setLength(0);
+            for (int n = 1 + random.nextInt(8); n > 0; n--) {
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            assertSame(regex, transducer, text.toString(), RELATIVES[random.nextInt(RELATIVES.length)]);
+        }
+    }
+
+    /**
+     * 结果相同，或者抛出同一类异常
+     */
+    private static void assertSame(TimeEntityRecognizer regex, TimeEntityRecognizer transducer, String text, Instant relative) {
+        Object expected;
+        Object actual;
+        try {
+            expected = regex.parse(text, ZONE, relative);
+        } catch (RuntimeException e) {
+            expected = e.getClass();
+        }
+        try {
+            actual = transducer.parse(text, ZONE, relative);
+        } catch (RuntimeException e) {
+            actual = e.getClass();
+        }
+        if (!Objects.equals(expected, actual)) {
+            Assert.fail(text + " @ " + relative + "\nregex:      " + expected + "\ntransducer: " + actual);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package cn.mirrorming.text2date.time;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * {@link WorkdayCalendar} 的位图和前缀计数与按 workday.txt 逐日判断、逐日计数的结果对照，
+ * 范围跨过资源中列出的年份和前后按周末生成的年份
+ */
+public class WorkdayCalendarTest {
+    private static final LocalDate FIRST = LocalDate.of(2022, 1, 1);
+    private static final LocalDate LAST = LocalDate.of(2028, 12, 31);
+
+    private final WorkdayCalendar calendar = WorkdayCalendar.defaults();
+    /**
+     * 日期 -> 是否上班，只有 workday.txt 中列出的日期
+     */
+    private final Map<LocalDate, Boolean> listed = listed();
+
+    @Test
+    public void isWorkday() {
+        for (LocalDate date = FIRST; !date.isAfter(LAST); date = date.plusDays(1)) {
+            Assert.assertEquals(date.toString(), expected(date), calendar.isWorkday(date));
+        }
+    }
+
+    @Test
+    public void nthWorkdayAfter() {
+        for (LocalDate date = FIRST.plusDays(400); date.isBefore(LAST.minusDays(400)); date = date.plusDays(1)) {
+            for (int n = -25; n <= 25; n++) {
+                Assert.assertEquals(date + " " + n, walk(date, n), calendar.nthWorkdayAfter(date, n));
+            }
+        }
+        //跨过一到两年
+        Random random = new Random(20240101L);
+        for (int i = 0; i < 2000; i++) {
+            LocalDate date = FIRST.plusDays(600 + random.nextInt(1300));
+            int n = random.nextInt(1000) - 500;
+            Assert.assertEquals(date + " " + n, walk(date, n), calendar.nthWorkdayAfter(date, n));
+        }
+    }
+
+    @Test
+    public void workdaysBetween() {
+        Random random = new Random(20251001L);
+        long days = LAST.toEpochDay() - FIRST.toEpochDay();
+        for (int i = 0; i < 5000; i++) {
+            LocalDate from = FIRST.plusDays(random.nextInt((int) days));
+            LocalDate to = i % 2 == 0 ? from.plusDays(random.nextInt(40)) : FIRST.plusDays(random.nextInt((int) days));
+            Assert.assertEquals(from + " " + to, count(from, to), calendar.workdaysBetween(from, to));
+        }
+    }
+
+    /**
+     * 年末年初的假期和调休上班的周末
+     */
+    @Test
+    public void yearBoundary() {
+        //2025-01-01 放假
+        Assert.assertEquals(LocalDate.of(2025, 1, 2), calendar.nthWorkdayAfter(LocalDate.of(2024, 12, 31), 1));
+        //2026-01-01 至 03 放假，01-04 周日上班
+        Assert.assertEquals(LocalDate.of(2026, 1, 4), calendar.nthWorkdayAfter(LocalDate.of(2025, 12, 31), 1));
+        Assert.assertEquals(LocalDate.of(2025, 12, 31), calendar.nthWorkdayAfter(LocalDate.of(2026, 1, 4), -1));
+        Assert.assertEquals(2, calendar.workdaysBetween(LocalDate.of(2025, 12, 31), LocalDate.of(2026, 1, 5)));
+        Assert.assertEquals(-2, calendar.workdaysBetween(LocalDate.of(2026, 1, 5), LocalDate.of(2025, 12, 31)));
+        //2025-01-26 周日上班，01-28 至 02-04 放假
+        Assert.assertTrue(calendar.isWorkday(LocalDate.of(2025, 1, 26)));
+        Assert.assertEquals(LocalDate.of(2025, 1, 26), calendar.nthWorkdayAfter(LocalDate.of(2025, 1, 24), 1));
+        Assert.assertEquals(LocalDate.of(2025, 2, 5), calendar.nthWorkdayAfter(LocalDate.of(2025, 1, 27), 1));
+        //没有列出的年份只按周末
+        Assert.assertEquals(LocalDate.of(2028, 1, 3), calendar.nthWorkdayAfter(LocalDate.of(2027, 12, 31), 1));
+        Assert.assertEquals(LocalDate.of(2026, 2, 20), calendar.nthWorkdayAfter(LocalDate.of(2026, 2, 20), 0));
+    }
+
+    /**
+     * “三个工作日后”从相对时间所在日期往后数，跳过国庆假期，数到调休上班的周六
+     */
+    @Test
+    public void parse() {
+        ZoneId zone = ZoneId.of("Asia/Shanghai");
+        List<TimeEntity> entities = new TimeEntityRecognizer().parse("三个工作日后", zone, Instant.parse("2025-09-30T02:00:00Z"));
+        Assert.assertEquals(1, entities.size());
+        Assert.assertEquals(LocalDate.of(2025, 10, 11), entities.get(0).getValue().toInstant().atZone(zone).toLocalDate());
+    }
+
+    @Test
+    public void load() throws IOException {
+        WorkdayCalendar custom = WorkdayCalendar.load(stream("format 1\nversion test\n2030 休 0102-0103\n2030 班 0105\n"));
+        Assert.assertEquals("test", custom.getVersion());
+        Assert.assertFalse(custom.isWorkday(LocalDate.of(2030, 1, 2)));
+        Assert.assertTrue(custom.isWorkday(LocalDate.of(2030, 1, 5)));
+        Assert.assertEquals(LocalDate.of(2030, 1, 4), custom.nthWorkdayAfter(LocalDate.of(2030, 1, 1), 1));
+        for (String text : new String[]{"version test\n", "format 2\nversion test\n", "format 1\n", "format 1\nversion test\n2030 休 0230\n",
+                "format 1\nversion test\n2030 放 0101\n"}) {
+            try {
+                WorkdayCalendar.load(stream(text));
+                Assert.fail(text);
+            } catch (IllegalArgumentException e) {
+                //格式错误
+            }
+        }
+    }
+
+    private boolean expected(LocalDate date) {
+        Boolean workday = listed.get(date);
+        return workday != null ? workday : date.getDayOfWeek() != DayOfWeek.SATURDAY && date.getDayOfWeek() != DayOfWeek.SUNDAY;
+    }
+
+    private LocalDate walk(LocalDate date, int n) {
+        int step = n > 0 ? 1 : -1;
+        for (int i = Math.abs(n); i > 0; ) {
+            date = date.plusDays(step);
+            if (expected(date)) {
+                i--;
+            }
+        }
+        return date;
+    }
+
+    private long count(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return -count(to, from);
+        }
+        long count = 0;
+        for (LocalDate date = from; date.isBefore(to); date = date.plusDays(1)) {
+            if (expected(date)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Map<LocalDate, Boolean> listed() {
+        Map<LocalDate, Boolean> result = new HashMap<>();
+        try (InputStream in = WorkdayCalendarTest.class.getResourceAsStream(WorkdayCalendar.RESOURCE)) {
+            for (String line : IOUtils.readLines(in, "UTF-8")) {
+                String[] tokens = StringUtils.split(line);
+                if (tokens.length < 3 || !StringUtils.isNumeric(tokens[0])) {
+                    continue;
+                }
+                int year = Integer.parseInt(tokens[0]);
+                for (int i = 2; i < tokens.length; i++) {
+                    String[] range = tokens[i].split("-");
+                    LocalDate from = LocalDate.of(year, Integer.parseInt(range[0].substring(0, 2)), Integer.parseInt(range[0].substring(2)));
+                    String last = range[range.length - 1];
+                    LocalDate to = LocalDate.of(year, Integer.parseInt(last.substring(0, 2)), Integer.parseInt(last.substring(2)));
+                    for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                        result.put(date, "班".equals(tokens[1]));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        Assert.assertFalse("workday.txt", result.isEmpty());
+        return result;
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}